@@ -45,6 +45,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/channels/**").hasAnyRole("ADMIN", "EDITOR")
                 .requestMatchers("/api/export-templates/**").hasAnyRole("ADMIN", "EDITOR")
                 .requestMatchers("/api/bulk-operations/**").hasRole("ADMIN")
+                .requestMatchers("/api/search-index/**").hasRole("ADMIN")
+                .requestMatchers("/api/reference-data-cache/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .httpBasic(org.springframework.security.config.Customizer.withDefaults());
@@ -2,6 +2,7 @@ package com.example.pim.controller;
 
 import com.example.pim.domain.Attribute;
 import com.example.pim.service.AttributeService;
+import com.example.pim.service.AttributeUsage;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -58,6 +59,23 @@ public class AttributeController {
         return new ResponseEntity<>(attributes, HttpStatus.OK);
     }
 
+    /**
+     * Impact analysis: where each attribute is referenced.
+     */
+    @GetMapping("/usage")
+    public ResponseEntity<List<AttributeUsage>> getAttributeUsages() {
+        return new ResponseEntity<>(attributeService.getAttributeUsages(), HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/usage")
+    public ResponseEntity<AttributeUsage> getAttributeUsage(@PathVariable Long id) {
+        try {
+            return new ResponseEntity<>(attributeService.getAttributeUsage(id), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAttribute(@PathVariable Long id) {
         try {
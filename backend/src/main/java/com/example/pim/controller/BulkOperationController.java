@@ -1,13 +1,27 @@
 package com.example.pim.controller;
 
 import com.example.pim.domain.BulkOperation;
+import com.example.pim.service.BulkErrorPage;
+import com.example.pim.service.BulkInputFormat;
+import com.example.pim.service.BulkJobPriority;
+import com.example.pim.service.BulkInputStore;
 import com.example.pim.service.BulkOperationService;
+import com.example.pim.service.BulkWriteMode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -16,31 +30,150 @@ import java.util.Map;
 public class BulkOperationController {
 
     private final BulkOperationService bulkOperationService;
+    private final BulkInputStore bulkInputStore;
 
     @Autowired
-    public BulkOperationController(BulkOperationService bulkOperationService) {
+    public BulkOperationController(BulkOperationService bulkOperationService, BulkInputStore bulkInputStore) {
         this.bulkOperationService = bulkOperationService;
+        this.bulkInputStore = bulkInputStore;
     }
 
+    /**
+     * With {@code mode=upsert}, records for existing SKUs update those products instead of failing. {@code priority}
+     * (high, normal, low) overrides the size-based default.
+     */
     @PostMapping("/products/create")
-    public ResponseEntity<BulkOperation> initiateProductBulkCreate(@RequestBody List<Map<String, Object>> productData) {
-        String username = "system"; // TODO: Get username from security context
+    public ResponseEntity<BulkOperation> initiateProductBulkCreate(@RequestBody List<Map<String, Object>> productData,
+                                                                   @RequestParam(required = false) String mode,
+                                                                   @RequestParam(required = false) String priority) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
         try {
-            BulkOperation operation = bulkOperationService.initiateBulkCreate(productData, username);
+            BulkOperation operation = bulkOperationService.initiateBulkCreate(productData, BulkWriteMode.fromParameter(mode), priorityOrDefault(priority), username);
             return new ResponseEntity<>(operation, HttpStatus.ACCEPTED);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store bulk input: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams an NDJSON ({@code application/x-ndjson}) or CSV ({@code text/csv}) feed to disk without parsing it
+     * in the request, then imports it in the background. Supports {@code mode} and {@code priority} like the JSON
+     * endpoint.
+     */
+    @PostMapping(value = "/products/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<BulkOperation> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                        @RequestParam(required = false) String mode,
+                                                        @RequestParam(required = false) String priority, InputStream body) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            BulkInputFormat format = BulkInputFormat.fromContentType(contentType);
+            BulkWriteMode writeMode = BulkWriteMode.fromParameter(mode);
+            BulkJobPriority jobPriority = priorityOrDefault(priority);
+            Path spooledInput = bulkInputStore.spool(body, format);
+            BulkOperation operation = bulkOperationService.initiateBulkImport(spooledInput, format, writeMode, jobPriority, username);
+            return new ResponseEntity<>(operation, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store import feed: " + e.getMessage());
         }
     }
 
     @PostMapping("/products/update")
-    public ResponseEntity<BulkOperation> initiateProductBulkUpdate(@RequestBody List<Map<String, Object>> productUpdates) {
-        String username = "system"; // TODO: Get username from security context
+    public ResponseEntity<BulkOperation> initiateProductBulkUpdate(@RequestBody List<Map<String, Object>> productUpdates,
+                                                                   @RequestParam(required = false) String priority) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
         try {
-            BulkOperation operation = bulkOperationService.initiateBulkUpdate(productUpdates, username);
+            BulkOperation operation = bulkOperationService.initiateBulkUpdate(productUpdates, priorityOrDefault(priority), username);
             return new ResponseEntity<>(operation, HttpStatus.ACCEPTED); // 202 Accepted
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store bulk input: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rescores the completeness of every product in a family. This happens automatically when the family's attributes
+     * change; use this after changing families directly in the database.
+     */
+    @PostMapping("/completeness-recompute")
+    public ResponseEntity<BulkOperation> initiateCompletenessRecompute(@RequestParam Long productFamilyId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            BulkOperation operation = bulkOperationService.initiateCompletenessRecompute(productFamilyId, username);
+            return new ResponseEntity<>(operation, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store bulk input: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Operations waiting for a slot, in the order they will be dispatched.
+     */
+    @GetMapping("/queue")
+    public ResponseEntity<List<BulkOperation>> getBulkOperationQueue() {
+        return new ResponseEntity<>(bulkOperationService.getQueuedBulkOperations(), HttpStatus.OK);
+    }
+
+    @PutMapping("/{id}/priority")
+    public ResponseEntity<BulkOperation> reprioritizeBulkOperation(@PathVariable Long id, @RequestBody Map<String, String> payload) {
+        String priority = payload.get("priority");
+        if (priority == null || priority.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "priority is mandatory.");
+        }
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            return bulkOperationService.reprioritizeBulkOperation(id, BulkJobPriority.fromParameter(priority), username)
+                    .map(operation -> new ResponseEntity<>(operation, HttpStatus.OK))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bulk operation not found"));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Cancels a queued operation right away, or stops a running one after its in-flight chunks ({@code 202}).
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<BulkOperation> cancelBulkOperation(@PathVariable Long id) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            return bulkOperationService.cancelBulkOperation(id, username)
+                    .map(operation -> new ResponseEntity<>(operation, "CANCELLED".equals(operation.getStatus()) ? HttpStatus.OK : HttpStatus.ACCEPTED))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bulk operation not found"));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    /**
+     * Undoes a finished operation in the background: created products are deleted and updated products restored.
+     * Products changed by someone else since are left alone and listed in {@code rollbackDetails}.
+     */
+    @PostMapping("/{id}/rollback")
+    public ResponseEntity<BulkOperation> rollbackBulkOperation(@PathVariable Long id) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            return bulkOperationService.rollbackBulkOperation(id, username)
+                    .map(operation -> new ResponseEntity<>(operation, HttpStatus.ACCEPTED))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bulk operation not found"));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
         }
     }
 
@@ -48,7 +181,51 @@ public class BulkOperationController {
     public ResponseEntity<BulkOperation> getBulkOperationStatus(@PathVariable Long id) {
         return bulkOperationService.getBulkOperationStatus(id)
                 .map(operation -> new ResponseEntity<>(operation, HttpStatus.OK))
-                .orElseThrow(() -> new Response.StatusException(HttpStatus.NOT_FOUND, "Bulk operation not found"));
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bulk operation not found"));
     }
-}
 
+    /**
+     * Failed rows of an operation, in the order they were reported. {@code totalErrors} lags behind while the job is
+     * running.
+     */
+    @GetMapping("/{id}/errors")
+    public ResponseEntity<BulkErrorPage> getBulkOperationErrors(@PathVariable Long id,
+                                                                @RequestParam(defaultValue = "0") int page,
+                                                                @RequestParam(defaultValue = "100") int size) {
+        try {
+            return bulkOperationService.getBulkOperationErrors(id, page, size)
+                    .map(errors -> new ResponseEntity<>(errors, HttpStatus.OK))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bulk operation not found"));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error reading error report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The complete error report as gzip-compressed NDJSON.
+     */
+    @GetMapping("/{id}/errors/download")
+    public ResponseEntity<Resource> downloadBulkOperationErrors(@PathVariable Long id) {
+        Path errorFile = bulkOperationService.getBulkOperationErrorFile(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No error report for bulk operation " + id));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"bulk-operation-" + id + "-errors.ndjson.gz\"")
+                .body(new FileSystemResource(errorFile));
+    }
+
+    /**
+     * Server-sent events with the live counters of an operation ({@code event: progress}) until it has finished.
+     */
+    @GetMapping(value = "/{id}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBulkOperationProgress(@PathVariable Long id) {
+        return bulkOperationService.subscribeToProgress(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bulk operation not found"));
+    }
+
+    private static BulkJobPriority priorityOrDefault(String priority) {
+        return priority == null || priority.isBlank() ? null : BulkJobPriority.fromParameter(priority);
+    }
+}
@@ -2,8 +2,13 @@ package com.example.pim.controller;
 
 import com.example.pim.domain.Product;
 import com.example.pim.domain.ProductAttributeValue;
+import com.example.pim.service.AttributeValueChange;
+import com.example.pim.service.AttributeValueChangeResult;
+import com.example.pim.service.ProductAttributeValueBatchWriter;
 import com.example.pim.service.ProductAttributeValueService;
+import com.example.pim.service.ProductReader;
 import com.example.pim.service.ProductService;
+import com.example.pim.service.ProductView;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,15 +24,20 @@ public class ProductAttributeValueController {
 
     private final ProductAttributeValueService productAttributeValueService;
     private final ProductService productService;
+    private final ProductReader productReader;
+    private final ProductAttributeValueBatchWriter productAttributeValueBatchWriter;
 
     @Autowired
-    public ProductAttributeValueController(ProductAttributeValueService productAttributeValueService, ProductService productService) {
+    public ProductAttributeValueController(ProductAttributeValueService productAttributeValueService, ProductService productService, ProductReader productReader,
+                                           ProductAttributeValueBatchWriter productAttributeValueBatchWriter) {
         this.productAttributeValueService = productAttributeValueService;
         this.productService = productService;
+        this.productReader = productReader;
+        this.productAttributeValueBatchWriter = productAttributeValueBatchWriter;
     }
 
     @PostMapping
-    public ResponseEntity<ProductAttributeValue> saveProductAttributeValue(
+    public ResponseEntity<ProductView.AttributeValue> saveProductAttributeValue(
             @PathVariable Long productId,
             @RequestBody Map<String, String> payload) {
         Product product = productService.getProductById(productId)
@@ -38,15 +48,31 @@ public class ProductAttributeValueController {
 
         try {
             ProductAttributeValue savedValue = productAttributeValueService.saveProductAttributeValue(product, attributeId, value);
-            return new ResponseEntity<>(savedValue, HttpStatus.OK);
+            return new ResponseEntity<>(ProductView.AttributeValue.of(savedValue), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Sets many attribute values of the product at once, e.g. {@code [{"attributeId": 7, "value": "2.5 kg"}, ...]}.
+     * Values that cannot be set are listed in the result with the reason; the others are written.
+     */
+    @PutMapping
+    public ResponseEntity<AttributeValueChangeResult> saveProductAttributeValues(@PathVariable Long productId, @RequestBody List<AttributeValueChange> changes) {
+        if (productService.getProductById(productId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+        try {
+            return new ResponseEntity<>(productAttributeValueBatchWriter.changeValues(productId, changes), HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
     }
 
     @GetMapping
-    public ResponseEntity<List<ProductAttributeValue>> getAttributeValuesForProduct(@PathVariable Long productId) {
-        List<ProductAttributeValue> attributeValues = productAttributeValueService.getAttributeValuesForProduct(productId);
+    public ResponseEntity<List<ProductView.AttributeValue>> getAttributeValuesForProduct(@PathVariable Long productId) {
+        List<ProductView.AttributeValue> attributeValues = productReader.readAttributeValues(productId);
         return new ResponseEntity<>(attributeValues, HttpStatus.OK);
     }
 }
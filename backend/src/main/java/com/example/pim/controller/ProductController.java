@@ -1,7 +1,19 @@
 package com.example.pim.controller;
 
 import com.example.pim.domain.Product;
+import com.example.pim.service.AttributePredicate;
+import com.example.pim.service.AttributeValueChange;
+import com.example.pim.service.AttributeValueChangeResult;
+import com.example.pim.service.FacetedProductPage;
+import com.example.pim.service.ProductFacetIndex;
+import com.example.pim.service.ProductAttributeValueBatchWriter;
+import com.example.pim.service.ProductPage;
+import com.example.pim.service.ProductReader;
 import com.example.pim.service.ProductService;
+import com.example.pim.service.ProductStatusBatchUpdater;
+import com.example.pim.service.ProductStatusChange;
+import com.example.pim.service.ProductStatusChangeResult;
+import com.example.pim.service.ProductView;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
@@ -22,58 +34,161 @@ import java.util.Map;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductReader productReader;
+    private final ProductStatusBatchUpdater productStatusBatchUpdater;
+    private final ProductAttributeValueBatchWriter productAttributeValueBatchWriter;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductReader productReader, ProductStatusBatchUpdater productStatusBatchUpdater,
+                             ProductAttributeValueBatchWriter productAttributeValueBatchWriter) {
         this.productService = productService;
+        this.productReader = productReader;
+        this.productStatusBatchUpdater = productStatusBatchUpdater;
+        this.productAttributeValueBatchWriter = productAttributeValueBatchWriter;
     }
 
     @PostMapping
     public ResponseEntity<?> createProduct(@Valid @RequestBody Product product) {
         try {
             Product createdProduct = productService.createProduct(product);
-            return new ResponseEntity<>(createdProduct, HttpStatus.CREATED);
+            return new ResponseEntity<>(view(createdProduct), HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
-        } catch (DataAccessException e) {
-            return new ResponseEntity<>("System temporarily unavailable due to database error.", HttpStatus.SERVICE_UNAVAILABLE);
         } catch (ObjectOptimisticLockingFailureException e) {
             return new ResponseEntity<>("Another user modified this product. Please refresh.", HttpStatus.CONFLICT);
+        } catch (DataAccessException e) {
+            return new ResponseEntity<>("System temporarily unavailable due to database error.", HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
     @PutMapping("/{id}/status")
-    public ResponseEntity<Product> updateProductStatus(@PathVariable Long id, @RequestBody Map<String, String> payload) {
+    public ResponseEntity<ProductView> updateProductStatus(@PathVariable Long id, @RequestBody Map<String, String> payload) {
         String newStatus = payload.get("status");
         if (newStatus == null || newStatus.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Status is mandatory.");
         }
         try {
             Product updatedProduct = productService.updateProductStatus(id, newStatus);
-            return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
+            return new ResponseEntity<>(view(updatedProduct), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Moves many products to one status, e.g. publishes a season launch. Products that cannot be moved are listed in
+     * the result with the reason; the others are changed.
+     */
+    @PutMapping("/status")
+    public ResponseEntity<ProductStatusChangeResult> changeProductStatuses(@RequestBody ProductStatusChange change) {
+        try {
+            return new ResponseEntity<>(productStatusBatchUpdater.changeStatus(change), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Sets attribute values across many products. Values that cannot be set are listed in the result with the reason;
+     * the others are written.
+     */
+    @PutMapping("/attributes")
+    public ResponseEntity<AttributeValueChangeResult> changeAttributeValues(@RequestBody List<AttributeValueChange> changes) {
+        try {
+            return new ResponseEntity<>(productAttributeValueBatchWriter.changeValues(changes), HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
     }
 
     @PutMapping("/{id}/family")
-    public ResponseEntity<Product> changeProductFamily(@PathVariable Long id, @RequestBody Map<String, Long> payload) {
+    public ResponseEntity<ProductView> changeProductFamily(@PathVariable Long id, @RequestBody Map<String, Long> payload) {
         Long newFamilyId = payload.get("familyId");
         if (newFamilyId == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "familyId is mandatory.");
         }
         try {
             Product updatedProduct = productService.changeProductFamily(id, newFamilyId);
-            return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
+            return new ResponseEntity<>(view(updatedProduct), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Products in id order. Pass the {@code nextCursor} of a page as {@code cursor} to get the next one.
+     */
+    @GetMapping
+    public ResponseEntity<ProductPage> listProducts(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        try {
+            return new ResponseEntity<>(productService.listProducts(cursor, size), HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
     }
 
+    /**
+     * Best matches first. The last word of {@code query} also matches as a prefix, for search-as-you-type. Pages work
+     * as for the listing.
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String query) {
-        List<Product> products = productService.searchProducts(query);
-        return new ResponseEntity<>(products, HttpStatus.OK);
+    public ResponseEntity<ProductPage> searchProducts(@RequestParam String query, @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer size) {
+        try {
+            return new ResponseEntity<>(productService.searchProducts(query, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Products filtered by facet values, with the number of products per value of every facet. Repeat a parameter to
+     * select several values of a facet (any of them matches); different facets must all match. {@code query}
+     * optionally narrows the search to a text match. Results are in id order and paged as for the listing.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetedProductPage> searchFacets(@RequestParam(required = false) String query,
+                                                           @RequestParam(required = false) List<String> category,
+                                                           @RequestParam(required = false) List<String> family,
+                                                           @RequestParam(required = false) List<String> status,
+                                                           @RequestParam(required = false) List<String> workflowStatus,
+                                                           @RequestParam(required = false) List<String> completeness,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer size) {
+        Map<String, List<String>> filters = new HashMap<>();
+        filters.put(ProductFacetIndex.CATEGORY, category != null ? category : List.of());
+        filters.put(ProductFacetIndex.FAMILY, family != null ? family : List.of());
+        filters.put(ProductFacetIndex.STATUS, status != null ? status : List.of());
+        filters.put(ProductFacetIndex.WORKFLOW_STATUS, workflowStatus != null ? workflowStatus : List.of());
+        filters.put(ProductFacetIndex.COMPLETENESS, completeness != null ? completeness : List.of());
+        try {
+            return new ResponseEntity<>(productService.searchFacets(query, filters, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    /**
+     * Products whose attribute values meet all given predicates, e.g.
+     * {@code [{"attribute": "weight", "operator": "BETWEEN", "values": ["2", "5"]}]}. Results are in id order and paged
+     * as for the listing.
+     */
+    @PostMapping("/attribute-query")
+    public ResponseEntity<ProductPage> filterByAttributes(@RequestBody List<AttributePredicate> predicates,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer size) {
+        try {
+            return new ResponseEntity<>(productService.filterByAttributes(predicates, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private ProductView view(Product product) {
+        return productReader.read(product.getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -32,6 +32,19 @@ public class ProductFamilyController {
         }
     }
 
+    /**
+     * Products of the family are rescored in the background when its attributes change.
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<ProductFamily> updateProductFamily(@PathVariable Long id, @Valid @RequestBody ProductFamily productFamilyDetails) {
+        try {
+            ProductFamily updatedProductFamily = productFamilyService.updateProductFamily(id, productFamilyDetails);
+            return new ResponseEntity<>(updatedProductFamily, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductFamily> getProductFamilyById(@PathVariable Long id) {
         return productFamilyService.getProductFamilyById(id)
@@ -3,9 +3,14 @@ package com.example.pim.controller;
 import com.example.pim.domain.Product;
 import com.example.pim.domain.ProductVariant;
 import com.example.pim.service.ProductService;
+import com.example.pim.service.ProductView;
 import com.example.pim.service.ProductVariantService;
+import com.example.pim.service.VariantMatrixGenerator;
+import com.example.pim.service.VariantMatrixRequest;
+import com.example.pim.service.VariantMatrixResult;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,20 +22,39 @@ public class ProductVariantController {
 
     private final ProductVariantService productVariantService;
     private final ProductService productService;
+    private final VariantMatrixGenerator variantMatrixGenerator;
 
     @Autowired
-    public ProductVariantController(ProductVariantService productVariantService, ProductService productService) {
+    public ProductVariantController(ProductVariantService productVariantService, ProductService productService, VariantMatrixGenerator variantMatrixGenerator) {
         this.productVariantService = productVariantService;
         this.productService = productService;
+        this.variantMatrixGenerator = variantMatrixGenerator;
     }
 
     @PostMapping
-    public ResponseEntity<ProductVariant> createProductVariant(
+    public ResponseEntity<ProductView.Variant> createProductVariant(
             @PathVariable Long productId,
             @Valid @RequestBody ProductVariant productVariant) {
         Product product = productService.getProductById(productId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
         ProductVariant createdVariant = productVariantService.createProductVariant(product, productVariant);
-        return new ResponseEntity<>(createdVariant, HttpStatus.CREATED);
+        return new ResponseEntity<>(ProductView.Variant.of(createdVariant), HttpStatus.CREATED);
+    }
+
+    /**
+     * Creates a variant for every combination of the given values of variant attributes that the product does not
+     * have yet.
+     */
+    @PostMapping("/matrix")
+    public ResponseEntity<VariantMatrixResult> generateVariantMatrix(@PathVariable Long productId, @RequestBody VariantMatrixRequest request) {
+        Product product = productService.getProductById(productId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+        try {
+            return new ResponseEntity<>(variantMatrixGenerator.generate(product, request), HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Some of these variants were created by another user in the meantime. Please retry.");
+        }
     }
 }
@@ -0,0 +1,39 @@
+package com.example.pim.controller;
+
+import com.example.pim.service.ReferenceDataCache;
+import com.example.pim.service.ReferenceDataCacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reference-data-cache")
+public class ReferenceDataCacheController {
+
+    private final ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    public ReferenceDataCacheController(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ReferenceDataCacheStats>> getReferenceDataCacheStats() {
+        return new ResponseEntity<>(referenceDataCache.stats(), HttpStatus.OK);
+    }
+
+    /**
+     * Drops all cached reference data, e.g. after attributes or families were changed directly in the database.
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> clearReferenceDataCache() {
+        referenceDataCache.invalidateAll();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
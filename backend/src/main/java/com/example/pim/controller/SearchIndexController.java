@@ -0,0 +1,40 @@
+package com.example.pim.controller;
+
+import com.example.pim.service.ProductSearchIndex;
+import com.example.pim.service.SearchIndexStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/search-index")
+public class SearchIndexController {
+
+    private final ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    public SearchIndexController(ProductSearchIndex productSearchIndex) {
+        this.productSearchIndex = productSearchIndex;
+    }
+
+    @GetMapping
+    public ResponseEntity<SearchIndexStatus> getSearchIndexStatus() {
+        return new ResponseEntity<>(productSearchIndex.status(), HttpStatus.OK);
+    }
+
+    /**
+     * Rebuilds the index from the database in the background. Searches keep using the current index meanwhile.
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<SearchIndexStatus> rebuildSearchIndex() {
+        if (!productSearchIndex.rebuild()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A rebuild is already running.");
+        }
+        return new ResponseEntity<>(productSearchIndex.status(), HttpStatus.ACCEPTED);
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.pim.controller;
 
 import com.example.pim.domain.Product;
+import com.example.pim.service.ProductReader;
+import com.example.pim.service.ProductView;
 import com.example.pim.service.WorkflowService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -15,14 +17,16 @@ import java.util.Map;
 public class WorkflowController {
 
     private final WorkflowService workflowService;
+    private final ProductReader productReader;
 
     @Autowired
-    public WorkflowController(WorkflowService workflowService) {
+    public WorkflowController(WorkflowService workflowService, ProductReader productReader) {
         this.workflowService = workflowService;
+        this.productReader = productReader;
     }
 
     @PutMapping
-    public ResponseEntity<Product> updateWorkflowStatus(
+    public ResponseEntity<ProductView> updateWorkflowStatus(
             @PathVariable Long productId,
             @RequestBody Map<String, String> payload) {
         String newStatus = payload.get("status");
@@ -34,7 +38,9 @@ public class WorkflowController {
 
         try {
             Product updatedProduct = workflowService.updateWorkflowStatus(productId, newStatus, username);
-            return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
+            ProductView view = productReader.read(updatedProduct.getId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+            return new ResponseEntity<>(view, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
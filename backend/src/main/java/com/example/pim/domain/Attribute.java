@@ -20,7 +20,7 @@ public class Attribute {
     @Column(unique = true)
     private String code;
     private String name;
-    private String type; // e.g., TEXT, NUMBER, COLOR, SIZE
+    private String type; // e.g., TEXT, NUMBER, BOOLEAN, DATE, COLOR, SIZE
     private String validationRegex; // Regex pattern for validation
     private String defaultValue;
     private boolean variantAttribute; // true if this attribute can differentiate variants
@@ -0,0 +1,35 @@
+package com.example.pim.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * One product row written by a bulk operation, recorded in the same transaction as the write so that the operation
+ * can be rolled back. Created products only need their id; updated products keep a before-image of what the
+ * operation changed.
+ */
+@Entity
+@Data
+@Table(indexes = @Index(columnList = "bulk_operation_id, id"))
+public class BulkChangeJournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "bulk_operation_id", nullable = false)
+    private Long bulkOperationId;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private String changeType; // "CREATED" or "UPDATED"
+
+    private Long beforeVersion; // Version before an update, null for created products
+
+    private long afterVersion; // Version the operation left the product at
+
+    @Lob
+    private String beforeImage; // JSON ProductBeforeImage of an update
+}
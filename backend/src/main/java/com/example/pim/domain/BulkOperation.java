@@ -15,7 +15,7 @@ public class BulkOperation {
 
     private String operationType; // e.g., "PRODUCT_UPDATE", "PRODUCT_DELETE"
 
-    private String status; // e.g., "PENDING", "IN_PROGRESS", "COMPLETED", "FAILED", "ROLLING_BACK", "ROLLED_BACK"
+    private String status; // e.g., "PENDING", "IN_PROGRESS", "COMPLETED", "FAILED", "CANCELLED", "INTERRUPTED", "ROLLING_BACK", "ROLLED_BACK", "ROLLED_BACK_WITH_CONFLICTS", "ROLLBACK_FAILED"
 
     private LocalDateTime startTime;
 
@@ -34,4 +34,20 @@ public class BulkOperation {
 
     @Lob
     private String rollbackDetails; // Details about rollback if applicable
+
+    private int rolledBackRecords; // Products deleted or restored by a rollback so far
+
+    private int rollbackConflicts; // Products a rollback had to leave alone
+
+    private String inputPath; // Spooled feed, kept until the operation has finished so that it can be resumed
+
+    private String inputFormat; // BulkInputFormat of the spooled feed
+
+    private String writeMode; // BulkWriteMode of a create: CREATE or UPSERT
+
+    private String priority; // BulkJobPriority: HIGH, NORMAL or LOW
+
+    private Integer queuePosition; // 1-based place in the scheduler queue while PENDING, otherwise null
+
+    private Integer partitionCount; // Fixed on first start so that a resumed run routes records like the first one
 }
@@ -0,0 +1,30 @@
+package com.example.pim.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Progress of one partition of a bulk operation. Every record of the partition up to and including
+ * {@code lastRowIndex} has been committed, and the counters cover exactly those records.
+ */
+@Entity
+@Data
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"bulk_operation_id", "partition_index"}))
+public class BulkOperationCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "bulk_operation_id", nullable = false)
+    private Long bulkOperationId;
+
+    @Column(name = "partition_index", nullable = false)
+    private int partitionIndex;
+
+    private long lastRowIndex = -1;
+
+    private int processedRecords;
+
+    private int failedRecords;
+}
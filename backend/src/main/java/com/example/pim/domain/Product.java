@@ -23,6 +23,7 @@ public class Product {
     @NotBlank(message = "SKU is mandatory")
     @Size(max = 64, message = "SKU must be max 64 chars")
     @Pattern(regexp = "^[a-zA-Z0-9]*$", message = "SKU must be alphanumeric, no spaces")
+    @Column(unique = true)
     private String sku;
 
     @NotBlank(message = "Name is mandatory")
@@ -3,9 +3,16 @@ package com.example.pim.domain;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Entity
 @Data
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "attribute_id"}))
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "attribute_id"}),
+        indexes = {
+                @Index(name = "idx_pav_attribute_numeric", columnList = "attribute_id, numeric_value"),
+                @Index(name = "idx_pav_attribute_boolean", columnList = "attribute_id, boolean_value"),
+                @Index(name = "idx_pav_attribute_normalized", columnList = "attribute_id, normalized_value")
+        })
 public class ProductAttributeValue {
 
     @Id
@@ -20,5 +27,12 @@ public class ProductAttributeValue {
     @JoinColumn(name = "attribute_id", nullable = false)
     private Attribute attribute;
 
+    @Column(name = "attribute_value") // "value" is a reserved word in H2
     private String value;
+
+    // Typed copies of value according to the attribute's type, kept for indexed filtering (see TypedAttributeValue)
+    @Column(precision = 38, scale = 10)
+    private BigDecimal numericValue;
+    private Boolean booleanValue;
+    private String normalizedValue;
 }
@@ -30,7 +30,8 @@ public class ProductFamily {
     @JoinTable(
             name = "product_family_attribute",
             joinColumns = @JoinColumn(name = "product_family_id"),
-            inverseJoinColumns = @JoinColumn(name = "attribute_id"))
+            inverseJoinColumns = @JoinColumn(name = "attribute_id"),
+            indexes = @Index(name = "idx_family_attribute_attribute", columnList = "attribute_id"))
     private Set<Attribute> attributes;
 
     @Min(value = 0, message = "Completeness threshold must be between 0 and 100")
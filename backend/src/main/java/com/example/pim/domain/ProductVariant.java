@@ -10,6 +10,10 @@ import java.util.Map;
 
 @Entity
 @Data
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_variant_signature", columnNames = {"product_id", "variant_signature"}),
+        @UniqueConstraint(name = "uk_product_variant_sku", columnNames = "sku")
+})
 public class ProductVariant {
 
     @Id
@@ -29,8 +33,13 @@ public class ProductVariant {
     private String name;
 
     @ElementCollection
-    @CollectionTable(name = "product_variant_attributes", joinColumns = @JoinColumn(name = "product_variant_id"))
+    @CollectionTable(name = "product_variant_attributes", joinColumns = @JoinColumn(name = "product_variant_id"),
+            indexes = @Index(name = "idx_variant_attribute_name", columnList = "attribute_name"))
     @MapKeyColumn(name = "attribute_name")
     @Column(name = "attribute_value")
     private Map<String, String> attributes;
+
+    // Hash of the variant attribute values, unique per product (see ProductVariantSignatures); set by the service
+    @Column(name = "variant_signature", length = 64)
+    private String variantSignature;
 }
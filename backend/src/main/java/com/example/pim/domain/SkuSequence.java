@@ -0,0 +1,20 @@
+package com.example.pim.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * A counter for generated SKUs, one per scope (e.g. a product family). Numbers are handed out in blocks: each
+ * application instance reserves {@code [nextValue, nextValue + block size)} by advancing {@code nextValue}.
+ */
+@Entity
+@Data
+public class SkuSequence {
+
+    @Id
+    @Column(length = 128)
+    private String scope;
+
+    @Column(nullable = false)
+    private long nextValue;
+}
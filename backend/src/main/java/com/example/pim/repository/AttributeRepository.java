@@ -4,10 +4,13 @@ import com.example.pim.domain.Attribute;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AttributeRepository extends JpaRepository<Attribute, Long> {
     Optional<Attribute> findByCode(String code);
+    List<Attribute> findByCodeIn(Collection<String> codes);
 }
 
@@ -0,0 +1,24 @@
+package com.example.pim.repository;
+
+import com.example.pim.domain.BulkChangeJournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BulkChangeJournalEntryRepository extends JpaRepository<BulkChangeJournalEntry, Long> {
+    boolean existsByBulkOperationId(Long bulkOperationId);
+
+    /**
+     * Drops the journals of operations that ended before {@code cutoff}; those can no longer be rolled back.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from BulkChangeJournalEntry e where e.bulkOperationId in (select o.id from BulkOperation o where o.endTime < :cutoff and o.status <> 'ROLLING_BACK')")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,28 @@
+package com.example.pim.repository;
+
+import com.example.pim.domain.BulkOperationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface BulkOperationCheckpointRepository extends JpaRepository<BulkOperationCheckpoint, Long> {
+    List<BulkOperationCheckpoint> findByBulkOperationIdOrderByPartitionIndex(Long bulkOperationId);
+
+    @Transactional
+    void deleteByBulkOperationId(Long bulkOperationId);
+
+    /**
+     * Moves a partition's checkpoint past a committed chunk and adds the chunk's counts.
+     */
+    @Modifying
+    @Transactional
+    @Query("update BulkOperationCheckpoint c set c.lastRowIndex = :lastRowIndex, c.processedRecords = c.processedRecords + :processed, c.failedRecords = c.failedRecords + :failed where c.bulkOperationId = :bulkOperationId and c.partitionIndex = :partitionIndex")
+    int advance(@Param("bulkOperationId") Long bulkOperationId, @Param("partitionIndex") int partitionIndex,
+                @Param("lastRowIndex") long lastRowIndex, @Param("processed") int processed, @Param("failed") int failed);
+}
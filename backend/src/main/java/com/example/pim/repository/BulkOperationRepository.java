@@ -2,13 +2,56 @@ package com.example.pim.repository;
 
 import com.example.pim.domain.BulkOperation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BulkOperationRepository extends JpaRepository<BulkOperation, Long> {
     List<BulkOperation> findByOperationTypeAndStatus(String operationType, String status);
+    List<BulkOperation> findByStatusIn(Collection<String> statuses);
     // TODO: Add a method to find bulk operations by channel if we link templates to channels
-}
 
+    /**
+     * Writes only the progress counters of a running operation, without loading or merging the entity.
+     */
+    @Modifying
+    @Transactional
+    @Query("update BulkOperation o set o.totalRecords = :totalRecords, o.processedRecords = :processedRecords, o.failedRecords = :failedRecords where o.id = :id")
+    int updateProgress(@Param("id") Long id, @Param("totalRecords") int totalRecords,
+                       @Param("processedRecords") int processedRecords, @Param("failedRecords") int failedRecords);
+
+    /**
+     * Adds the outcome of one rollback batch. {@code rollbackDetails} carries the conflicts reported so far.
+     */
+    @Modifying
+    @Transactional
+    @Query("update BulkOperation o set o.rolledBackRecords = o.rolledBackRecords + :rolledBack, o.rollbackConflicts = o.rollbackConflicts + :conflicts, o.rollbackDetails = :rollbackDetails where o.id = :id")
+    int advanceRollback(@Param("id") Long id, @Param("rolledBack") int rolledBack, @Param("conflicts") int conflicts,
+                        @Param("rollbackDetails") String rollbackDetails);
+
+    @Modifying
+    @Transactional
+    @Query("update BulkOperation o set o.priority = :priority where o.id = :id")
+    int updatePriority(@Param("id") Long id, @Param("priority") String priority);
+
+    @Modifying
+    @Transactional
+    @Query("update BulkOperation o set o.queuePosition = :queuePosition where o.id = :id")
+    int updateQueuePosition(@Param("id") Long id, @Param("queuePosition") int queuePosition);
+
+    @Modifying
+    @Transactional
+    @Query("update BulkOperation o set o.queuePosition = null where o.queuePosition is not null and o.id not in :ids")
+    int clearQueuePositionsExcept(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("update BulkOperation o set o.queuePosition = null where o.queuePosition is not null")
+    int clearQueuePositions();
+}
@@ -4,8 +4,11 @@ import com.example.pim.domain.ProductAttributeValue;
 import com.example.pim.domain.Product;
 import com.example.pim.domain.Attribute;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +16,7 @@ import java.util.Optional;
 public interface ProductAttributeValueRepository extends JpaRepository<ProductAttributeValue, Long> {
     Optional<ProductAttributeValue> findByProductAndAttribute(Product product, Attribute attribute);
     List<ProductAttributeValue> findByProductId(Long productId);
+
+    @Query("select v from ProductAttributeValue v join fetch v.attribute where v.product.id in :productIds order by v.id")
+    List<ProductAttributeValue> findWithAttributeByProductIdIn(@Param("productIds") Collection<Long> productIds);
 }
@@ -1,6 +1,7 @@
 package com.example.pim.repository;
 
 import com.example.pim.domain.ProductFamily;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +10,7 @@ import java.util.Optional;
 @Repository
 public interface ProductFamilyRepository extends JpaRepository<ProductFamily, Long> {
     Optional<ProductFamily> findByCode(String code);
+
+    @EntityGraph(attributePaths = "attributes")
+    Optional<ProductFamily> findWithAttributesById(Long id);
 }
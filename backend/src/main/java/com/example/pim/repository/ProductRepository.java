@@ -3,20 +3,48 @@ package com.example.pim.repository;
 import com.example.pim.domain.Category;
 import com.example.pim.domain.Product;
 import com.example.pim.domain.ProductFamily;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     boolean existsBySku(String sku);
     long countByCategoriesContaining(Category category);
     long countByProductFamily(ProductFamily productFamily);
+    boolean existsByProductFamilyId(Long productFamilyId);
     List<Product> findByNameContainingIgnoreCaseOrSkuContainingIgnoreCase(String name, String sku);
     List<Product> findByStatusAndCompletenessScoreGreaterThanEqual(String status, int completenessScore);
-}
 
+    @Query("select p.id from Product p where p.id > :afterId order by p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("select p.id from Product p where p.id > :afterId and (lower(p.name) like lower(concat('%', :query, '%')) or lower(p.sku) like lower(concat('%', :query, '%'))) order by p.id")
+    List<Long> searchIdsByNameOrSkuAfter(@Param("query") String query, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("select p.id from Product p where lower(p.name) like lower(concat('%', :query, '%')) or lower(p.sku) like lower(concat('%', :query, '%'))")
+    List<Long> findIdsByNameOrSku(@Param("query") String query);
 
+    @EntityGraph(attributePaths = "productFamily")
+    @Query("select p from Product p where p.id in :ids")
+    List<Product> findWithFamilyByIdIn(@Param("ids") Collection<Long> ids);
 
+    @Query("select p.id, c from Product p join p.categories c where p.id in :ids order by c.name")
+    List<Object[]> findCategoriesByProductIdIn(@Param("ids") Collection<Long> ids);
 
+    @Query("select p.sku from Product p where p.sku in :skus")
+    List<String> findExistingSkus(@Param("skus") Collection<String> skus);
+
+    /**
+     * Must be consumed inside a transaction and closed.
+     */
+    @Query("select p.id from Product p where p.productFamily.id = :productFamilyId order by p.id")
+    Stream<Long> streamIdsByProductFamilyId(@Param("productFamilyId") Long productFamilyId);
+}
@@ -2,13 +2,20 @@ package com.example.pim.repository;
 
 import com.example.pim.domain.ProductVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
     boolean existsBySku(String sku);
     List<ProductVariant> findByProductId(Long productId);
+    boolean existsByProductIdAndVariantSignature(Long productId, String variantSignature);
+
+    @Query("select distinct v from ProductVariant v left join fetch v.attributes where v.product.id in :productIds order by v.id")
+    List<ProductVariant> findWithAttributesByProductIdIn(@Param("productIds") Collection<Long> productIds);
 }
 
@@ -0,0 +1,15 @@
+package com.example.pim.service;
+
+import java.util.List;
+
+/**
+ * A condition on the value of one attribute, identified by its code. Numeric comparisons apply to NUMBER attributes,
+ * {@code EQ} on a BOOLEAN attribute compares yes/no, and text comparisons are case-insensitive. Values are given as
+ * strings: one for most operators, two for {@code BETWEEN} (both bounds included) and one or more for {@code IN}.
+ */
+public record AttributePredicate(String attribute, Operator operator, List<String> values) {
+
+    public enum Operator {
+        EQ, IN, GT, GTE, LT, LTE, BETWEEN, PREFIX
+    }
+}
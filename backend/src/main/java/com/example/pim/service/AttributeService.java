@@ -2,28 +2,36 @@ package com.example.pim.service;
 
 import com.example.pim.domain.Attribute;
 import com.example.pim.repository.AttributeRepository;
-import com.example.pim.repository.ProductVariantRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 @Service
 public class AttributeService {
 
     private final AttributeRepository attributeRepository;
-    private final ProductVariantRepository productVariantRepository;
     private final AuditLogService auditLogService;
+    private final ProductAttributeValueService productAttributeValueService;
+    private final ReferenceDataCache referenceDataCache;
+    private final ProductVariantSignatures productVariantSignatures;
+    private final AttributeUsageIndex attributeUsageIndex;
+    private final AttributeValidationService attributeValidationService;
 
     @Autowired
-    public AttributeService(AttributeRepository attributeRepository, ProductVariantRepository productVariantRepository, AuditLogService auditLogService) {
+    public AttributeService(AttributeRepository attributeRepository, AuditLogService auditLogService, ProductAttributeValueService productAttributeValueService,
+                            ReferenceDataCache referenceDataCache, ProductVariantSignatures productVariantSignatures, AttributeUsageIndex attributeUsageIndex,
+                            AttributeValidationService attributeValidationService) {
         this.attributeRepository = attributeRepository;
-        this.productVariantRepository = productVariantRepository;
         this.auditLogService = auditLogService;
+        this.productAttributeValueService = productAttributeValueService;
+        this.referenceDataCache = referenceDataCache;
+        this.productVariantSignatures = productVariantSignatures;
+        this.attributeUsageIndex = attributeUsageIndex;
+        this.attributeValidationService = attributeValidationService;
     }
 
     public Attribute createAttribute(Attribute attribute) {
@@ -32,6 +40,11 @@ public class AttributeService {
         }
         validateAttribute(attribute);
         Attribute createdAttribute = attributeRepository.save(attribute);
+        referenceDataCache.invalidateAttribute(createdAttribute.getId());
+        if (createdAttribute.isVariantAttribute()) {
+            // Existing variants may already carry a value under its name; a further axis only tells variants further apart
+            productVariantSignatures.recomputeAll();
+        }
         auditLogService.log("CREATE", "Attribute", createdAttribute.getId(), "system"); // TODO: Replace "system" with actual username
         return createdAttribute;
     }
@@ -46,6 +59,15 @@ public class AttributeService {
             throw new IllegalArgumentException("Attribute code cannot be changed.");
         }
 
+        // Variant values are keyed by attribute name, so renaming would orphan them
+        if (!Objects.equals(attribute.getName(), attributeDetails.getName()) && attributeUsageIndex.isUsedByVariants(attribute.getName())) {
+            throw new IllegalArgumentException("Cannot rename attribute '" + attribute.getName() + "' as it is used in one or more product variants.");
+        }
+
+        boolean typeChanged = !Objects.equals(attribute.getType(), attributeDetails.getType());
+        // Variant signatures cover the names of the variant attributes
+        boolean variantAxisChanged = (attribute.isVariantAttribute() || attributeDetails.isVariantAttribute())
+                && (attribute.isVariantAttribute() != attributeDetails.isVariantAttribute() || !Objects.equals(attribute.getName(), attributeDetails.getName()));
         attribute.setName(attributeDetails.getName());
         attribute.setType(attributeDetails.getType());
         attribute.setValidationRegex(attributeDetails.getValidationRegex());
@@ -54,34 +76,58 @@ public class AttributeService {
 
         validateAttribute(attribute);
         Attribute updatedAttribute = attributeRepository.save(attribute);
+        referenceDataCache.invalidateAttribute(updatedAttribute.getId());
+        attributeValidationService.invalidate(updatedAttribute.getId());
+        if (typeChanged) {
+            productAttributeValueService.retypeAttributeValues(updatedAttribute.getId(), updatedAttribute.getType());
+        }
+        if (variantAxisChanged) {
+            attributeRepository.flush(); // The recompute reads the variant attributes with JDBC
+            List<Long> duplicates = productVariantSignatures.recomputeAll().duplicates();
+            if (!duplicates.isEmpty()) {
+                // Rolls back the recompute along with the change
+                throw new IllegalArgumentException("Cannot change attribute '" + attribute.getCode() + "': product variants " + duplicates
+                        + " would have the same variant attribute values as another variant of their product.");
+            }
+        }
         auditLogService.log("UPDATE", "Attribute", updatedAttribute.getId(), "system");
         return updatedAttribute;
     }
 
 
     private void validateAttribute(Attribute attribute) {
-        // Validate regex pattern
-        if (attribute.getValidationRegex() != null && !attribute.getValidationRegex().isEmpty()) {
-            try {
-                Pattern pattern = Pattern.compile(attribute.getValidationRegex());
-                // Validate default value against regex
-                if (attribute.getDefaultValue() != null && !attribute.getDefaultValue().isEmpty()) {
-                    if (!pattern.matcher(attribute.getDefaultValue()).matches()) {
-                        throw new IllegalArgumentException("Default value does not match the validation regex.");
-                    }
-                }
-            } catch (PatternSyntaxException e) {
-                throw new IllegalArgumentException("Invalid regex pattern in validation rule: " + e.getMessage());
+        AttributeValidator validator = attributeValidationService.compile(attribute);
+        if (validator.regexError() != null) {
+            throw new IllegalArgumentException("Invalid regex pattern in validation rule: " + validator.regexError());
+        }
+        // Validate default value against regex and type
+        if (attribute.getDefaultValue() != null && !attribute.getDefaultValue().isEmpty()) {
+            if (validator.regexViolation(attribute.getDefaultValue()) != null) {
+                throw new IllegalArgumentException("Default value does not match the validation regex.");
+            }
+            String typeViolation = validator.typeViolation(attribute.getDefaultValue());
+            if (typeViolation != null) {
+                throw new IllegalArgumentException("Invalid default value: " + typeViolation);
             }
         }
     }
 
     public Optional<Attribute> getAttributeById(Long id) {
-        return attributeRepository.findById(id);
+        return referenceDataCache.attribute(id);
     }
 
     public List<Attribute> getAllAttributes() {
-        return attributeRepository.findAll();
+        return referenceDataCache.allAttributes();
+    }
+
+    public AttributeUsage getAttributeUsage(Long id) {
+        Attribute attribute = referenceDataCache.attribute(id)
+                .orElseThrow(() -> new IllegalArgumentException("Attribute not found"));
+        return attributeUsageIndex.usage(attribute);
+    }
+
+    public List<AttributeUsage> getAttributeUsages() {
+        return attributeUsageIndex.usages();
     }
 
     public void deleteAttribute(Long id) {
@@ -89,14 +135,19 @@ public class AttributeService {
                 .orElseThrow(() -> new IllegalArgumentException("Attribute not found"));
 
         // Check if the attribute is used in any product variants
-        boolean isAttributeUsed = productVariantRepository.findAll().stream()
-                .anyMatch(variant -> variant.getAttributes().containsKey(attribute.getName()));
-
-        if (isAttributeUsed) {
+        if (attributeUsageIndex.isUsedByVariants(attribute.getName())) {
             throw new IllegalArgumentException("Cannot delete attribute '" + attribute.getName() + "' as it is used in one or more product variants.");
         }
+        if (attributeUsageIndex.hasAttributeValues(id)) {
+            throw new IllegalArgumentException("Cannot delete attribute '" + attribute.getName() + "' as products have values for it.");
+        }
+        if (attributeUsageIndex.isInProductFamilies(id)) {
+            throw new IllegalArgumentException("Cannot delete attribute '" + attribute.getName() + "' as it belongs to one or more product families.");
+        }
 
         attributeRepository.delete(attribute);
+        referenceDataCache.invalidateAttribute(id);
+        attributeValidationService.invalidate(id);
         auditLogService.log("DELETE", "Attribute", id, "system"); // TODO: Replace "system" with actual username
     }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.example.pim.service;
+
+/**
+ * Where an attribute is referenced: the number of product variants with a value under its name, of product attribute
+ * values, and of product families that include it.
+ */
+public record AttributeUsage(Long attributeId, String code, String name, long variants, long attributeValues, long productFamilies) {
+}
@@ -0,0 +1,91 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers where attributes are referenced from the indexes on the referencing columns: variant values by
+ * {@code attribute_name}, product attribute values and family memberships by {@code attribute_id}. The database keeps
+ * these indexes in step with every write, including bulk and rollback statements, so the counts cannot drift. Checks
+ * probe for a single row; counts read the index only.
+ */
+@Service
+public class AttributeUsageIndex {
+
+    private static final String VARIANT_EXISTS = "SELECT COUNT(*) FROM (SELECT 1 FROM product_variant_attributes WHERE attribute_name = ? LIMIT 1) t";
+    private static final String VALUE_EXISTS = "SELECT COUNT(*) FROM (SELECT 1 FROM product_attribute_value WHERE attribute_id = ? LIMIT 1) t";
+    private static final String FAMILY_EXISTS = "SELECT COUNT(*) FROM (SELECT 1 FROM product_family_attribute WHERE attribute_id = ? LIMIT 1) t";
+    private static final String COUNT_VARIANTS = "SELECT COUNT(*) FROM product_variant_attributes WHERE attribute_name = ?";
+    private static final String COUNT_VALUES = "SELECT COUNT(*) FROM product_attribute_value WHERE attribute_id = ?";
+    private static final String COUNT_FAMILIES = "SELECT COUNT(*) FROM product_family_attribute WHERE attribute_id = ?";
+    private static final String COUNT_VARIANTS_BY_NAME = "SELECT attribute_name, COUNT(*) AS references_count FROM product_variant_attributes GROUP BY attribute_name";
+    private static final String COUNT_VALUES_BY_ATTRIBUTE = "SELECT attribute_id, COUNT(*) AS references_count FROM product_attribute_value GROUP BY attribute_id";
+    private static final String COUNT_FAMILIES_BY_ATTRIBUTE = "SELECT attribute_id, COUNT(*) AS references_count FROM product_family_attribute GROUP BY attribute_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    public AttributeUsageIndex(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    public boolean isUsedByVariants(String attributeName) {
+        return exists(VARIANT_EXISTS, attributeName);
+    }
+
+    public boolean hasAttributeValues(Long attributeId) {
+        return exists(VALUE_EXISTS, attributeId);
+    }
+
+    public boolean isInProductFamilies(Long attributeId) {
+        return exists(FAMILY_EXISTS, attributeId);
+    }
+
+    public AttributeUsage usage(Attribute attribute) {
+        return new AttributeUsage(attribute.getId(), attribute.getCode(), attribute.getName(),
+                count(COUNT_VARIANTS, attribute.getName()), count(COUNT_VALUES, attribute.getId()), count(COUNT_FAMILIES, attribute.getId()));
+    }
+
+    /**
+     * @return the usage of every attribute, with one grouped query per kind of reference
+     */
+    public List<AttributeUsage> usages() {
+        Map<String, Long> variants = new HashMap<>();
+        jdbcTemplate.query(COUNT_VARIANTS_BY_NAME, rs -> {
+            variants.put(rs.getString("attribute_name"), rs.getLong("references_count"));
+        });
+        Map<Long, Long> values = new HashMap<>();
+        jdbcTemplate.query(COUNT_VALUES_BY_ATTRIBUTE, rs -> {
+            values.put(rs.getLong("attribute_id"), rs.getLong("references_count"));
+        });
+        Map<Long, Long> families = new HashMap<>();
+        jdbcTemplate.query(COUNT_FAMILIES_BY_ATTRIBUTE, rs -> {
+            families.put(rs.getLong("attribute_id"), rs.getLong("references_count"));
+        });
+        List<AttributeUsage> usages = new ArrayList<>();
+        for (Attribute attribute : referenceDataCache.allAttributes()) {
+            usages.add(new AttributeUsage(attribute.getId(), attribute.getCode(), attribute.getName(), variants.getOrDefault(attribute.getName(), 0L),
+                    values.getOrDefault(attribute.getId(), 0L), families.getOrDefault(attribute.getId(), 0L)));
+        }
+        return usages;
+    }
+
+    private boolean exists(String sql, Object key) {
+        Long found = jdbcTemplate.queryForObject(sql, Long.class, key);
+        return found != null && found > 0;
+    }
+
+    private long count(String sql, Object key) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, key);
+        return count != null ? count : 0;
+    }
+}
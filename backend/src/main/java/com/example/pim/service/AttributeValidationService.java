@@ -0,0 +1,104 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.ProductAttributeValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Validates attribute values with {@link AttributeValidator}s compiled once per attribute and cached by id. A cached
+ * validator is only used while it matches the name, type and regex of the attribute it is asked for, so attribute
+ * instances loaded from anywhere are validated against their own rules; {@link AttributeService} also drops the
+ * validator when it changes or deletes the attribute.
+ */
+@Service
+public class AttributeValidationService {
+
+    private final Cache<Long, AttributeValidator> validators;
+    private final Set<String> colors;
+    private final Set<String> sizes;
+    private final long timeoutNanos;
+
+    @Autowired
+    public AttributeValidationService(@Value("${pim.attributes.color-values:}") String[] colors,
+                                      @Value("${pim.attributes.size-values:}") String[] sizes,
+                                      @Value("${pim.attributes.regex-timeout-ms:100}") long regexTimeoutMillis,
+                                      @Value("${pim.reference-cache.maximum-size:10000}") long maximumSize) {
+        this.colors = normalize(colors);
+        this.sizes = normalize(sizes);
+        this.timeoutNanos = Duration.ofMillis(regexTimeoutMillis).toNanos();
+        this.validators = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    private static Set<String> normalize(String[] values) {
+        return Arrays.stream(values)
+                .filter(value -> !value.isBlank())
+                .map(TypedAttributeValue::normalize)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public AttributeValidator validator(Attribute attribute) {
+        if (attribute.getId() == null) {
+            return compile(attribute);
+        }
+        AttributeValidator validator = validators.get(attribute.getId(), id -> compile(attribute));
+        if (!validator.isCompiledFrom(attribute)) {
+            validator = compile(attribute);
+            validators.put(attribute.getId(), validator);
+        }
+        return validator;
+    }
+
+    /**
+     * Compiles the rules of an attribute without caching them, e.g. to check an attribute before it is saved.
+     */
+    public AttributeValidator compile(Attribute attribute) {
+        Set<String> allowedValues = Set.of();
+        if (AttributeValidator.COLOR.equalsIgnoreCase(attribute.getType())) {
+            allowedValues = colors;
+        } else if (AttributeValidator.SIZE.equalsIgnoreCase(attribute.getType())) {
+            allowedValues = sizes;
+        }
+        return AttributeValidator.compile(attribute, allowedValues, timeoutNanos);
+    }
+
+    /**
+     * @return null if {@code value} is acceptable for {@code attribute}, otherwise the validation message
+     */
+    public String validate(Attribute attribute, String value) {
+        return validator(attribute).validate(value);
+    }
+
+    /**
+     * Validates many values, looking each attribute's validator up once per run of values of that attribute.
+     *
+     * @return the validation messages, in the order of {@code values}; null for acceptable values
+     */
+    public List<String> validateAll(List<ProductAttributeValue> values) {
+        List<String> messages = new ArrayList<>(values.size());
+        Attribute attribute = null;
+        AttributeValidator validator = null;
+        for (ProductAttributeValue value : values) {
+            if (value.getAttribute() != attribute) {
+                attribute = value.getAttribute();
+                validator = validator(attribute);
+            }
+            messages.add(validator.validate(value.getValue()));
+        }
+        return messages;
+    }
+
+    public void invalidate(Long attributeId) {
+        validators.invalidate(attributeId);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The value rules of one attribute, compiled once: its validation regex, and a check by {@code Attribute.type}. NUMBER
+ * values must parse as a number and BOOLEAN values as yes or no (see {@link TypedAttributeValue}); DATE values must be
+ * an ISO date such as 2024-02-29; COLOR values must be one of the allowed colors or a hex code, and SIZE values one of
+ * the allowed sizes or a number. The allowed colors and sizes are configured once for all COLOR and all SIZE attributes
+ * ({@code pim.attributes.color-values} and {@code size-values}); an empty list accepts anything. Regex matching gives up after a timeout, so a regex that backtracks
+ * catastrophically on some value rejects that value instead of blocking a thread. Validators are immutable and can be
+ * shared between threads.
+ */
+public final class AttributeValidator {
+
+    public static final String COLOR = "COLOR";
+    public static final String SIZE = "SIZE";
+    public static final String DATE = "DATE";
+
+    private static final Pattern HEX_COLOR = Pattern.compile("#(?:[0-9a-fA-F]{3}){1,2}");
+    // The deadline is checked on every this many characters the regex reads
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final String name;
+    private final String type;
+    private final String regex;
+    private final Pattern pattern;
+    private final String regexError;
+    private final Set<String> allowedValues;
+    private final long timeoutNanos;
+
+    private AttributeValidator(Attribute attribute, Pattern pattern, String regexError, Set<String> allowedValues, long timeoutNanos) {
+        this.name = attribute.getName();
+        this.type = attribute.getType();
+        this.regex = attribute.getValidationRegex();
+        this.pattern = pattern;
+        this.regexError = regexError;
+        this.allowedValues = allowedValues;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * @param allowedValues normalized (see {@link TypedAttributeValue#normalize}) allowed values of COLOR or SIZE
+     *                      attributes; ignored for other types
+     */
+    public static AttributeValidator compile(Attribute attribute, Set<String> allowedValues, long timeoutNanos) {
+        Pattern pattern = null;
+        String regexError = null;
+        if (attribute.getValidationRegex() != null && !attribute.getValidationRegex().isEmpty()) {
+            try {
+                pattern = Pattern.compile(attribute.getValidationRegex());
+            } catch (PatternSyntaxException e) {
+                regexError = e.getMessage();
+            }
+        }
+        return new AttributeValidator(attribute, pattern, regexError, Set.copyOf(allowedValues), timeoutNanos);
+    }
+
+    /**
+     * @return whether this validator still reflects the rules of {@code attribute}
+     */
+    public boolean isCompiledFrom(Attribute attribute) {
+        return Objects.equals(name, attribute.getName()) && Objects.equals(type, attribute.getType()) && Objects.equals(regex, attribute.getValidationRegex());
+    }
+
+    /**
+     * @return the syntax error of the validation regex, or null if it compiled
+     */
+    public String regexError() {
+        return regexError;
+    }
+
+    /**
+     * @return null if the value is acceptable, otherwise the validation message
+     */
+    public String validate(String value) {
+        String violation = regexViolation(value);
+        return violation != null ? violation : typeViolation(value);
+    }
+
+    /**
+     * @return null if there is no regex or the value matches it, otherwise the validation message
+     */
+    public String regexViolation(String value) {
+        if (regexError != null) {
+            return "Invalid regex pattern for attribute '" + name + "'.";
+        }
+        if (pattern == null) {
+            return null;
+        }
+        if (value == null) {
+            return "Value 'null' does not match regex for attribute '" + name + "'.";
+        }
+        try {
+            if (!pattern.matcher(new DeadlineCharSequence(value, System.nanoTime() + timeoutNanos)).matches()) {
+                return "Value '" + value + "' does not match regex for attribute '" + name + "'.";
+            }
+        } catch (RegexTimeoutException e) {
+            return "Value '" + value + "' could not be checked against the regex of attribute '" + name + "' in time. The regex should be simplified.";
+        }
+        return null;
+    }
+
+    /**
+     * @return null if the value suits the attribute's type (or is null), otherwise the validation message
+     */
+    public String typeViolation(String value) {
+        if (value == null || type == null) {
+            return null;
+        }
+        String normalized = TypedAttributeValue.normalize(value);
+        switch (type.toUpperCase()) {
+            case TypedAttributeValue.NUMBER -> {
+                if (TypedAttributeValue.parseNumber(value) == null) {
+                    return "Value '" + value + "' is not a number for attribute '" + name + "'.";
+                }
+            }
+            case TypedAttributeValue.BOOLEAN -> {
+                if (TypedAttributeValue.parseBoolean(value) == null) {
+                    return "Value '" + value + "' is not yes or no for attribute '" + name + "'.";
+                }
+            }
+            case DATE -> {
+                try {
+                    LocalDate.parse(value.strip());
+                } catch (DateTimeParseException e) {
+                    return "Value '" + value + "' is not a date (YYYY-MM-DD) for attribute '" + name + "'.";
+                }
+            }
+            case COLOR -> {
+                if (!allowedValues.isEmpty() && !allowedValues.contains(normalized) && !HEX_COLOR.matcher(value.strip()).matches()) {
+                    return "Value '" + value + "' is not an allowed color for attribute '" + name + "'.";
+                }
+            }
+            case SIZE -> {
+                if (!allowedValues.isEmpty() && !allowedValues.contains(normalized) && TypedAttributeValue.parseNumber(value) == null) {
+                    return "Value '" + value + "' is not an allowed size for attribute '" + name + "'.";
+                }
+            }
+            default -> {
+            }
+        }
+        return null;
+    }
+
+    private static final class RegexTimeoutException extends RuntimeException {
+
+        RegexTimeoutException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A string that throws {@link RegexTimeoutException} when it is read past a deadline, which is how the regex
+     * engine, having no timeout of its own, is stopped.
+     */
+    private static final class DeadlineCharSequence implements CharSequence {
+
+        private final String value;
+        private final long deadline;
+        private int reads;
+
+        DeadlineCharSequence(String value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++reads % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                throw new RegexTimeoutException();
+            }
+            return value.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new DeadlineCharSequence(value.substring(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
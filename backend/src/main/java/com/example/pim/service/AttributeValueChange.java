@@ -0,0 +1,8 @@
+package com.example.pim.service;
+
+/**
+ * One attribute value to set in a batch, e.g. {@code {"productId": 1, "attributeId": 7, "value": "2.5 kg"}}. The
+ * product id may be left out when the batch is sent to one product's attributes.
+ */
+public record AttributeValueChange(Long productId, Long attributeId, String value) {
+}
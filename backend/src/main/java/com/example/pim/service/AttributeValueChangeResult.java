@@ -0,0 +1,13 @@
+package com.example.pim.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch of attribute values. {@code unchanged} counts values that were already set as requested; every
+ * value that could not be set is listed in {@code failures} with the reason.
+ */
+public record AttributeValueChangeResult(int requested, int created, int updated, int unchanged, List<Failure> failures) {
+
+    public record Failure(Long productId, Long attributeId, String message) {
+    }
+}
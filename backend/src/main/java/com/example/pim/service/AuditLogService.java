@@ -3,18 +3,25 @@ package com.example.pim.service;
 import com.example.pim.domain.AuditLog;
 import com.example.pim.repository.AuditLogRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 @Service
 public class AuditLogService {
 
+    private static final String INSERT_AUDIT_LOG = "INSERT INTO audit_log (action, entity, entity_id, username, timestamp) VALUES (?, ?, ?, ?, ?)";
+
     private final AuditLogRepository auditLogRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Autowired
-    public AuditLogService(AuditLogRepository auditLogRepository) {
+    public AuditLogService(AuditLogRepository auditLogRepository, JdbcTemplate jdbcTemplate) {
         this.auditLogRepository = auditLogRepository;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     public void log(String action, String entity, Long entityId, String username) {
@@ -26,4 +33,21 @@ public class AuditLogService {
         auditLog.setTimestamp(LocalDateTime.now());
         auditLogRepository.save(auditLog);
     }
+
+    /**
+     * Logs the same action for many entities with one JDBC batch instead of one insert per entity.
+     */
+    public void logAll(String action, String entity, Collection<Long> entityIds, String username) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_AUDIT_LOG, entityIds, entityIds.size(), (ps, entityId) -> {
+            ps.setString(1, action);
+            ps.setString(2, entity);
+            ps.setLong(3, entityId);
+            ps.setString(4, username);
+            ps.setTimestamp(5, timestamp);
+        });
+    }
 }
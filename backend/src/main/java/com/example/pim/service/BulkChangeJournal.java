@@ -0,0 +1,144 @@
+package com.example.pim.service;
+
+import com.example.pim.repository.BulkChangeJournalEntryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Per-operation journal of the product rows a bulk job has written, used to roll the job back. Entries are written
+ * with one JDBC batch per chunk inside the chunk's transaction, so the journal never disagrees with the data. Journals
+ * are kept for {@code pim.bulk.journal.retention-days} after the operation has ended.
+ */
+@Service
+public class BulkChangeJournal {
+
+    static final String CREATED = "CREATED";
+    static final String UPDATED = "UPDATED";
+
+    private static final String INSERT_ENTRY = "INSERT INTO bulk_change_journal_entry (bulk_operation_id, product_id, change_type, before_version, after_version, before_image) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_NEWEST = "SELECT id, product_id, change_type, before_version, after_version, before_image FROM bulk_change_journal_entry WHERE bulk_operation_id = ? ORDER BY id DESC LIMIT ?";
+    private static final String DELETE_FROM = "DELETE FROM bulk_change_journal_entry WHERE bulk_operation_id = ? AND id >= ?";
+    private static final String DELETE_PRODUCT_FROM = "DELETE FROM bulk_change_journal_entry WHERE bulk_operation_id = ? AND product_id = ? AND id >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BulkChangeJournalEntryRepository bulkChangeJournalEntryRepository;
+    private final ObjectMapper objectMapper;
+    private final int retentionDays;
+
+    @Autowired
+    public BulkChangeJournal(JdbcTemplate jdbcTemplate, BulkChangeJournalEntryRepository bulkChangeJournalEntryRepository, ObjectMapper objectMapper,
+                             @Value("${pim.bulk.journal.retention-days:7}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bulkChangeJournalEntryRepository = bulkChangeJournalEntryRepository;
+        this.objectMapper = objectMapper;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Records newly inserted products. Must run in the transaction that inserted them.
+     */
+    void recordCreated(Long operationId, List<Long> productIds) {
+        if (operationId == null || productIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, productIds, productIds.size(), (ps, productId) -> {
+            ps.setLong(1, operationId);
+            ps.setLong(2, productId);
+            ps.setString(3, CREATED);
+            ps.setObject(4, null);
+            ps.setLong(5, 0);
+            ps.setString(6, null);
+        });
+    }
+
+    /**
+     * Records the before-images of updated products, each of which has been bumped by exactly one version. Must run
+     * in the transaction that updated them.
+     */
+    void recordUpdated(Long operationId, List<ProductBeforeImage> images) {
+        if (operationId == null || images.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, images, images.size(), (ps, image) -> {
+            ps.setLong(1, operationId);
+            ps.setLong(2, image.productId());
+            ps.setString(3, UPDATED);
+            ps.setLong(4, image.version());
+            ps.setLong(5, image.version() + 1);
+            ps.setString(6, toJson(image));
+        });
+    }
+
+    /**
+     * The most recent {@code limit} entries of an operation, newest first.
+     */
+    List<Entry> newest(Long operationId, int limit) {
+        return jdbcTemplate.query(SELECT_NEWEST, (rs, rowNum) -> {
+            long beforeVersion = rs.getLong("before_version");
+            Long before = rs.wasNull() ? null : beforeVersion;
+            String image = rs.getString("before_image");
+            return new Entry(rs.getLong("id"), rs.getLong("product_id"), rs.getString("change_type"), before,
+                    rs.getLong("after_version"), image != null ? fromJson(image) : null);
+        }, operationId, limit);
+    }
+
+    /**
+     * Removes the entries from {@code oldestEntryId} on, i.e. a batch returned by {@link #newest} once it has been
+     * replayed.
+     */
+    void consume(Long operationId, long oldestEntryId) {
+        jdbcTemplate.update(DELETE_FROM, operationId, oldestEntryId);
+    }
+
+    /**
+     * Removes the entries of one product from {@code oldestEntryId} on, i.e. its part of a batch returned by
+     * {@link #newest}, for when the products of a batch are replayed one at a time.
+     */
+    void consume(Long operationId, long productId, long oldestEntryId) {
+        jdbcTemplate.update(DELETE_PRODUCT_FROM, operationId, productId, oldestEntryId);
+    }
+
+    public boolean hasEntries(Long operationId) {
+        return bulkChangeJournalEntryRepository.existsByBulkOperationId(operationId);
+    }
+
+    @Scheduled(cron = "${pim.bulk.journal.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        try {
+            bulkChangeJournalEntryRepository.deleteExpired(LocalDateTime.now().minusDays(retentionDays));
+        } catch (DataAccessException e) {
+            System.err.println("Could not purge expired bulk change journals: " + e.getMessage());
+        }
+    }
+
+    private String toJson(ProductBeforeImage image) {
+        try {
+            return objectMapper.writeValueAsString(image);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize before-image of product " + image.productId(), e);
+        }
+    }
+
+    private ProductBeforeImage fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, ProductBeforeImage.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable before-image in bulk change journal", e);
+        }
+    }
+
+    /**
+     * A journal entry as read back for a rollback. {@code beforeImage} is null for created products.
+     */
+    record Entry(long id, long productId, String changeType, Long beforeVersion, long afterVersion, ProductBeforeImage beforeImage) {
+    }
+}
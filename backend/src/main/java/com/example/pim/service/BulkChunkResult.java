@@ -0,0 +1,13 @@
+package com.example.pim.service;
+
+import java.util.List;
+
+/**
+ * Outcome of writing one chunk of bulk records.
+ */
+public record BulkChunkResult(int succeeded, List<BulkRecordError> errors) {
+
+    public int failed() {
+        return errors.size();
+    }
+}
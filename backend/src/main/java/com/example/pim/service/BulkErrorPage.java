@@ -0,0 +1,9 @@
+package com.example.pim.service;
+
+import java.util.List;
+
+/**
+ * One page of the error report of a bulk operation.
+ */
+public record BulkErrorPage(Long operationId, int page, int size, long totalErrors, List<BulkRecordError> errors) {
+}
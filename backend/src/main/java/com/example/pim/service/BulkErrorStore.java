@@ -0,0 +1,168 @@
+package com.example.pim.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the failed rows of each bulk operation in a gzip-compressed NDJSON file (one {@link BulkRecordError} per
+ * line), so that a feed full of bad rows costs disk space instead of heap and a database LOB.
+ */
+@Service
+public class BulkErrorStore {
+
+    private final Path rootLocation;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public BulkErrorStore(@Value("${pim.bulk.error-dir:bulk-errors}") String errorDir, ObjectMapper objectMapper) {
+        this.rootLocation = Paths.get(errorDir);
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(rootLocation);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize bulk error storage", e);
+        }
+    }
+
+    /**
+     * Opens the error file of an operation for appending. The file is only created once the first error arrives.
+     *
+     * @param resume keep the errors of an earlier, interrupted run of the same operation
+     */
+    public Sink open(Long operationId, boolean resume) throws IOException {
+        Path file = errorFile(operationId);
+        if (!resume) {
+            Files.deleteIfExists(file);
+        } else if (Files.exists(file)) {
+            repair(file);
+        }
+        return new Sink(file);
+    }
+
+    public Optional<Path> find(Long operationId) {
+        Path file = errorFile(operationId);
+        return Files.exists(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Reads one page of errors in the order they were reported. Works while the job is still running; errors
+     * written after the last flush are simply not visible yet.
+     */
+    public List<BulkRecordError> readPage(Long operationId, int page, int size) throws IOException {
+        List<BulkRecordError> errors = new ArrayList<>();
+        Path file = errorFile(operationId);
+        if (!Files.exists(file)) {
+            return errors;
+        }
+        long skip = (long) page * size;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while (errors.size() < size && (line = reader.readLine()) != null) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    errors.add(objectMapper.readValue(line, BulkRecordError.class));
+                }
+            }
+        } catch (EOFException e) {
+            // The file of a running job has no gzip trailer yet
+        }
+        return errors;
+    }
+
+    /**
+     * Rewrites the readable part of a file whose writer died without writing the gzip trailer, so that new errors can
+     * be appended as a further gzip member.
+     */
+    private void repair(Path file) throws IOException {
+        Path repaired = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(repaired)), StandardCharsets.UTF_8))) {
+            String line;
+            try {
+                while ((line = reader.readLine()) != null) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            } catch (EOFException e) {
+                // Everything flushed before the interruption has been copied
+            }
+        }
+        Files.move(repaired, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path errorFile(Long operationId) {
+        return rootLocation.resolve("operation-" + operationId + "-errors.ndjson.gz");
+    }
+
+    /**
+     * Append-only writer for the errors of one job. Safe to use from several partition workers.
+     */
+    public final class Sink implements Closeable {
+
+        private final Path file;
+        private BufferedWriter writer;
+        private boolean broken;
+
+        private Sink(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Appends errors and flushes them so that readers can see them. A failing disk is reported once and then
+         * ignored; the counters and summary on the operation remain accurate.
+         */
+        public synchronized void write(List<BulkRecordError> errors) {
+            if (errors.isEmpty() || broken) {
+                return;
+            }
+            try {
+                if (writer == null) {
+                    writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                            Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 8192, true), StandardCharsets.UTF_8));
+                }
+                for (BulkRecordError error : errors) {
+                    writer.write(objectMapper.writeValueAsString(error));
+                    writer.newLine();
+                }
+                writer.flush();
+            } catch (IOException e) {
+                broken = true;
+                System.err.println("Could not write bulk errors to " + file + ": " + e.getMessage());
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close bulk error file " + file + ": " + e.getMessage());
+                }
+                writer = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,581 @@
+package com.example.pim.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs bulk jobs. Each job gets a coordinator thread that reads its feed and routes every record to one of the
+ * job's partitions by key (e.g. SKU hash), so two workers never touch the same key. Partitions hand their chunks
+ * to a shared worker pool one chunk at a time: a partition has at most one chunk in flight, which keeps per-key
+ * ordering, and chunks of different jobs interleave on the pool instead of one job holding every worker until it
+ * is finished. Partition queues are bounded, so a fast reader blocks instead of buffering the whole feed.
+ *
+ * <p>Queued jobs are dispatched by priority class, round-robin between owners within a class, and only while the
+ * owner and the operation type are below their concurrency quotas. {@code pim.bulk.scheduler.reserved-high-priority-slots}
+ * coordinator slots are kept for {@link BulkJobPriority#HIGH} jobs, so a small urgent job does not wait for large
+ * imports to finish, and worker tasks are ordered by the priority of their job as well. The reserved slots are added
+ * to each owner's quota for HIGH jobs, so they also start next to their owner's own running import.
+ */
+@Service
+public class BulkExecutionEngine {
+
+    private static final ThreadLocal<ScheduledJob> CURRENT_JOB = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor jobExecutor;
+    private final ThreadPoolExecutor workerExecutor;
+    private final int maxConcurrentJobs;
+    private final int reservedHighPrioritySlots;
+    private final int maxJobsPerUser;
+    private final int maxHighPriorityJobsPerUser;
+    private final int maxJobsPerType;
+    private final int jobQueueCapacity;
+    private final int partitionsPerJob;
+    private final int partitionQueueCapacity;
+    private final int chunkSize;
+    private final long shutdownTimeoutSeconds;
+    private final AtomicLong taskSequence = new AtomicLong();
+
+    // Scheduler state, guarded by the jobs map
+    private final Map<BulkJobPriority, LinkedHashMap<String, ArrayDeque<ScheduledJob>>> pending = new EnumMap<>(BulkJobPriority.class);
+    private final Map<Long, ScheduledJob> jobs = new HashMap<>();
+    private final Map<String, Integer> runningPerOwner = new HashMap<>();
+    private final Map<String, Integer> runningPerType = new HashMap<>();
+    private int runningJobs;
+    private int pendingJobs;
+    private boolean shuttingDown;
+
+    private final Object queuePublication = new Object();
+    private volatile Consumer<List<Long>> queueListener = queue -> {
+    };
+
+    @Autowired
+    public BulkExecutionEngine(@Value("${pim.bulk.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                               @Value("${pim.bulk.job-queue-capacity:100}") int jobQueueCapacity,
+                               @Value("${pim.bulk.worker-threads:0}") int workerThreads,
+                               @Value("${pim.bulk.max-partitions-per-job:0}") int maxPartitionsPerJob,
+                               @Value("${pim.bulk.partition-queue-capacity:2}") int partitionQueueCapacity,
+                               @Value("${pim.bulk.chunk-size:500}") int chunkSize,
+                               @Value("${pim.bulk.shutdown-timeout-seconds:60}") long shutdownTimeoutSeconds,
+                               @Value("${pim.bulk.scheduler.reserved-high-priority-slots:1}") int reservedHighPrioritySlots,
+                               @Value("${pim.bulk.scheduler.max-jobs-per-user:1}") int maxJobsPerUser,
+                               @Value("${pim.bulk.scheduler.max-jobs-per-type:0}") int maxJobsPerType) {
+        if (maxConcurrentJobs < 1 || jobQueueCapacity < 1 || partitionQueueCapacity < 1 || chunkSize < 1 || reservedHighPrioritySlots < 0) {
+            throw new IllegalArgumentException("Bulk execution limits must be positive");
+        }
+        // 0 means "size to the machine" for workers and "no limit" for quotas
+        int workers = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.reservedHighPrioritySlots = reservedHighPrioritySlots;
+        this.maxJobsPerUser = maxJobsPerUser > 0 ? maxJobsPerUser : Integer.MAX_VALUE;
+        // HIGH jobs may also take the reserved slots, so an urgent job is not held back by its owner's running import
+        this.maxHighPriorityJobsPerUser = (int) Math.min(Integer.MAX_VALUE, (long) this.maxJobsPerUser + reservedHighPrioritySlots);
+        this.maxJobsPerType = maxJobsPerType > 0 ? maxJobsPerType : Integer.MAX_VALUE;
+        this.jobQueueCapacity = jobQueueCapacity;
+        this.partitionsPerJob = Math.min(maxPartitionsPerJob > 0 ? maxPartitionsPerJob : workers, workers);
+        this.partitionQueueCapacity = partitionQueueCapacity;
+        this.chunkSize = chunkSize;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        for (BulkJobPriority priority : BulkJobPriority.values()) {
+            pending.put(priority, new LinkedHashMap<>());
+        }
+        // The scheduler never dispatches more jobs than there are coordinator threads, so this queue stays empty
+        int coordinators = maxConcurrentJobs + reservedHighPrioritySlots;
+        this.jobExecutor = new ThreadPoolExecutor(coordinators, coordinators, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("bulk-job-"));
+        // At most one task per partition is ever queued, so this queue is bounded by jobs x partitions
+        this.workerExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), namedThreads("bulk-worker-"));
+    }
+
+    /**
+     * Returns true if a new job can currently be queued.
+     */
+    public boolean canAccept() {
+        synchronized (jobs) {
+            return !shuttingDown && pendingJobs < jobQueueCapacity;
+        }
+    }
+
+    /**
+     * Registers a listener that receives the ids of all queued jobs in dispatch order whenever the queue changes.
+     */
+    public void onQueueChanged(Consumer<List<Long>> listener) {
+        this.queueListener = listener;
+    }
+
+    /**
+     * Queues a job. When called inside a transaction the job is only handed over once that transaction has
+     * committed, so the job never starts before the {@code BulkOperation} row it works on is visible.
+     *
+     * @param onRejected invoked if the job cannot be queued after commit
+     */
+    public void submit(BulkJobRequest request, Runnable job, Runnable onRejected) {
+        if (!canAccept()) {
+            throw new IllegalStateException("Too many bulk operations are queued. Please retry later.");
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(request, job, onRejected);
+                }
+            });
+        } else {
+            enqueue(request, job, onRejected);
+        }
+    }
+
+    private void enqueue(BulkJobRequest request, Runnable job, Runnable onRejected) {
+        synchronized (jobs) {
+            if (shuttingDown || pendingJobs >= jobQueueCapacity || jobs.containsKey(request.operationId())) {
+                onRejected.run();
+                return;
+            }
+            ScheduledJob scheduled = new ScheduledJob(request, job);
+            jobs.put(request.operationId(), scheduled);
+            queue(scheduled);
+            dispatch();
+        }
+        publishQueue();
+    }
+
+    /**
+     * Moves a job to another priority class. A queued job keeps its place among its owner's jobs; a running job's
+     * remaining chunks are ordered by the new priority.
+     *
+     * @return false if the job is neither queued nor running here
+     */
+    public boolean reprioritize(Long operationId, BulkJobPriority priority) {
+        synchronized (jobs) {
+            ScheduledJob job = jobs.get(operationId);
+            if (job == null) {
+                return false;
+            }
+            if (!job.running) {
+                unqueue(job);
+                job.priority = priority;
+                queue(job);
+                dispatch();
+            } else {
+                job.priority = priority;
+            }
+        }
+        publishQueue();
+        return true;
+    }
+
+    /**
+     * Cancels a job. A queued job is dropped right away; a running job stops reading its feed and finishes the chunks
+     * already handed out, after which its coordinator sees a {@link CancellationException}.
+     */
+    public CancelResult cancel(Long operationId) {
+        CancelResult result;
+        synchronized (jobs) {
+            ScheduledJob job = jobs.get(operationId);
+            if (job == null) {
+                return CancelResult.UNKNOWN;
+            }
+            job.cancelled = true;
+            if (job.running) {
+                return CancelResult.STOPPING;
+            }
+            unqueue(job);
+            jobs.remove(operationId);
+            result = CancelResult.REMOVED;
+        }
+        publishQueue();
+        return result;
+    }
+
+    public enum CancelResult {
+        /** The job was queued and has been removed without running. */
+        REMOVED,
+        /** The job is running and will stop after its in-flight chunks. */
+        STOPPING,
+        /** No queued or running job with that id. */
+        UNKNOWN
+    }
+
+    /**
+     * @return whether a job of the operation is queued or running here, including one whose work is done but which is
+     * still being released
+     */
+    public boolean isActive(Long operationId) {
+        synchronized (jobs) {
+            return jobs.containsKey(operationId);
+        }
+    }
+
+    /**
+     * Ids of queued jobs in the order they would be dispatched if all quotas allowed it.
+     */
+    public List<Long> queuedOperationIds() {
+        synchronized (jobs) {
+            List<Long> ids = new ArrayList<>(pendingJobs);
+            for (LinkedHashMap<String, ArrayDeque<ScheduledJob>> owners : pending.values()) {
+                // Interleave owners the way round-robin dispatch will
+                List<Iterator<ScheduledJob>> queues = owners.values().stream().map(ArrayDeque::iterator).toList();
+                boolean more = true;
+                while (more) {
+                    more = false;
+                    for (Iterator<ScheduledJob> queue : queues) {
+                        if (queue.hasNext()) {
+                            ids.add(queue.next().request.operationId());
+                            more = true;
+                        }
+                    }
+                }
+            }
+            return ids;
+        }
+    }
+
+    private void queue(ScheduledJob job) {
+        pending.get(job.priority).computeIfAbsent(job.request.owner(), owner -> new ArrayDeque<>()).addLast(job);
+        pendingJobs++;
+    }
+
+    private void unqueue(ScheduledJob job) {
+        LinkedHashMap<String, ArrayDeque<ScheduledJob>> owners = pending.get(job.priority);
+        ArrayDeque<ScheduledJob> queue = owners.get(job.request.owner());
+        if (queue != null && queue.remove(job)) {
+            pendingJobs--;
+            if (queue.isEmpty()) {
+                owners.remove(job.request.owner());
+            }
+        }
+    }
+
+    /**
+     * Starts queued jobs while slots are free. Must hold the scheduler lock.
+     */
+    private void dispatch() {
+        while (!shuttingDown) {
+            ScheduledJob next = nextDispatchable();
+            if (next == null) {
+                return;
+            }
+            next.running = true;
+            runningJobs++;
+            runningPerOwner.merge(next.request.owner(), 1, Integer::sum);
+            runningPerType.merge(next.request.operationType(), 1, Integer::sum);
+            jobExecutor.execute(() -> runScheduled(next));
+        }
+    }
+
+    private ScheduledJob nextDispatchable() {
+        for (BulkJobPriority priority : BulkJobPriority.values()) {
+            boolean high = priority == BulkJobPriority.HIGH;
+            int slots = high ? maxConcurrentJobs + reservedHighPrioritySlots : maxConcurrentJobs;
+            int ownerQuota = high ? maxHighPriorityJobsPerUser : maxJobsPerUser;
+            if (runningJobs >= slots) {
+                continue;
+            }
+            LinkedHashMap<String, ArrayDeque<ScheduledJob>> owners = pending.get(priority);
+            for (Map.Entry<String, ArrayDeque<ScheduledJob>> entry : owners.entrySet()) {
+                ScheduledJob candidate = entry.getValue().peekFirst();
+                if (runningPerOwner.getOrDefault(entry.getKey(), 0) >= ownerQuota
+                        || runningPerType.getOrDefault(candidate.request.operationType(), 0) >= maxJobsPerType) {
+                    continue;
+                }
+                entry.getValue().pollFirst();
+                pendingJobs--;
+                // Round-robin: the owner goes to the back of its class
+                owners.remove(entry.getKey());
+                if (!entry.getValue().isEmpty()) {
+                    owners.put(entry.getKey(), entry.getValue());
+                }
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void runScheduled(ScheduledJob job) {
+        CURRENT_JOB.set(job);
+        try {
+            job.task.run();
+        } catch (RuntimeException e) {
+            System.err.println("Bulk job " + job.request.operationId() + " failed: " + e.getMessage());
+        } finally {
+            CURRENT_JOB.remove();
+            synchronized (jobs) {
+                jobs.remove(job.request.operationId());
+                runningJobs--;
+                runningPerOwner.merge(job.request.owner(), -1, Integer::sum);
+                runningPerType.merge(job.request.operationType(), -1, Integer::sum);
+                dispatch();
+            }
+            publishQueue();
+        }
+    }
+
+    private void publishQueue() {
+        // Snapshots are taken and delivered in the same order, so the listener never sees an older queue last
+        synchronized (queuePublication) {
+            try {
+                queueListener.accept(queuedOperationIds());
+            } catch (RuntimeException e) {
+                System.err.println("Could not publish bulk job queue: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Number of partitions a new job is split into.
+     */
+    public int defaultPartitionCount() {
+        return partitionsPerJob;
+    }
+
+    /**
+     * Reads {@code reader} to the end on the calling thread and processes its records in partitioned chunks on the
+     * worker pool. Blocks until every chunk that was read has been processed, even if reading fails.
+     *
+     * @param partitionKey   records with equal keys go to the same partition and are processed in feed order
+     * @param partitionCount number of partitions; a resumed job must use the same count as its first run
+     * @param resumeAfter    per partition, the last row index that was already committed by an earlier run (or -1);
+     *                       those records are read but skipped
+     * @param chunkWriter    processes one chunk and is told its partition; called concurrently for different partitions
+     * @param listener       receives every chunk result; called concurrently for different partitions
+     * @return the number of records read, including skipped ones
+     * @throws CancellationException if the job was cancelled; chunks handed out before have been processed
+     */
+    public long runPartitioned(BulkRecordReader reader, Function<BulkRecord, Object> partitionKey, int partitionCount,
+                               long[] resumeAfter, ChunkWriter chunkWriter, ChunkListener listener) throws InterruptedException {
+        if (partitionCount < 1 || resumeAfter.length != partitionCount) {
+            throw new IllegalArgumentException("Invalid partitioning: " + partitionCount + " partitions, " + resumeAfter.length + " checkpoints");
+        }
+        ScheduledJob job = CURRENT_JOB.get();
+        Phaser inFlight = new Phaser(1);
+        List<Partition> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new Partition(i, job, inFlight, chunkWriter, listener));
+        }
+
+        long read = 0;
+        try {
+            while (reader.hasNext()) {
+                if (job != null && job.cancelled) {
+                    throw new CancellationException("Bulk operation was cancelled.");
+                }
+                BulkRecord record = reader.next();
+                read++;
+                Object key = partitionKey.apply(record);
+                int hash = key != null ? key.hashCode() : Long.hashCode(record.rowIndex());
+                int partition = Math.floorMod(hash ^ (hash >>> 16), partitionCount);
+                if (record.rowIndex() > resumeAfter[partition]) {
+                    partitions.get(partition).add(record);
+                }
+            }
+        } finally {
+            try {
+                for (Partition partition : partitions) {
+                    partition.flush();
+                }
+            } finally {
+                // Wait for everything that was handed out, including after a read failure
+                int phase = inFlight.arriveAndDeregister();
+                if (!inFlight.isTerminated()) {
+                    inFlight.awaitAdvanceInterruptibly(phase);
+                }
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Processes one chunk of a partition.
+     */
+    @FunctionalInterface
+    public interface ChunkWriter {
+        BulkChunkResult write(int partition, List<BulkRecord> chunk);
+    }
+
+    /**
+     * Callback for processed chunks, told which partition the chunk belonged to.
+     */
+    @FunctionalInterface
+    public interface ChunkListener {
+        void onChunk(int partition, List<BulkRecord> chunk, BulkChunkResult result);
+    }
+
+    private final class Partition {
+
+        private final BlockingQueue<List<BulkRecord>> chunks = new ArrayBlockingQueue<>(partitionQueueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final int index;
+        private final ScheduledJob job;
+        private final Phaser inFlight;
+        private final ChunkWriter chunkWriter;
+        private final ChunkListener listener;
+        private List<BulkRecord> buffer = new ArrayList<>(chunkSize);
+
+        private Partition(int index, ScheduledJob job, Phaser inFlight, ChunkWriter chunkWriter, ChunkListener listener) {
+            this.index = index;
+            this.job = job;
+            this.inFlight = inFlight;
+            this.chunkWriter = chunkWriter;
+            this.listener = listener;
+        }
+
+        void add(BulkRecord record) throws InterruptedException {
+            buffer.add(record);
+            if (buffer.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() throws InterruptedException {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            inFlight.register();
+            try {
+                chunks.put(buffer); // Blocks while the partition is backed up
+            } catch (InterruptedException e) {
+                inFlight.arriveAndDeregister();
+                throw e;
+            }
+            buffer = new ArrayList<>(chunkSize);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!chunks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    BulkJobPriority priority = job != null ? job.priority : BulkJobPriority.NORMAL;
+                    workerExecutor.execute(new PrioritizedTask(priority, taskSequence.getAndIncrement(), this::drainOne));
+                } catch (RejectedExecutionException e) {
+                    // Worker pool is gone (forced shutdown); release waiters for the chunks that will never run
+                    scheduled.set(false);
+                    List<List<BulkRecord>> abandoned = new ArrayList<>();
+                    chunks.drainTo(abandoned);
+                    abandoned.forEach(chunk -> inFlight.arriveAndDeregister());
+                }
+            }
+        }
+
+        private void drainOne() {
+            List<BulkRecord> chunk = chunks.poll();
+            try {
+                if (chunk != null) {
+                    BulkChunkResult result;
+                    try {
+                        result = chunkWriter.write(index, chunk);
+                    } catch (RuntimeException e) {
+                        result = new BulkChunkResult(0, chunk.stream()
+                                .map(record -> new BulkRecordError(record.rowIndex(), record.sku(), null, e.getMessage()))
+                                .toList());
+                    }
+                    listener.onChunk(index, chunk, result);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Bulk chunk result could not be recorded: " + e.getMessage());
+            } finally {
+                if (chunk != null) {
+                    inFlight.arriveAndDeregister();
+                }
+                scheduled.set(false);
+                schedule();
+            }
+        }
+    }
+
+    private static final class ScheduledJob {
+
+        private final BulkJobRequest request;
+        private final Runnable task;
+        private volatile BulkJobPriority priority;
+        private volatile boolean cancelled;
+        private boolean running;
+
+        private ScheduledJob(BulkJobRequest request, Runnable task) {
+            this.request = request;
+            this.task = task;
+            this.priority = request.priority();
+        }
+    }
+
+    /**
+     * Worker task ordered by job priority, then by submission order.
+     */
+    private record PrioritizedTask(BulkJobPriority priority, long sequence, Runnable task)
+            implements Runnable, Comparable<PrioritizedTask> {
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Stops dispatching and lets running jobs finish for up to the configured timeout before interrupting them.
+     * Queued jobs stay {@code PENDING} and are picked up again on the next start.
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (jobs) {
+            shuttingDown = true;
+        }
+        jobExecutor.shutdown();
+        try {
+            if (!jobExecutor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                System.err.println("Bulk jobs did not finish within " + shutdownTimeoutSeconds + "s, interrupting them.");
+                jobExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            jobExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            workerExecutor.shutdown();
+            try {
+                if (!workerExecutor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                    workerExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                workerExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger(1);
+        return runnable -> new Thread(runnable, prefix + counter.getAndIncrement());
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.pim.service;
+
+import org.springframework.http.MediaType;
+
+public enum BulkInputFormat {
+    NDJSON("ndjson"),
+    CSV("csv");
+
+    private final String fileExtension;
+
+    BulkInputFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public static BulkInputFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if ("csv".equalsIgnoreCase(mediaType.getSubtype())) {
+                return CSV;
+            }
+            if ("x-ndjson".equalsIgnoreCase(mediaType.getSubtype()) || "ndjson".equalsIgnoreCase(mediaType.getSubtype())
+                    || "jsonl".equalsIgnoreCase(mediaType.getSubtype())) {
+                return NDJSON;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import content type: " + contentType + ". Use application/x-ndjson or text/csv.");
+    }
+}
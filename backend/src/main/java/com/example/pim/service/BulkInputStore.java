@@ -0,0 +1,85 @@
+package com.example.pim.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Spools uploaded bulk feeds to local disk so that they can be parsed incrementally by a background job
+ * after the request has completed.
+ */
+@Service
+public class BulkInputStore {
+
+    private final Path rootLocation;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public BulkInputStore(@Value("${pim.bulk.spool-dir:bulk-imports}") String spoolDir, ObjectMapper objectMapper) {
+        this.rootLocation = Paths.get(spoolDir);
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(rootLocation);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize bulk import storage", e);
+        }
+    }
+
+    public Path spool(InputStream input, BulkInputFormat format) throws IOException {
+        Path destination = rootLocation.resolve(UUID.randomUUID() + "." + format.getFileExtension());
+        try {
+            Files.copy(input, destination);
+        } catch (IOException e) {
+            Files.deleteIfExists(destination);
+            throw e;
+        }
+        return destination;
+    }
+
+    /**
+     * Spools records that arrived as a JSON array as NDJSON, so that every bulk job reads its input from disk and
+     * can be resumed the same way.
+     */
+    public Path spool(List<Map<String, Object>> records) throws IOException {
+        return spool(records.stream());
+    }
+
+    /**
+     * Spools records as NDJSON while they are produced, e.g. from a database cursor, without holding them all.
+     */
+    public Path spool(Stream<Map<String, Object>> records) throws IOException {
+        Path destination = rootLocation.resolve(UUID.randomUUID() + "." + BulkInputFormat.NDJSON.getFileExtension());
+        try (BufferedWriter writer = Files.newBufferedWriter(destination, StandardCharsets.UTF_8)) {
+            for (Iterator<Map<String, Object>> iterator = records.iterator(); iterator.hasNext(); ) {
+                writer.write(objectMapper.writeValueAsString(iterator.next()));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(destination);
+            throw e;
+        }
+        return destination;
+    }
+
+    public void delete(Path spooledFile) {
+        try {
+            Files.deleteIfExists(spooledFile);
+        } catch (IOException e) {
+            System.err.println("Could not delete spooled bulk import " + spooledFile + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.pim.service;
+
+/**
+ * Scheduling class of a bulk job. Higher classes are always dispatched first, and their chunks jump ahead of lower
+ * classes on the shared worker pool.
+ */
+public enum BulkJobPriority {
+    HIGH,
+    NORMAL,
+    LOW;
+
+    public static BulkJobPriority fromParameter(String priority) {
+        for (BulkJobPriority value : values()) {
+            if (value.name().equalsIgnoreCase(priority)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported priority: " + priority + ". Use high, normal or low.");
+    }
+}
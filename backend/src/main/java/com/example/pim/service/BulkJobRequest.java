@@ -0,0 +1,9 @@
+package com.example.pim.service;
+
+/**
+ * What the scheduler needs to know about a bulk job to order it against other jobs.
+ *
+ * @param owner user the job counts against for the per-user quota
+ */
+public record BulkJobRequest(Long operationId, String owner, String operationType, BulkJobPriority priority) {
+}
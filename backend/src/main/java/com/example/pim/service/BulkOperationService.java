@@ -1,161 +1,678 @@
 package com.example.pim.service;
 
 import com.example.pim.domain.BulkOperation;
-import com.example.pim.domain.Product;
+import com.example.pim.domain.BulkOperationCheckpoint;
+import com.example.pim.repository.BulkOperationCheckpointRepository;
 import com.example.pim.repository.BulkOperationRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.pim.repository.ProductFamilyRepository;
+import com.example.pim.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class BulkOperationService {
 
+    private static final List<String> ROLLBACK_ALLOWED = List.of("COMPLETED", "COMPLETED_WITH_ERRORS", "FAILED", "CANCELLED", "ROLLBACK_FAILED");
+
     private final BulkOperationRepository bulkOperationRepository;
+    private final BulkOperationCheckpointRepository bulkOperationCheckpointRepository;
     private final AuditLogService auditLogService;
-    private final ProductService productService; // To perform actual product updates
-    private final ExecutorService executorService = Executors.newFixedThreadPool(5); // TODO: Configure thread pool size
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
+    private final ProductBulkWriter productBulkWriter;
+    private final ProductBulkUpdater productBulkUpdater;
+    private final ProductBulkRollback productBulkRollback;
+    private final CompletenessRecomputer completenessRecomputer;
+    private final ProductRepository productRepository;
+    private final ProductFamilyRepository productFamilyRepository;
+    private final BulkChangeJournal bulkChangeJournal;
+    private final BulkInputStore bulkInputStore;
+    private final BulkExecutionEngine bulkExecutionEngine;
+    private final BulkProgressRegistry bulkProgressRegistry;
+    private final BulkErrorStore bulkErrorStore;
+    private final int errorSummaryLimit;
+    private final boolean recoveryEnabled;
+    private final int smallJobThreshold;
+    private final int recomputePartitions;
+    private final int maxJsonRecords;
+    private final TransactionTemplate queueTransactionTemplate;
+    private final TransactionTemplate chunkTransactionTemplate;
 
     @Autowired
-    public BulkOperationService(BulkOperationRepository bulkOperationRepository, AuditLogService auditLogService, ProductService productService) {
+    public BulkOperationService(PlatformTransactionManager transactionManager, BulkOperationRepository bulkOperationRepository, BulkOperationCheckpointRepository bulkOperationCheckpointRepository, AuditLogService auditLogService, ProductBulkWriter productBulkWriter, ProductBulkUpdater productBulkUpdater, ProductBulkRollback productBulkRollback, CompletenessRecomputer completenessRecomputer, ProductRepository productRepository, ProductFamilyRepository productFamilyRepository, BulkChangeJournal bulkChangeJournal, BulkInputStore bulkInputStore, BulkExecutionEngine bulkExecutionEngine, BulkProgressRegistry bulkProgressRegistry, BulkErrorStore bulkErrorStore, @Value("${pim.bulk.error-summary-limit:100}") int errorSummaryLimit, @Value("${pim.bulk.recovery.enabled:true}") boolean recoveryEnabled, @Value("${pim.bulk.scheduler.small-job-threshold:1000}") int smallJobThreshold, @Value("${pim.completeness.recompute-partitions:2}") int recomputePartitions, @Value("${pim.bulk.max-json-records:50000}") int maxJsonRecords) {
         this.bulkOperationRepository = bulkOperationRepository;
+        this.bulkOperationCheckpointRepository = bulkOperationCheckpointRepository;
         this.auditLogService = auditLogService;
-        this.productService = productService;
+        this.productBulkWriter = productBulkWriter;
+        this.productBulkUpdater = productBulkUpdater;
+        this.productBulkRollback = productBulkRollback;
+        this.completenessRecomputer = completenessRecomputer;
+        this.productRepository = productRepository;
+        this.productFamilyRepository = productFamilyRepository;
+        this.bulkChangeJournal = bulkChangeJournal;
+        this.bulkInputStore = bulkInputStore;
+        this.bulkExecutionEngine = bulkExecutionEngine;
+        this.bulkProgressRegistry = bulkProgressRegistry;
+        this.bulkErrorStore = bulkErrorStore;
+        this.errorSummaryLimit = errorSummaryLimit;
+        this.recoveryEnabled = recoveryEnabled;
+        this.smallJobThreshold = smallJobThreshold;
+        this.recomputePartitions = recomputePartitions;
+        this.maxJsonRecords = maxJsonRecords;
+        this.queueTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.queueTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkTransactionTemplate = new TransactionTemplate(transactionManager);
+        bulkExecutionEngine.onQueueChanged(this::persistQueuePositions);
     }
 
     @Transactional
-    public BulkOperation initiateBulkCreate(List<Map<String, Object>> productData, String initiatedBy) {
-        BulkOperation operation = new BulkOperation();
-        operation.setOperationType("PRODUCT_CREATE");
-        operation.setStatus("PENDING");
-        operation.setStartTime(LocalDateTime.now());
-        operation.setInitiatedBy(initiatedBy);
-        operation.setTotalRecords(productData.size());
-        operation.setProcessedRecords(0);
-        operation.setFailedRecords(0);
-        BulkOperation savedOperation = bulkOperationRepository.save(operation);
+    public BulkOperation initiateBulkCreate(List<Map<String, Object>> productData, BulkWriteMode mode, BulkJobPriority priority, String initiatedBy) throws IOException {
+        checkJsonSize(productData);
+        Path spooledInput = bulkInputStore.spool(productData);
+        return startJob("PRODUCT_CREATE", mode, priority, "BULK_CREATE_INITIATED", spooledInput, BulkInputFormat.NDJSON, productData.size(), initiatedBy);
+    }
 
-        auditLogService.log("BULK_CREATE_INITIATED", "BulkOperation", savedOperation.getId(), initiatedBy);
-        executorService.submit(() -> executeBulkCreate(savedOperation.getId(), productData));
-        return savedOperation;
+    /**
+     * Starts a bulk create from a feed that has already been spooled to disk. The feed is parsed incrementally while
+     * the job runs, so the total record count is only known once the whole file has been read.
+     */
+    @Transactional
+    public BulkOperation initiateBulkImport(Path spooledInput, BulkInputFormat format, BulkWriteMode mode, BulkJobPriority priority, String initiatedBy) {
+        return startJob("PRODUCT_CREATE", mode, priority, "BULK_IMPORT_INITIATED", spooledInput, format, 0, initiatedBy);
     }
 
+    @Transactional
+    public BulkOperation initiateBulkUpdate(List<Map<String, Object>> productUpdates, BulkJobPriority priority, String initiatedBy) throws IOException {
+        checkJsonSize(productUpdates);
+        Path spooledInput = bulkInputStore.spool(productUpdates);
+        return startJob("PRODUCT_UPDATE", null, priority, "BULK_UPDATE_INITIATED", spooledInput, BulkInputFormat.NDJSON, productUpdates.size(), initiatedBy);
+    }
 
+    /**
+     * Starts rescoring the completeness of every product in a family, e.g. after the family's attributes have changed.
+     * The job runs at {@code LOW} priority on at most {@code pim.completeness.recompute-partitions} workers, so that it
+     * does not crowd out imports, and is tracked, cancelled and resumed like any other bulk operation.
+     */
     @Transactional
-    public BulkOperation initiateBulkUpdate(List<Map<String, Object>> productUpdates, String initiatedBy) {
+    public BulkOperation initiateCompletenessRecompute(Long productFamilyId, String initiatedBy) throws IOException {
+        if (!productFamilyRepository.existsById(productFamilyId)) {
+            throw new IllegalArgumentException("Product family not found");
+        }
+        AtomicInteger total = new AtomicInteger();
+        Path spooledInput;
+        try (Stream<Long> productIds = productRepository.streamIdsByProductFamilyId(productFamilyId)) {
+            spooledInput = bulkInputStore.spool(productIds.map(id -> {
+                total.incrementAndGet();
+                return Map.<String, Object>of("id", id);
+            }));
+        }
+        return startJob("COMPLETENESS_RECOMPUTE", null, BulkJobPriority.LOW, "COMPLETENESS_RECOMPUTE_INITIATED", spooledInput, BulkInputFormat.NDJSON, total.get(), initiatedBy);
+    }
+
+    /**
+     * JSON bodies are held in memory as a whole before they are spooled; larger feeds go through the streamed import.
+     */
+    private void checkJsonSize(List<Map<String, Object>> records) {
+        if (records.size() > maxJsonRecords) {
+            throw new IllegalArgumentException("At most " + maxJsonRecords + " records can be sent as JSON. Use the streamed import for larger feeds.");
+        }
+    }
+
+    /**
+     * @param priority null to pick one by size: jobs of up to {@code pim.bulk.scheduler.small-job-threshold} records
+     *                 run as {@code HIGH}, larger ones and streamed imports of unknown size as {@code NORMAL}
+     */
+    private BulkOperation startJob(String operationType, BulkWriteMode mode, BulkJobPriority priority, String auditAction,
+                                   Path spooledInput, BulkInputFormat format, int declaredTotal, String initiatedBy) {
+        if (priority == null) {
+            priority = declaredTotal > 0 && declaredTotal <= smallJobThreshold ? BulkJobPriority.HIGH : BulkJobPriority.NORMAL;
+        }
         BulkOperation operation = new BulkOperation();
-        operation.setOperationType("PRODUCT_UPDATE");
+        operation.setOperationType(operationType);
         operation.setStatus("PENDING");
         operation.setStartTime(LocalDateTime.now());
         operation.setInitiatedBy(initiatedBy);
-        operation.setTotalRecords(productUpdates.size());
+        operation.setTotalRecords(declaredTotal);
         operation.setProcessedRecords(0);
         operation.setFailedRecords(0);
+        operation.setInputPath(spooledInput.toString());
+        operation.setInputFormat(format.name());
+        operation.setWriteMode(mode != null ? mode.name() : null);
+        operation.setPriority(priority.name());
         BulkOperation savedOperation = bulkOperationRepository.save(operation);
 
-        auditLogService.log("BULK_UPDATE_INITIATED", "BulkOperation", savedOperation.getId(), initiatedBy);
+        auditLogService.log(auditAction, "BulkOperation", savedOperation.getId(), initiatedBy);
+        try {
+            bulkExecutionEngine.submit(jobRequest(savedOperation), () -> runJob(savedOperation.getId()),
+                    () -> failOperation(savedOperation.getId(), "Bulk operation could not be queued."));
+        } catch (IllegalStateException e) {
+            bulkInputStore.delete(spooledInput);
+            throw e;
+        }
+        return savedOperation;
+    }
 
-        // Execute the bulk operation in a separate thread
-        executorService.submit(() -> executeBulkUpdate(savedOperation.getId(), productUpdates));
+    /**
+     * Re-queues operations that were still pending or running when the application last stopped. Each one continues
+     * from its checkpoints instead of starting over.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedOperations() {
+        if (!recoveryEnabled) {
+            return;
+        }
+        List<BulkOperation> interrupted = new ArrayList<>(bulkOperationRepository.findByStatusIn(List.of("PENDING", "IN_PROGRESS", "INTERRUPTED", "ROLLING_BACK")));
+        // Jobs that were running go first, then the queue in its last persisted order
+        interrupted.sort(Comparator.comparing(BulkOperation::getQueuePosition, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(BulkOperation::getId));
+        for (BulkOperation operation : interrupted) {
+            if ("ROLLING_BACK".equals(operation.getStatus())) {
+                // The journal still holds exactly the changes that have not been undone yet
+                try {
+                    bulkExecutionEngine.submit(rollbackRequest(operation), () -> runRollback(operation.getId(), "system"),
+                            () -> System.err.println("Could not re-queue rollback of bulk operation " + operation.getId() + "; it will be retried on the next start."));
+                    auditLogService.log("BULK_ROLLBACK_RESUMED", "BulkOperation", operation.getId(), "system");
+                } catch (IllegalStateException e) {
+                    System.err.println("Could not re-queue rollback of bulk operation " + operation.getId() + "; it will be retried on the next start.");
+                }
+                continue;
+            }
+            if (operation.getInputPath() == null || !Files.exists(Paths.get(operation.getInputPath()))) {
+                failOperation(operation.getId(), "Bulk operation was interrupted and its input is no longer available.");
+                continue;
+            }
+            try {
+                bulkExecutionEngine.submit(jobRequest(operation), () -> runJob(operation.getId()),
+                        () -> System.err.println("Could not re-queue bulk operation " + operation.getId() + "; it will be retried on the next start."));
+                auditLogService.log("BULK_OPERATION_RESUMED", "BulkOperation", operation.getId(), "system");
+            } catch (IllegalStateException e) {
+                System.err.println("Could not re-queue bulk operation " + operation.getId() + "; it will be retried on the next start.");
+            }
+        }
+    }
 
-        return savedOperation;
+    private static BulkJobRequest jobRequest(BulkOperation operation) {
+        BulkJobPriority priority = operation.getPriority() != null ? BulkJobPriority.valueOf(operation.getPriority()) : BulkJobPriority.NORMAL;
+        return new BulkJobRequest(operation.getId(), operation.getInitiatedBy(), operation.getOperationType(), priority);
+    }
+
+    private static BulkJobRequest rollbackRequest(BulkOperation operation) {
+        BulkJobPriority priority = operation.getPriority() != null ? BulkJobPriority.valueOf(operation.getPriority()) : BulkJobPriority.NORMAL;
+        return new BulkJobRequest(operation.getId(), operation.getInitiatedBy(), "PRODUCT_ROLLBACK", priority);
+    }
+
+    /**
+     * Stores each queued operation's place in the dispatch order, so that users can see where their job stands and
+     * a restart re-queues jobs in the same order.
+     */
+    private void persistQueuePositions(List<Long> queuedOperationIds) {
+        try {
+            // Also called from afterCommit callbacks, where joining the finished transaction would never commit
+            queueTransactionTemplate.executeWithoutResult(status -> {
+                if (queuedOperationIds.isEmpty()) {
+                    bulkOperationRepository.clearQueuePositions();
+                    return;
+                }
+                bulkOperationRepository.clearQueuePositionsExcept(queuedOperationIds);
+                for (int i = 0; i < queuedOperationIds.size(); i++) {
+                    bulkOperationRepository.updateQueuePosition(queuedOperationIds.get(i), i + 1);
+                }
+            });
+        } catch (DataAccessException e) {
+            System.err.println("Could not persist bulk queue positions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cancels a queued or running operation. Rows a running job has already committed are kept.
+     *
+     * @return the operation, or empty if it does not exist
+     */
+    public Optional<BulkOperation> cancelBulkOperation(Long id, String cancelledBy) {
+        Optional<BulkOperation> found = bulkOperationRepository.findById(id);
+        if (found.isEmpty()) {
+            return found;
+        }
+        BulkOperation operation = found.get();
+        if ("ROLLING_BACK".equals(operation.getStatus())) {
+            throw new IllegalArgumentException("The rollback of bulk operation " + id + " cannot be cancelled.");
+        }
+        if (isFinished(operation)) {
+            throw new IllegalArgumentException("Bulk operation " + id + " has already finished with status " + operation.getStatus() + ".");
+        }
+        auditLogService.log("BULK_OPERATION_CANCEL_REQUESTED", "BulkOperation", id, cancelledBy);
+        if (bulkExecutionEngine.cancel(id) == BulkExecutionEngine.CancelResult.STOPPING) {
+            return Optional.of(operation); // The job marks itself CANCELLED once its in-flight chunks are done
+        }
+        operation.setStatus("CANCELLED");
+        operation.setEndTime(LocalDateTime.now());
+        operation.setQueuePosition(null);
+        BulkOperation saved = bulkOperationRepository.save(operation);
+        discardJobState(saved);
+        return Optional.of(saved);
     }
 
-    private void executeBulkCreate(Long operationId, List<Map<String, Object>> productData) {
+    /**
+     * Moves a queued or running operation to another priority class.
+     */
+    public Optional<BulkOperation> reprioritizeBulkOperation(Long id, BulkJobPriority priority, String changedBy) {
+        Optional<BulkOperation> found = bulkOperationRepository.findById(id);
+        if (found.isEmpty()) {
+            return found;
+        }
+        BulkOperation operation = found.get();
+        if (isFinished(operation)) {
+            throw new IllegalArgumentException("Bulk operation " + id + " has already finished with status " + operation.getStatus() + ".");
+        }
+        // A running job saves its own row; only touch the priority column so that its counters are not overwritten
+        bulkOperationRepository.updatePriority(id, priority.name());
+        bulkExecutionEngine.reprioritize(id, priority);
+        auditLogService.log("BULK_OPERATION_REPRIORITIZED", "BulkOperation", id, changedBy);
+        operation.setPriority(priority.name());
+        return Optional.of(operation);
+    }
+
+    /**
+     * Operations waiting to be dispatched, in dispatch order.
+     */
+    public List<BulkOperation> getQueuedBulkOperations() {
+        List<Long> ids = bulkExecutionEngine.queuedOperationIds();
+        Map<Long, BulkOperation> byId = new HashMap<>();
+        bulkOperationRepository.findAllById(ids).forEach(operation -> byId.put(operation.getId(), operation));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    private static boolean isFinished(BulkOperation operation) {
+        return !List.of("PENDING", "IN_PROGRESS", "INTERRUPTED").contains(operation.getStatus());
+    }
+
+    private void runJob(Long operationId) {
         BulkOperation operation = bulkOperationRepository.findById(operationId).orElse(null);
         if (operation == null) return;
 
-        operation.setStatus("IN_PROGRESS");
-        bulkOperationRepository.save(operation);
+        Function<BulkRecord, Object> partitionKey;
+        Function<List<BulkRecord>, BulkChunkResult> chunkWriter;
+        String completedAction;
+        int maxPartitions = Integer.MAX_VALUE;
+        switch (operation.getOperationType()) {
+            case "PRODUCT_CREATE" -> {
+                // Records are partitioned by SKU so that no two workers ever write the same SKU concurrently
+                BulkWriteMode mode = operation.getWriteMode() != null ? BulkWriteMode.valueOf(operation.getWriteMode()) : BulkWriteMode.CREATE;
+                partitionKey = BulkRecord::sku;
+                chunkWriter = records -> productBulkWriter.writeChunk(operationId, records, mode);
+                completedAction = "BULK_CREATE_COMPLETED";
+            }
+            case "PRODUCT_UPDATE" -> {
+                // Rows for the same product stay in one partition and are applied in feed order; a product addressed
+                // once by id and once by SKU may still race, which the version check reports as a conflict
+                partitionKey = record -> record.data() != null && record.data().get("id") != null ? record.data().get("id").toString() : record.sku();
+                chunkWriter = records -> productBulkUpdater.updateChunk(operationId, records);
+                completedAction = "BULK_UPDATE_COMPLETED";
+            }
+            case "COMPLETENESS_RECOMPUTE" -> {
+                partitionKey = record -> record.data() != null ? record.data().get("id") : null;
+                chunkWriter = completenessRecomputer::recomputeChunk;
+                completedAction = "COMPLETENESS_RECOMPUTE_COMPLETED";
+                // Fewer partitions means fewer of this job's chunks in flight at once, which throttles it
+                maxPartitions = recomputePartitions > 0 ? recomputePartitions : maxPartitions;
+            }
+            default -> {
+                failOperation(operationId, "Unsupported bulk operation type: " + operation.getOperationType());
+                return;
+            }
+        }
 
+        if (operation.getPartitionCount() == null) {
+            operation.setPartitionCount(Math.min(bulkExecutionEngine.defaultPartitionCount(), maxPartitions));
+        }
+        List<BulkOperationCheckpoint> checkpoints = loadCheckpoints(operation);
+        boolean resumed = checkpoints.stream().anyMatch(checkpoint -> checkpoint.getLastRowIndex() >= 0);
+        long[] resumeAfter = new long[operation.getPartitionCount()];
         int processed = 0;
         int failed = 0;
-        StringBuilder errorDetails = new StringBuilder();
+        for (BulkOperationCheckpoint checkpoint : checkpoints) {
+            resumeAfter[checkpoint.getPartitionIndex()] = checkpoint.getLastRowIndex();
+            processed += checkpoint.getProcessedRecords();
+            failed += checkpoint.getFailedRecords();
+        }
+        operation.setProcessedRecords(processed);
+        operation.setFailedRecords(failed);
+        operation.setStatus("IN_PROGRESS");
+        operation.setQueuePosition(null);
+        BulkOperation runningOperation = bulkOperationRepository.save(operation);
 
-        for (Map<String, Object> data : productData) {
-            try {
-                Product product = objectMapper.convertValue(data, Product.class);
-                productService.createProduct(product); // This is transactional
-                processed++;
-            } catch (Exception e) {
-                failed++;
-                errorDetails.append("Record failed: ").append(data).append(" - Error: ").append(e.getMessage()).append("\n");
-            }
-            operation.setProcessedRecords(processed);
-            operation.setFailedRecords(failed);
-            bulkOperationRepository.save(operation); // Save progress
+        BulkProgress progress;
+        try {
+            progress = new BulkProgress(runningOperation, resumed);
+        } catch (IOException e) {
+            failOperation(operationId, "Could not open error report: " + e.getMessage());
+            return;
         }
+        String jobFailure = null;
+        boolean cancelled = false;
+        Path input = Paths.get(runningOperation.getInputPath());
+        try (BulkRecordReader reader = BulkRecordReader.open(Files.newInputStream(input), BulkInputFormat.valueOf(runningOperation.getInputFormat()))) {
+            long read = bulkExecutionEngine.runPartitioned(reader, partitionKey, runningOperation.getPartitionCount(), resumeAfter,
+                    (partition, chunk) -> writeAndCheckpoint(operationId, partition, chunk, chunkWriter), progress::record);
+            progress.finishReading(read);
+        } catch (IOException e) {
+            jobFailure = "Could not read spooled input: " + e.getMessage();
+        } catch (UncheckedIOException e) {
+            // A truncated or unreadable feed fails the job; rows committed so far are kept
+            jobFailure = "Input could not be read: " + e.getCause().getMessage();
+        } catch (InterruptedException e) {
+            // Shutdown: keep input and checkpoints so that the next start picks the job up again
+            Thread.currentThread().interrupt();
+            progress.suspend();
+            return;
+        } catch (CancellationException e) {
+            cancelled = true;
+            jobFailure = e.getMessage();
+        } catch (RuntimeException e) {
+            jobFailure = "Bulk operation failed: " + e.getMessage();
+        }
+        progress.complete(jobFailure, cancelled);
+        discardJobState(runningOperation);
+        auditLogService.log(cancelled ? "BULK_OPERATION_CANCELLED" : completedAction, "BulkOperation", runningOperation.getId(), runningOperation.getInitiatedBy());
+    }
 
-        operation.setEndTime(LocalDateTime.now());
-        if (failed == 0) {
-            operation.setStatus("COMPLETED");
-        } else if (processed == 0) {
-            operation.setStatus("FAILED");
-            operation.setErrorDetails(errorDetails.toString());
-        } else {
-            operation.setStatus("COMPLETED_WITH_ERRORS");
-            operation.setErrorDetails(errorDetails.toString());
+    /**
+     * Writes a chunk and moves its partition's checkpoint past it in one transaction, so a resumed job neither replays
+     * a committed chunk nor skips one that was rolled back. The writers' own transactions join this one.
+     */
+    private BulkChunkResult writeAndCheckpoint(Long operationId, int partition, List<BulkRecord> chunk, Function<List<BulkRecord>, BulkChunkResult> chunkWriter) {
+        long lastRowIndex = chunk.get(chunk.size() - 1).rowIndex();
+        try {
+            return chunkTransactionTemplate.execute(status -> {
+                BulkChunkResult result = chunkWriter.apply(chunk);
+                bulkOperationCheckpointRepository.advance(operationId, partition, lastRowIndex, result.succeeded(), result.failed());
+                return result;
+            });
+        } catch (RuntimeException e) {
+            // Nothing of the chunk was committed; its rows are reported as failed, so a resumed job must not retry them
+            List<BulkRecordError> errors = chunk.stream().map(record -> new BulkRecordError(record.rowIndex(), record.sku(), null, e.getMessage())).toList();
+            bulkOperationCheckpointRepository.advance(operationId, partition, lastRowIndex, 0, errors.size());
+            return new BulkChunkResult(0, errors);
         }
-        bulkOperationRepository.save(operation);
-        auditLogService.log("BULK_CREATE_COMPLETED", "BulkOperation", operation.getId(), operation.getInitiatedBy());
     }
 
+    /**
+     * Queues the rollback of a finished operation from its change journal: products it created are deleted and
+     * products it updated get their previous state back, except where someone else has changed them since.
+     *
+     * @return the operation, or empty if it does not exist
+     */
+    @Transactional
+    public Optional<BulkOperation> rollbackBulkOperation(Long id, String requestedBy) {
+        Optional<BulkOperation> found = bulkOperationRepository.findById(id);
+        if (found.isEmpty()) {
+            return found;
+        }
+        BulkOperation operation = found.get();
+        if (!ROLLBACK_ALLOWED.contains(operation.getStatus())) {
+            throw new IllegalArgumentException("Bulk operation " + id + " cannot be rolled back while its status is " + operation.getStatus() + ".");
+        }
+        if (!bulkChangeJournal.hasEntries(id)) {
+            throw new IllegalArgumentException("Bulk operation " + id + " has no changes to roll back, or its change journal has expired.");
+        }
+        if (bulkExecutionEngine.isActive(id)) {
+            // The job has stored its final status but not left the engine yet, which would reject the rollback
+            throw new IllegalArgumentException("Bulk operation " + id + " is still finishing. Please retry in a moment.");
+        }
+        operation.setStatus("ROLLING_BACK");
+        BulkOperation savedOperation = bulkOperationRepository.save(operation);
+        auditLogService.log("BULK_ROLLBACK_INITIATED", "BulkOperation", id, requestedBy);
+        bulkExecutionEngine.submit(rollbackRequest(savedOperation), () -> runRollback(id, requestedBy),
+                () -> failRollback(id, "Rollback could not be queued."));
+        return Optional.of(savedOperation);
+    }
 
-    private void executeBulkUpdate(Long operationId, List<Map<String, Object>> productUpdates) {
+    private void runRollback(Long operationId, String requestedBy) {
         BulkOperation operation = bulkOperationRepository.findById(operationId).orElse(null);
-        if (operation == null) return; // Should not happen
+        if (operation == null) return;
 
-        operation.setStatus("IN_PROGRESS");
+        // A resumed or retried rollback continues the counters and report of the earlier attempt
+        StringBuilder details = new StringBuilder(operation.getRollbackDetails() != null ? operation.getRollbackDetails() : "");
+        int rolledBack = operation.getRolledBackRecords();
+        int conflicts = operation.getRollbackConflicts();
+        int reportedConflicts = Math.min(conflicts, errorSummaryLimit);
+        Set<Long> conflicted = new HashSet<>();
+        try {
+            ProductBulkRollback.BatchResult batch;
+            while ((batch = productBulkRollback.rollbackBatch(operationId, conflicted, requestedBy)) != null) {
+                for (ProductBulkRollback.Conflict conflict : batch.conflicts()) {
+                    if (reportedConflicts < errorSummaryLimit) {
+                        reportedConflicts++;
+                        details.append("Product ").append(conflict.productId()).append(": ").append(conflict.message()).append("\n");
+                    }
+                }
+                rolledBack += batch.deleted() + batch.restored();
+                conflicts += batch.conflicts().size();
+                // Written after the batch has committed; a crash in between only undercounts the report
+                bulkOperationRepository.advanceRollback(operationId, batch.deleted() + batch.restored(), batch.conflicts().size(),
+                        details.isEmpty() ? null : details.toString());
+                if (Thread.currentThread().isInterrupted()) {
+                    // Shutdown: the status stays ROLLING_BACK and the rest of the journal is replayed on the next start
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            failRollback(operationId, "Rollback failed: " + e.getMessage());
+            return;
+        }
+
+        if (conflicts > reportedConflicts) {
+            details.append("... ").append(conflicts - reportedConflicts).append(" more conflicts\n");
+        }
+        details.append("Rolled back ").append(rolledBack).append(" products");
+        if (conflicts > 0) {
+            details.append("; ").append(conflicts).append(" products were left unchanged because of conflicts");
+        }
+        details.append(".\n");
+        operation.setStatus(conflicts == 0 ? "ROLLED_BACK" : "ROLLED_BACK_WITH_CONFLICTS");
+        operation.setRolledBackRecords(rolledBack);
+        operation.setRollbackConflicts(conflicts);
+        operation.setRollbackDetails(details.toString());
         bulkOperationRepository.save(operation);
+        auditLogService.log("BULK_ROLLBACK_COMPLETED", "BulkOperation", operationId, requestedBy);
+    }
 
-        int processed = 0;
-        int failed = 0;
-        StringBuilder errorDetails = new StringBuilder();
+    private void failRollback(Long operationId, String reason) {
+        // Also the rejection callback of submit, which runs after commit, where a joined transaction would never commit
+        queueTransactionTemplate.executeWithoutResult(status -> bulkOperationRepository.findById(operationId).ifPresent(operation -> {
+            operation.setStatus("ROLLBACK_FAILED");
+            operation.setRollbackDetails((operation.getRollbackDetails() != null ? operation.getRollbackDetails() : "") + reason + "\n");
+            bulkOperationRepository.save(operation);
+        }));
+    }
+
+    private List<BulkOperationCheckpoint> loadCheckpoints(BulkOperation operation) {
+        List<BulkOperationCheckpoint> checkpoints = bulkOperationCheckpointRepository.findByBulkOperationIdOrderByPartitionIndex(operation.getId());
+        if (!checkpoints.isEmpty()) {
+            return checkpoints;
+        }
+        List<BulkOperationCheckpoint> created = new ArrayList<>();
+        for (int i = 0; i < operation.getPartitionCount(); i++) {
+            BulkOperationCheckpoint checkpoint = new BulkOperationCheckpoint();
+            checkpoint.setBulkOperationId(operation.getId());
+            checkpoint.setPartitionIndex(i);
+            created.add(checkpoint);
+        }
+        return bulkOperationCheckpointRepository.saveAll(created);
+    }
+
+    private void discardJobState(BulkOperation operation) {
+        if (operation.getInputPath() != null) {
+            bulkInputStore.delete(Paths.get(operation.getInputPath()));
+        }
+        bulkOperationCheckpointRepository.deleteByBulkOperationId(operation.getId());
+    }
+
+    /**
+     * Collects chunk results reported concurrently by partition workers. Counters live in the progress registry and
+     * reach the database in batches; every failed row goes to the job's error file, and only the first
+     * {@code pim.bulk.error-summary-limit} of them are kept in {@code errorDetails}.
+     */
+    private final class BulkProgress {
+
+        private final BulkOperation operation;
+        private final BulkProgressRegistry.JobProgress counters;
+        private final BulkErrorStore.Sink errorSink;
+        private final StringBuilder errorDetails = new StringBuilder();
+        private int summarizedErrors;
+
+        private BulkProgress(BulkOperation operation, boolean resumed) throws IOException {
+            this.operation = operation;
+            this.errorSink = bulkErrorStore.open(operation.getId(), resumed);
+            if (resumed && operation.getErrorDetails() != null) {
+                errorDetails.append(operation.getErrorDetails());
+                summarizedErrors = (int) operation.getErrorDetails().lines().count();
+            }
+            this.counters = bulkProgressRegistry.start(operation);
+        }
+
+        void record(int partition, List<BulkRecord> chunk, BulkChunkResult result) {
+            if (!result.errors().isEmpty()) {
+                errorSink.write(result.errors());
+                synchronized (errorDetails) {
+                    for (BulkRecordError error : result.errors()) {
+                        if (summarizedErrors >= errorSummaryLimit) {
+                            break;
+                        }
+                        summarizedErrors++;
+                        errorDetails.append("Record failed: row ").append(error.rowIndex()).append(" (SKU ").append(error.sku()).append(")");
+                        if (error.field() != null) {
+                            errorDetails.append(" field '").append(error.field()).append("'");
+                        }
+                        errorDetails.append(" - Error: ").append(error.message()).append("\n");
+                    }
+                }
+            }
+            counters.recordChunk(result.succeeded(), result.failed());
+        }
+
+        void finishReading(long totalRead) {
+            counters.finishReading(totalRead);
+        }
 
-        for (Map<String, Object> update : productUpdates) {
+        /**
+         * Records where a job stopped because of a shutdown. Status {@code INTERRUPTED} marks it for recovery.
+         */
+        void suspend() {
+            errorSink.close();
+            synchronized (errorDetails) {
+                operation.setTotalRecords((int) counters.totalRecords());
+                operation.setProcessedRecords((int) counters.processedRecords());
+                operation.setFailedRecords((int) counters.failedRecords());
+                operation.setStatus("INTERRUPTED");
+                operation.setErrorDetails(errorDetails.isEmpty() ? null : errorDetails.toString());
+            }
             try {
-                Long productId = ((Number) update.get("id")).longValue(); // Assuming ID is present for update
-                String newName = (String) update.get("name"); // Example update field
-                // TODO: Implement actual product update logic using productService
-                // For now, just simulate success
-                processed++;
-            } catch (Exception e) {
-                failed++;
-                errorDetails.append("Record failed: ").append(update).append(" - Error: ").append(e.getMessage()).append("\n");
+                bulkOperationRepository.save(operation);
+            } finally {
+                bulkProgressRegistry.finish(operation);
             }
-            operation.setProcessedRecords(processed);
-            operation.setFailedRecords(failed);
-            bulkOperationRepository.save(operation);
         }
 
-        operation.setEndTime(LocalDateTime.now());
-        if (failed == 0) {
-            operation.setStatus("COMPLETED");
-        } else if (processed == 0) {
-            operation.setStatus("FAILED");
-            operation.setErrorDetails(errorDetails.toString());
-        } else {
-            operation.setStatus("COMPLETED_WITH_ERRORS"); // Partial failure
-            operation.setErrorDetails(errorDetails.toString());
+        /**
+         * Finishes a job. A cancelled job keeps the rows it has already committed.
+         */
+        void complete(String jobFailure, boolean cancelled) {
+            errorSink.close();
+            synchronized (errorDetails) {
+                if (counters.failedRecords() > summarizedErrors) {
+                    errorDetails.append("... ").append(counters.failedRecords() - summarizedErrors)
+                            .append(" more failed records, see /api/bulk-operations/").append(operation.getId()).append("/errors\n");
+                }
+                operation.setTotalRecords((int) counters.totalRecords());
+                operation.setProcessedRecords((int) counters.processedRecords());
+                operation.setFailedRecords((int) counters.failedRecords());
+                operation.setEndTime(LocalDateTime.now());
+                if (cancelled) {
+                    errorDetails.append(jobFailure).append("\n");
+                    operation.setStatus("CANCELLED");
+                    operation.setErrorDetails(errorDetails.toString());
+                } else if (jobFailure != null) {
+                    errorDetails.append(jobFailure).append("\n");
+                    operation.setStatus("FAILED");
+                    operation.setErrorDetails(errorDetails.toString());
+                } else if (counters.failedRecords() == 0) {
+                    operation.setStatus("COMPLETED");
+                } else if (counters.processedRecords() == 0) {
+                    operation.setStatus("FAILED");
+                    operation.setErrorDetails(errorDetails.toString());
+                } else {
+                    operation.setStatus("COMPLETED_WITH_ERRORS");
+                    operation.setErrorDetails(errorDetails.toString());
+                }
+            }
+            try {
+                bulkOperationRepository.save(operation);
+            } finally {
+                bulkProgressRegistry.finish(operation);
+            }
         }
-        bulkOperationRepository.save(operation);
-        auditLogService.log("BULK_UPDATE_COMPLETED", "BulkOperation", operation.getId(), operation.getInitiatedBy());
+    }
+
+    private void failOperation(Long operationId, String reason) {
+        // Also the rejection callback of submit, which runs after commit, where a joined transaction would never commit
+        queueTransactionTemplate.executeWithoutResult(status -> bulkOperationRepository.findById(operationId).ifPresent(operation -> {
+            operation.setStatus("FAILED");
+            operation.setEndTime(LocalDateTime.now());
+            operation.setErrorDetails(reason);
+            bulkOperationRepository.save(operation);
+            discardJobState(operation);
+        }));
     }
 
     public Optional<BulkOperation> getBulkOperationStatus(Long id) {
         return bulkOperationRepository.findById(id);
     }
 
-    // TODO: Implement rollback logic
-    // TODO: Implement bulk operation size limits
-    // TODO: Implement user permissions validation
+    public Optional<BulkErrorPage> getBulkOperationErrors(Long id, int page, int size) throws IOException {
+        if (page < 0 || size < 1 || size > 1000) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and 1000.");
+        }
+        Optional<BulkOperation> operation = bulkOperationRepository.findById(id);
+        if (operation.isEmpty()) {
+            return Optional.empty();
+        }
+        List<BulkRecordError> errors = bulkErrorStore.readPage(id, page, size);
+        return Optional.of(new BulkErrorPage(id, page, size, operation.get().getFailedRecords(), errors));
+    }
+
+    public Optional<Path> getBulkOperationErrorFile(Long id) {
+        return bulkOperationRepository.existsById(id) ? bulkErrorStore.find(id) : Optional.empty();
+    }
+
+    public Optional<SseEmitter> subscribeToProgress(Long id) {
+        return bulkProgressRegistry.subscribe(id);
+    }
 }
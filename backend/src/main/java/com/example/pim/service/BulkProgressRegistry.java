@@ -0,0 +1,218 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.BulkOperation;
+import com.example.pim.repository.BulkOperationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of running bulk operations. Workers bump in-memory counters per chunk; the counters are written to
+ * the {@code BulkOperation} row only every {@code pim.bulk.progress.flush-rows} records or
+ * {@code pim.bulk.progress.flush-interval-ms}, whichever comes first, and pushed to SSE subscribers every
+ * {@code pim.bulk.progress.push-interval-ms}. The row remains the source of truth once a job has finished.
+ */
+@Service
+public class BulkProgressRegistry {
+
+    private static final String PROGRESS_EVENT = "progress";
+
+    private final ConcurrentMap<Long, JobProgress> running = new ConcurrentHashMap<>();
+    private final BulkOperationRepository bulkOperationRepository;
+    private final int flushRows;
+    private final long flushIntervalMillis;
+    private final long emitterTimeoutMillis;
+
+    @Autowired
+    public BulkProgressRegistry(BulkOperationRepository bulkOperationRepository,
+                                @Value("${pim.bulk.progress.flush-rows:5000}") int flushRows,
+                                @Value("${pim.bulk.progress.flush-interval-ms:2000}") long flushIntervalMillis,
+                                @Value("${pim.bulk.progress.emitter-timeout-ms:1800000}") long emitterTimeoutMillis) {
+        this.bulkOperationRepository = bulkOperationRepository;
+        this.flushRows = flushRows;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+    }
+
+    /**
+     * Starts tracking a job that has just been marked {@code IN_PROGRESS}. A resumed job continues from the counters
+     * already on {@code operation}.
+     */
+    public JobProgress start(BulkOperation operation) {
+        JobProgress progress = new JobProgress(operation.getId(), operation.getTotalRecords(),
+                operation.getProcessedRecords(), operation.getFailedRecords());
+        running.put(operation.getId(), progress);
+        return progress;
+    }
+
+    /**
+     * Stops tracking a job, sends its final state to subscribers and closes their streams. The caller has already
+     * saved {@code operation} with its final counters and status.
+     */
+    public void finish(BulkOperation operation) {
+        JobProgress progress = running.remove(operation.getId());
+        if (progress == null) {
+            return;
+        }
+        BulkProgressSnapshot last = snapshotOf(operation);
+        for (SseEmitter emitter : progress.subscribers) {
+            send(progress, emitter, last);
+            emitter.complete();
+        }
+        progress.subscribers.clear();
+    }
+
+    /**
+     * Opens a progress stream for an operation. A finished operation gets its final state and the stream is closed
+     * right away. Returns empty if the operation does not exist.
+     */
+    public Optional<SseEmitter> subscribe(Long operationId) {
+        JobProgress progress = running.get(operationId);
+        if (progress != null) {
+            SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+            emitter.onCompletion(() -> progress.subscribers.remove(emitter));
+            emitter.onTimeout(() -> progress.subscribers.remove(emitter));
+            emitter.onError(error -> progress.subscribers.remove(emitter));
+            progress.subscribers.add(emitter);
+            send(progress, emitter, progress.snapshot());
+            if (running.containsKey(operationId)) {
+                return Optional.of(emitter);
+            }
+            // Finished while subscribing; finish() may have missed this emitter, so fall through and close it
+            progress.subscribers.remove(emitter);
+        }
+        return bulkOperationRepository.findById(operationId).map(operation -> {
+            SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+            try {
+                emitter.send(SseEmitter.event().name(PROGRESS_EVENT).data(snapshotOf(operation)));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+            return emitter;
+        });
+    }
+
+    /**
+     * Pushes changed counters to subscribers and writes counters that are due to the database, so that progress
+     * stays visible while a single slow chunk is in flight.
+     */
+    @Scheduled(fixedDelayString = "${pim.bulk.progress.push-interval-ms:1000}")
+    public void pushProgress() {
+        for (JobProgress progress : running.values()) {
+            flushIfDue(progress);
+            long version = progress.changes.get();
+            if (version != progress.pushedChanges && !progress.subscribers.isEmpty()) {
+                progress.pushedChanges = version;
+                BulkProgressSnapshot snapshot = progress.snapshot();
+                for (SseEmitter emitter : progress.subscribers) {
+                    send(progress, emitter, snapshot);
+                }
+            }
+        }
+    }
+
+    private void flushIfDue(JobProgress progress) {
+        synchronized (progress) {
+            long records = progress.read.get();
+            boolean rowsDue = records - progress.flushedRecords >= flushRows;
+            boolean timeDue = records != progress.flushedRecords && System.currentTimeMillis() - progress.flushedAt >= flushIntervalMillis;
+            if (!rowsDue && !timeDue) {
+                return;
+            }
+            try {
+                bulkOperationRepository.updateProgress(progress.operationId, (int) progress.totalRecords(),
+                        (int) progress.processed.get(), (int) progress.failed.get());
+                progress.flushedRecords = records;
+                progress.flushedAt = System.currentTimeMillis();
+            } catch (DataAccessException e) {
+                // Counters stay in memory and are retried on the next flush; the final state is saved on completion
+                System.err.println("Failed to flush progress of bulk operation " + progress.operationId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void send(JobProgress progress, SseEmitter emitter, BulkProgressSnapshot snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(PROGRESS_EVENT).data(snapshot));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the emitter's own callbacks take care of the rest
+            progress.subscribers.remove(emitter);
+        }
+    }
+
+    private static BulkProgressSnapshot snapshotOf(BulkOperation operation) {
+        return new BulkProgressSnapshot(operation.getId(), operation.getStatus(), operation.getTotalRecords(),
+                operation.getProcessedRecords(), operation.getFailedRecords());
+    }
+
+    /**
+     * Counters of one running job. Safe to update from several partition workers at once.
+     */
+    public final class JobProgress {
+
+        private final Long operationId;
+        private final long declaredTotal;
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong changes = new AtomicLong();
+        private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+        private volatile long finalTotal = -1;
+        private long pushedChanges;
+        private long flushedRecords;
+        private long flushedAt = System.currentTimeMillis();
+
+        private JobProgress(Long operationId, long declaredTotal, long processedRecords, long failedRecords) {
+            this.operationId = operationId;
+            this.declaredTotal = declaredTotal;
+            this.processed.set(processedRecords);
+            this.failed.set(failedRecords);
+            this.read.set(processedRecords + failedRecords);
+            this.flushedRecords = processedRecords + failedRecords;
+        }
+
+        public void recordChunk(int succeeded, int failedRecords) {
+            processed.addAndGet(succeeded);
+            failed.addAndGet(failedRecords);
+            read.addAndGet(succeeded + failedRecords);
+            changes.incrementAndGet();
+            flushIfDue(this);
+        }
+
+        /**
+         * Fixes the total once the whole feed has been read; until then streamed feeds report what they have seen.
+         */
+        public void finishReading(long totalRead) {
+            finalTotal = totalRead;
+            changes.incrementAndGet();
+        }
+
+        public long totalRecords() {
+            return finalTotal >= 0 ? finalTotal : Math.max(declaredTotal, read.get());
+        }
+
+        public long processedRecords() {
+            return processed.get();
+        }
+
+        public long failedRecords() {
+            return failed.get();
+        }
+
+        BulkProgressSnapshot snapshot() {
+            return new BulkProgressSnapshot(operationId, "IN_PROGRESS", totalRecords(), processed.get(), failed.get());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.pim.service;
+
+/**
+ * Point-in-time progress of a bulk operation as pushed to progress subscribers.
+ */
+public record BulkProgressSnapshot(Long operationId, String status, long totalRecords, long processedRecords, long failedRecords) {
+}
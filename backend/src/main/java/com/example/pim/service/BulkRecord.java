@@ -0,0 +1,23 @@
+package com.example.pim.service;
+
+import java.util.Map;
+
+/**
+ * A single raw record of a bulk feed together with its zero-based position in that feed.
+ * Records that could not be parsed carry a {@code parseError} instead of data.
+ */
+public record BulkRecord(long rowIndex, Map<String, Object> data, String parseError) {
+
+    public BulkRecord(long rowIndex, Map<String, Object> data) {
+        this(rowIndex, data, null);
+    }
+
+    public static BulkRecord malformed(long rowIndex, String parseError) {
+        return new BulkRecord(rowIndex, null, parseError);
+    }
+
+    public String sku() {
+        Object sku = data != null ? data.get("sku") : null;
+        return sku != null ? sku.toString() : null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.pim.service;
+
+/**
+ * A failed bulk record. {@code field} is null when the failure is not tied to a single field.
+ */
+public record BulkRecordError(long rowIndex, String sku, String field, String message) {
+}
@@ -0,0 +1,43 @@
+package com.example.pim.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental source of bulk records. Implementations read one record at a time so that a feed never has to be
+ * held in memory as a whole. I/O failures surface as {@link java.io.UncheckedIOException}.
+ */
+public interface BulkRecordReader extends Iterator<BulkRecord>, Closeable {
+
+    static BulkRecordReader open(InputStream input, BulkInputFormat format) {
+        return switch (format) {
+            case NDJSON -> new NdjsonBulkRecordReader(input);
+            case CSV -> new CsvBulkRecordReader(input);
+        };
+    }
+
+    static BulkRecordReader of(List<Map<String, Object>> records) {
+        Iterator<Map<String, Object>> iterator = records.iterator();
+        return new BulkRecordReader() {
+            private long rowIndex;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public BulkRecord next() {
+                return new BulkRecord(rowIndex++, iterator.next());
+            }
+
+            @Override
+            public void close() throws IOException {
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductAttributeValue;
+import com.example.pim.domain.ProductFamily;
+import com.example.pim.repository.AttributeRepository;
+import com.example.pim.repository.ProductFamilyRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Product families and attributes referenced by one bulk chunk, loaded with one query per kind instead of one
+ * lookup per record. Must be used inside the chunk's transaction so that family attributes can be initialized.
+ */
+class BulkReferenceData {
+
+    private final Map<Long, ProductFamily> families;
+    private final Map<Long, Attribute> attributesById;
+    private final Map<String, Attribute> attributesByCode;
+    private final AttributeValidationService attributeValidationService;
+
+    private BulkReferenceData(Map<Long, ProductFamily> families, Map<Long, Attribute> attributesById, Map<String, Attribute> attributesByCode,
+                              AttributeValidationService attributeValidationService) {
+        this.families = families;
+        this.attributesById = attributesById;
+        this.attributesByCode = attributesByCode;
+        this.attributeValidationService = attributeValidationService;
+    }
+
+    static BulkReferenceData load(Set<Long> familyIds, Set<Long> attributeIds, Set<String> attributeCodes, ProductFamilyRepository productFamilyRepository,
+                                  AttributeRepository attributeRepository, AttributeValidationService attributeValidationService) {
+        Map<Long, ProductFamily> families = familyIds.isEmpty() ? Map.of() : productFamilyRepository.findAllById(familyIds).stream()
+                .collect(Collectors.toMap(ProductFamily::getId, family -> family));
+        Map<Long, Attribute> attributesById = attributeIds.isEmpty() ? new HashMap<>() : attributeRepository.findAllById(attributeIds).stream()
+                .collect(Collectors.toMap(Attribute::getId, attribute -> attribute));
+        Map<String, Attribute> attributesByCode = attributeCodes.isEmpty() ? Map.of() : attributeRepository.findByCodeIn(attributeCodes).stream()
+                .collect(Collectors.toMap(Attribute::getCode, attribute -> attribute));
+        // Keep one instance per attribute so that family and value attributes compare equal
+        attributesByCode.values().forEach(attribute -> attributesById.putIfAbsent(attribute.getId(), attribute));
+        return new BulkReferenceData(families, attributesById, attributesByCode, attributeValidationService);
+    }
+
+    ProductFamily family(Long id) {
+        return id != null ? families.get(id) : null;
+    }
+
+    /**
+     * Resolves an attribute reference from a feed, which may carry either an id or (e.g. CSV columns) a code.
+     */
+    Attribute resolveAttribute(Attribute reference) {
+        if (reference == null) {
+            return null;
+        }
+        return reference.getId() != null ? attributesById.get(reference.getId()) : attributesByCode.get(reference.getCode());
+    }
+
+    Attribute attribute(Long id) {
+        return attributesById.get(id);
+    }
+
+    /**
+     * Returns null if {@code value} is acceptable for {@code attribute}, otherwise the validation message.
+     */
+    String validateValue(Attribute attribute, String value) {
+        return attributeValidationService.validate(attribute, value);
+    }
+
+    static Set<Long> referencedFamilyIds(Collection<Product> products) {
+        Set<Long> ids = new HashSet<>();
+        for (Product product : products) {
+            if (product.getProductFamily() != null && product.getProductFamily().getId() != null) {
+                ids.add(product.getProductFamily().getId());
+            }
+        }
+        return ids;
+    }
+
+    static void collectAttributeReferences(Collection<ProductAttributeValue> values, Set<Long> ids, Set<String> codes) {
+        for (ProductAttributeValue value : values) {
+            Attribute attribute = value.getAttribute();
+            if (attribute == null) {
+                continue;
+            }
+            if (attribute.getId() != null) {
+                ids.add(attribute.getId());
+            } else if (attribute.getCode() != null) {
+                codes.add(attribute.getCode());
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.pim.service;
+
+/**
+ * How a bulk create treats records whose SKU already exists.
+ */
+public enum BulkWriteMode {
+    /** Existing SKUs fail the record. */
+    CREATE,
+    /** Existing SKUs are updated with the fields present in the record. */
+    UPSERT;
+
+    public static BulkWriteMode fromParameter(String mode) {
+        if (mode == null || mode.isBlank()) {
+            return CREATE;
+        }
+        for (BulkWriteMode value : values()) {
+            if (value.name().equalsIgnoreCase(mode)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported bulk write mode: " + mode + ". Use create or upsert.");
+    }
+}
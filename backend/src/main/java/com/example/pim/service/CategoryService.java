@@ -15,16 +15,23 @@ public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
     private final AuditLogService auditLogService;
+    private final ReferenceDataCache referenceDataCache;
     private static final int MAX_CATEGORY_DEPTH = 5;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository, AuditLogService auditLogService) {
+    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository, AuditLogService auditLogService, ReferenceDataCache referenceDataCache) {
         this.categoryRepository = categoryRepository;
         this.productRepository = productRepository;
         this.auditLogService = auditLogService;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public Category createCategory(Category category) {
+        // Depth and sibling checks need the stored parent, not whatever the request sent along with its id
+        if (category.getParent() != null) {
+            category.setParent(Optional.ofNullable(category.getParent().getId()).flatMap(referenceDataCache::category)
+                    .orElseThrow(() -> new IllegalArgumentException("Parent category not found")));
+        }
         // Validate duplicate category names per level
         if (category.getParent() != null && categoryRepository.existsByParentAndName(category.getParent(), category.getName())) {
             throw new IllegalArgumentException("Category with name '" + category.getName() + "' already exists under this parent.");
@@ -45,6 +52,7 @@ public class CategoryService {
         }
 
         Category createdCategory = categoryRepository.save(category);
+        referenceDataCache.invalidateCategories();
         auditLogService.log("CREATE", "Category", createdCategory.getId(), "system"); // TODO: Replace "system" with actual username
         return createdCategory;
     }
@@ -71,6 +79,7 @@ public class CategoryService {
         }
 
         categoryRepository.delete(category);
+        referenceDataCache.invalidateCategories();
         auditLogService.log("DELETE", "Category", id, "system"); // TODO: Replace "system" with actual username
     }
 }
@@ -21,13 +21,16 @@ public class ChannelService {
     private final AuditLogService auditLogService;
     private final ExportTemplateRepository exportTemplateRepository;
     private final BulkOperationRepository bulkOperationRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     @Autowired
-    public ChannelService(ChannelRepository channelRepository, AuditLogService auditLogService, ExportTemplateRepository exportTemplateRepository, BulkOperationRepository bulkOperationRepository) {
+    public ChannelService(ChannelRepository channelRepository, AuditLogService auditLogService, ExportTemplateRepository exportTemplateRepository, BulkOperationRepository bulkOperationRepository,
+                          ReferenceDataCache referenceDataCache) {
         this.channelRepository = channelRepository;
         this.auditLogService = auditLogService;
         this.exportTemplateRepository = exportTemplateRepository;
         this.bulkOperationRepository = bulkOperationRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public Channel createChannel(Channel channel) {
@@ -35,12 +38,13 @@ public class ChannelService {
             throw new IllegalArgumentException("Channel with code '" + channel.getCode() + "' already exists.");
         }
         Channel createdChannel = channelRepository.save(channel);
+        referenceDataCache.invalidateChannel(createdChannel.getId());
         auditLogService.log("CREATE", "Channel", createdChannel.getId(), "system");
         return createdChannel;
     }
 
     public Optional<Channel> getChannelById(Long id) {
-        return channelRepository.findById(id);
+        return referenceDataCache.channel(id);
     }
 
     public List<Channel> getAllChannels() {
@@ -53,6 +57,7 @@ public class ChannelService {
                 .orElseThrow(() -> new IllegalArgumentException("Channel not found"));
         channel.setActive(isActive);
         Channel updatedChannel = channelRepository.save(channel);
+        referenceDataCache.invalidateChannel(updatedChannel.getId());
         auditLogService.log(isActive ? "ACTIVATE_CHANNEL" : "DEACTIVATE_CHANNEL", "Channel", updatedChannel.getId(), "system");
         return updatedChannel;
     }
@@ -82,6 +87,7 @@ public class ChannelService {
         }
 
         channelRepository.delete(channel);
+        referenceDataCache.invalidateChannel(channelId);
         auditLogService.log("DELETE", "Channel", channelId, "system");
     }
 }
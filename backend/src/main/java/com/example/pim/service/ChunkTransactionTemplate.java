@@ -0,0 +1,62 @@
+package com.example.pim.service;
+
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.function.Supplier;
+
+/**
+ * Runs a unit of bulk work in its own transaction, or, inside a bulk job's chunk transaction, behind a savepoint of
+ * that transaction: if the work throws, only its own statements are rolled back and the enclosing transaction can go
+ * on, e.g. to replay the chunk row by row. The JPA transaction manager does not offer savepoints, so they are set on
+ * the JDBC connection it exposes for {@code JdbcTemplate}; the work must therefore write through JDBC only.
+ */
+final class ChunkTransactionTemplate {
+
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+
+    ChunkTransactionTemplate(PlatformTransactionManager transactionManager, DataSource dataSource) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dataSource = dataSource;
+    }
+
+    <T> T execute(Supplier<T> work) {
+        ConnectionHolder connectionHolder = TransactionSynchronizationManager.isActualTransactionActive()
+                ? (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource) : null;
+        if (connectionHolder == null) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+
+        Savepoint savepoint;
+        try {
+            savepoint = connectionHolder.createSavepoint();
+        } catch (SQLException e) {
+            throw new CannotCreateTransactionException("Could not create savepoint", e);
+        }
+        T result;
+        try {
+            result = work.get();
+        } catch (RuntimeException | Error e) {
+            try {
+                connectionHolder.getConnection().rollback(savepoint);
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        }
+        try {
+            connectionHolder.getConnection().releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            throw new TransactionSystemException("Could not release savepoint", e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.pim.service;
+
+import com.example.pim.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+
+/**
+ * Starts a completeness recompute for a product family once a change to its attributes has committed.
+ */
+@Service
+public class CompletenessRecomputeListener {
+
+    private final BulkOperationService bulkOperationService;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CompletenessRecomputeListener(BulkOperationService bulkOperationService, ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.bulkOperationService = bulkOperationService;
+        this.productRepository = productRepository;
+        // Runs after the publishing transaction has committed, where joining that transaction would never commit
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductFamilyAttributesChanged(ProductFamilyAttributesChangedEvent event) {
+        Long productFamilyId = event.productFamilyId();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!productRepository.existsByProductFamilyId(productFamilyId)) {
+                    return;
+                }
+                try {
+                    bulkOperationService.initiateCompletenessRecompute(productFamilyId, "system");
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not spool product ids: " + e.getMessage(), e);
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Could not start completeness recompute for product family " + productFamilyId + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductAttributeValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rescores the completeness of products whose family rules have changed, one chunk of product ids at a time. Products
+ * are read with one {@code IN} query per chunk and scored by {@link CompletenessScoreService} against the cached family;
+ * only scores that actually change are written, guarded by the {@code @Version} column. A product that was modified
+ * concurrently is read and scored once more, since the other writer may not have rescored it.
+ */
+@Service
+public class CompletenessRecomputer {
+
+    private static final String SELECT_PRODUCTS = "SELECT id, version, sku, name, description, status, completeness_score, product_family_id FROM product WHERE id IN (:ids)";
+    private static final String SELECT_ATTRIBUTE_VALUES = "SELECT product_id, attribute_id, attribute_value FROM product_attribute_value WHERE product_id IN (:productIds)";
+    private static final String UPDATE_SCORE = "UPDATE product SET version = version + 1, completeness_score = ? WHERE id = ? AND version = ?";
+    private static final int ATTEMPTS = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CompletenessScoreService completenessScoreService;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public CompletenessRecomputer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, CompletenessScoreService completenessScoreService,
+                                  ReferenceDataCache referenceDataCache, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.completenessScoreService = completenessScoreService;
+        this.referenceDataCache = referenceDataCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Rescores the products whose ids are given in the records' {@code id} field. Products that no longer exist count
+     * as processed, since there is nothing left to rescore.
+     */
+    public BulkChunkResult recomputeChunk(List<BulkRecord> records) {
+        List<BulkRecordError> errors = new ArrayList<>();
+        Map<Long, BulkRecord> recordsById = new LinkedHashMap<>();
+        for (BulkRecord record : records) {
+            Object id = record.data() != null ? record.data().get("id") : null;
+            if (record.parseError() != null || !(id instanceof Number number)) {
+                errors.add(new BulkRecordError(record.rowIndex(), null, "id", record.parseError() != null ? record.parseError() : "Product id is missing"));
+                continue;
+            }
+            recordsById.put(number.longValue(), record);
+        }
+
+        Set<Long> pending = recordsById.keySet();
+        Map<Long, String> conflicts = Map.of();
+        for (int attempt = 0; attempt < ATTEMPTS && !pending.isEmpty(); attempt++) {
+            Set<Long> ids = pending;
+            conflicts = transactionTemplate.execute(status -> rescore(ids));
+            pending = conflicts.keySet();
+        }
+        conflicts.forEach((id, sku) -> errors.add(new BulkRecordError(recordsById.get(id).rowIndex(), sku, "version",
+                "Product kept being modified by other users; its completeness was not recomputed")));
+        return new BulkChunkResult(recordsById.size() - conflicts.size(), errors);
+    }
+
+    /**
+     * Rescores the given products in the caller's transaction, e.g. after their attribute values were written.
+     *
+     * @return SKU by id of the products that kept being modified concurrently and were not rescored
+     */
+    public Map<Long, String> rescoreProducts(Collection<Long> productIds) {
+        Set<Long> pending = new HashSet<>(productIds);
+        Map<Long, String> conflicts = Map.of();
+        for (int attempt = 0; attempt < ATTEMPTS && !pending.isEmpty(); attempt++) {
+            Set<Long> ids = pending;
+            conflicts = transactionTemplate.execute(status -> rescore(ids));
+            pending = conflicts.keySet();
+        }
+        return conflicts;
+    }
+
+    /**
+     * @return SKU by id of the products whose version check failed
+     */
+    private Map<Long, String> rescore(Set<Long> ids) {
+        Map<Long, Product> products = loadProducts(ids);
+        List<Product> loaded = new ArrayList<>(products.values());
+        int[] scores = completenessScoreService.scoreAll(loaded);
+        List<Product> changed = new ArrayList<>();
+        for (int i = 0; i < loaded.size(); i++) {
+            if (scores[i] != loaded.get(i).getCompletenessScore()) {
+                loaded.get(i).setCompletenessScore(scores[i]);
+                changed.add(loaded.get(i));
+            }
+        }
+        if (changed.isEmpty()) {
+            return Map.of();
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SCORE, changed, changed.size(), (ps, product) -> {
+            ps.setInt(1, product.getCompletenessScore());
+            ps.setLong(2, product.getId());
+            ps.setLong(3, product.getVersion());
+        })[0];
+        Map<Long, String> conflicts = new HashMap<>();
+        List<Long> written = new ArrayList<>();
+        for (int i = 0; i < changed.size(); i++) {
+            // Drivers may report SUCCESS_NO_INFO for batched statements; only an explicit 0 is a lost version check
+            if (counts[i] == 0) {
+                conflicts.put(changed.get(i).getId(), changed.get(i).getSku());
+            } else if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                written.add(changed.get(i).getId());
+            }
+        }
+        if (!written.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(written));
+        }
+        return conflicts;
+    }
+
+    private Map<Long, Product> loadProducts(Set<Long> ids) {
+        Map<Long, Product> products = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_PRODUCTS, Map.of("ids", ids), rs -> {
+            Product product = new Product();
+            product.setId(rs.getLong("id"));
+            product.setVersion(rs.getLong("version"));
+            product.setSku(rs.getString("sku"));
+            product.setName(rs.getString("name"));
+            product.setDescription(rs.getString("description"));
+            product.setStatus(rs.getString("status"));
+            product.setCompletenessScore(rs.getInt("completeness_score"));
+            product.setAttributeValues(new ArrayList<>());
+            long familyId = rs.getLong("product_family_id");
+            if (!rs.wasNull()) {
+                product.setProductFamily(referenceDataCache.productFamily(familyId).orElse(null));
+            }
+            products.put(product.getId(), product);
+        });
+        if (!products.isEmpty()) {
+            namedParameterJdbcTemplate.query(SELECT_ATTRIBUTE_VALUES, Map.of("productIds", products.keySet()), rs -> {
+                Product product = products.get(rs.getLong("product_id"));
+                Attribute attribute = referenceDataCache.attribute(rs.getLong("attribute_id")).orElse(null);
+                if (attribute == null) {
+                    return;
+                }
+                ProductAttributeValue pav = new ProductAttributeValue();
+                pav.setProduct(product);
+                pav.setAttribute(attribute);
+                pav.setValue(rs.getString("attribute_value"));
+                product.getAttributeValues().add(pav);
+            });
+        }
+        return products;
+    }
+}
@@ -1,74 +1,72 @@
 package com.example.pim.service;
 
-import com.example.pim.domain.Attribute;
 import com.example.pim.domain.Product;
-import com.example.pim.domain.ProductAttributeValue;
 import com.example.pim.domain.ProductFamily;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
 
+/**
+ * Scores how complete a product is: its sku, name, description and status, plus every attribute its family requires
+ * that has a non-empty value. See {@link CompletenessScoringPlan}.
+ */
 @Service
 public class CompletenessScoreService {
 
+    // Below this many products, splitting the work across threads costs more than it saves
+    static final int PARALLEL_THRESHOLD = 4096;
+
     public int calculateCompletenessScore(Product product) {
         try {
-            int score = 0;
-            int totalFields = 4; // sku, name, description, status
-            int completedFields = 0;
-
-            if (product.getSku() != null && !product.getSku().isEmpty()) {
-                completedFields++;
-            }
-            if (product.getName() != null && !product.getName().isEmpty()) {
-                completedFields++;
-            }
-            if (product.getDescription() != null && !product.getDescription().isEmpty()) {
-                completedFields++;
-            }
-            if (product.getStatus() != null && !product.getStatus().isEmpty()) {
-                completedFields++;
-            }
-
-            // Consider attributes from ProductFamily for completeness score
-            if (product.getProductFamily() != null) {
-                ProductFamily productFamily = product.getProductFamily();
-                Set<Attribute> requiredAttributes = productFamily.getAttributes();
-                totalFields += requiredAttributes.size();
-
-                if (product.getAttributeValues() != null) {
-                    List<ProductAttributeValue> providedAttributeValues = product.getAttributeValues();
-                    Set<Attribute> providedAttributes = providedAttributeValues.stream()
-                            .map(ProductAttributeValue::getAttribute)
-                            .collect(Collectors.toSet());
-
-                    for (Attribute requiredAttribute : requiredAttributes) {
-                        if (providedAttributes.contains(requiredAttribute)) {
-                            // Further check if the value is not empty
-                            providedAttributeValues.stream()
-                                    .filter(pav -> pav.getAttribute().equals(requiredAttribute) && pav.getValue() != null && !pav.getValue().isEmpty())
-                                    .findFirst()
-                                    .ifPresent(pav -> completedFields++);
-                        }
-                    }
-                }
-            }
-
-            if (totalFields > 0) {
-                score = (int) (((double) completedFields / totalFields) * 100);
-            }
-
-            return score;
+            return CompletenessScoringPlan.of(product.getProductFamily()).score(product);
         } catch (Exception e) {
             System.err.println("Error calculating completeness score for product ID " + product.getId() + ": " + e.getMessage());
-            // Log the exception for debugging purposes
             // Return a default score (e.g., 0) to indicate failure without crashing
             return 0;
         }
     }
-}
-
 
+    /**
+     * Scores a batch of products, compiling each family's plan once per batch. Large batches are scored on several
+     * threads, so the products must be fully loaded: lazy associations must not need a persistence context.
+     *
+     * @return the scores, in the iteration order of {@code products}
+     */
+    public int[] scoreAll(Collection<Product> products) {
+        Product[] batch = products.toArray(new Product[0]);
+        // Keyed by instance: a family's Lombok hashCode would walk its attributes, and products of one batch share
+        // their family instances anyway
+        Map<ProductFamily, CompletenessScoringPlan> plans = new IdentityHashMap<>();
+        for (Product product : batch) {
+            ProductFamily productFamily = product.getProductFamily();
+            if (!plans.containsKey(productFamily)) {
+                try {
+                    plans.put(productFamily, CompletenessScoringPlan.of(productFamily));
+                } catch (RuntimeException e) {
+                    System.err.println("Error compiling completeness rules of product family " + productFamily.getId() + ": " + e.getMessage());
+                    plans.put(productFamily, null); // Its products score 0
+                }
+            }
+        }
 
+        int[] scores = new int[batch.length];
+        IntStream indexes = IntStream.range(0, batch.length);
+        if (batch.length >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> {
+            Product product = batch[i];
+            CompletenessScoringPlan plan = plans.get(product.getProductFamily());
+            try {
+                scores[i] = plan != null ? plan.score(product) : 0;
+            } catch (RuntimeException e) {
+                System.err.println("Error calculating completeness score for product ID " + product.getId() + ": " + e.getMessage());
+                scores[i] = 0;
+            }
+        });
+        return scores;
+    }
+}
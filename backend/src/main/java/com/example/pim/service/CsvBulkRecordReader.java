@@ -0,0 +1,164 @@
+package com.example.pim.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads RFC 4180 CSV with a header row. Known product columns ({@code sku}, {@code name}, {@code description},
+ * {@code status}, {@code workflowStatus}) are copied as is, {@code productFamily} holds a family id,
+ * {@code categories} holds {@code |}-separated category ids, and every other column is treated as the code of an
+ * attribute whose value is given in the cell. Empty cells are skipped.
+ */
+public class CsvBulkRecordReader implements BulkRecordReader {
+
+    private static final List<String> PRODUCT_COLUMNS = List.of("sku", "name", "description", "status", "workflowStatus");
+
+    private final BufferedReader reader;
+    private List<String> header;
+    private long rowIndex;
+    private List<String> nextRow;
+
+    public CsvBulkRecordReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            if (header == null) {
+                header = readRow();
+                if (header == null) {
+                    return false;
+                }
+                if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                    header.set(0, header.get(0).substring(1)); // Strip UTF-8 byte order mark
+                }
+            }
+            while (nextRow == null) {
+                List<String> row = readRow();
+                if (row == null) {
+                    return false;
+                }
+                if (!(row.size() == 1 && row.get(0).isEmpty())) {
+                    nextRow = row;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public BulkRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> row = nextRow;
+        nextRow = null;
+        long index = rowIndex++;
+        if (row.size() != header.size()) {
+            return BulkRecord.malformed(index, "Expected " + header.size() + " columns but found " + row.size());
+        }
+        return new BulkRecord(index, toRecord(row));
+    }
+
+    private Map<String, Object> toRecord(List<String> row) {
+        Map<String, Object> data = new HashMap<>();
+        List<Map<String, Object>> attributeValues = new ArrayList<>();
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim();
+            String cell = row.get(i);
+            if (cell.isEmpty() || column.isEmpty()) {
+                continue;
+            }
+            if (PRODUCT_COLUMNS.contains(column)) {
+                data.put(column, cell);
+            } else if ("productFamily".equals(column)) {
+                data.put("productFamily", Map.of("id", cell.trim()));
+            } else if ("categories".equals(column)) {
+                List<Map<String, Object>> categories = new ArrayList<>();
+                for (String categoryId : cell.split("\\|")) {
+                    if (!categoryId.isBlank()) {
+                        categories.add(Map.of("id", categoryId.trim()));
+                    }
+                }
+                data.put("categories", categories);
+            } else {
+                Map<String, Object> attributeValue = new LinkedHashMap<>();
+                attributeValue.put("attribute", Map.of("code", column));
+                attributeValue.put("value", cell);
+                attributeValues.add(attributeValue);
+            }
+        }
+        if (!attributeValues.isEmpty()) {
+            data.put("attributeValues", attributeValues);
+        }
+        return data;
+    }
+
+    /**
+     * Reads one logical CSV row, which may span several physical lines when a quoted field contains line breaks.
+     * Returns null at end of input.
+     */
+    private List<String> readRow() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field in CSV row " + rowIndex);
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.pim.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a faceted search: the products of the page, the total number of matches and, per facet, the number of
+ * products with each value (see {@link ProductFacetIndex#search}). {@code nextCursor} is null on the last page.
+ */
+public record FacetedProductPage(List<ProductView> items, String nextCursor, int total, Map<String, Map<String, Integer>> facets) {
+}
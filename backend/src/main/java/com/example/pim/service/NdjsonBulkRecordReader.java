@@ -0,0 +1,72 @@
+package com.example.pim.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads newline-delimited JSON, one object per line. Each line is parsed on its own so that a malformed line
+ * becomes a failed record instead of aborting the rest of the feed.
+ */
+public class NdjsonBulkRecordReader implements BulkRecordReader {
+
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {
+    };
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private long rowIndex;
+    private String nextLine;
+
+    public NdjsonBulkRecordReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextLine != null) {
+            return true;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    nextLine = line;
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public BulkRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = null;
+        long index = rowIndex++;
+        try {
+            return new BulkRecord(index, objectMapper.readValue(line, RECORD_TYPE));
+        } catch (JsonProcessingException e) {
+            return BulkRecord.malformed(index, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
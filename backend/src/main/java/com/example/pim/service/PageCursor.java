@@ -0,0 +1,66 @@
+package com.example.pim.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque continuation tokens for keyset pagination. A token carries the sort key of the last row of a page and the
+ * listing it belongs to, so it stays valid while rows are added or removed and cannot be replayed against another
+ * listing. Clients must treat tokens as opaque strings.
+ */
+final class PageCursor {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "|";
+
+    private final String listing;
+    private final List<String> keys;
+
+    private PageCursor(String listing, List<String> keys) {
+        this.listing = listing;
+        this.keys = keys;
+    }
+
+    static String encode(String listing, Object... keys) {
+        StringBuilder token = new StringBuilder(VERSION).append(SEPARATOR).append(listing);
+        for (Object key : keys) {
+            token.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    static PageCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor.");
+        }
+        String[] parts = decoded.split("\\" + SEPARATOR, -1);
+        if (parts.length < 2 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid page cursor.");
+        }
+        return new PageCursor(parts[1], Arrays.asList(parts).subList(2, parts.length));
+    }
+
+    String listing() {
+        return listing;
+    }
+
+    long longKey(int index) {
+        try {
+            return Long.parseLong(keys.get(index));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor.");
+        }
+    }
+
+    int keyCount() {
+        return keys.size();
+    }
+}
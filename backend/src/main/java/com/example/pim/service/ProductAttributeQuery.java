@@ -0,0 +1,176 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.repository.AttributeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Finds products by conditions on their attribute values using the typed value columns. The first condition is
+ * answered from the (attribute_id, typed value) index and every further one by joining the product's value for that
+ * attribute through the (product_id, attribute_id) key, so no value is loaded into Java to be compared.
+ */
+@Service
+public class ProductAttributeQuery {
+
+    static final int MAX_PREDICATES = 10;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final AttributeRepository attributeRepository;
+
+    @Autowired
+    public ProductAttributeQuery(JdbcTemplate jdbcTemplate, AttributeRepository attributeRepository) {
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.attributeRepository = attributeRepository;
+    }
+
+    /**
+     * Ids of the products meeting all predicates, in ascending order.
+     *
+     * @param afterId only ids above this one, for paging
+     * @throws IllegalArgumentException if a predicate names an unknown attribute, uses an operator that does not apply
+     *                                  to the attribute's type, or has values that do not fit it
+     */
+    public List<Long> findProductIds(List<AttributePredicate> predicates, long afterId, int limit) {
+        if (predicates == null || predicates.isEmpty() || predicates.size() > MAX_PREDICATES) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_PREDICATES + " attribute predicates are required.");
+        }
+        Set<String> codes = new HashSet<>();
+        for (AttributePredicate predicate : predicates) {
+            if (predicate == null || predicate.attribute() == null || predicate.operator() == null) {
+                throw new IllegalArgumentException("Every predicate needs an attribute and an operator.");
+            }
+            codes.add(predicate.attribute());
+        }
+        Map<String, Attribute> attributes = attributeRepository.findByCodeIn(codes).stream()
+                .collect(Collectors.toMap(Attribute::getCode, Function.identity()));
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder joins = new StringBuilder();
+        String firstCondition = null;
+        for (int i = 0; i < predicates.size(); i++) {
+            AttributePredicate predicate = predicates.get(i);
+            Attribute attribute = attributes.get(predicate.attribute());
+            if (attribute == null) {
+                throw new IllegalArgumentException("Attribute '" + predicate.attribute() + "' not found.");
+            }
+            String alias = "v" + i;
+            parameters.addValue(alias + "_attribute", attribute.getId());
+            String condition = alias + ".attribute_id = :" + alias + "_attribute AND " + condition(alias, attribute, predicate, parameters);
+            if (i == 0) {
+                firstCondition = condition;
+            } else {
+                joins.append(" JOIN product_attribute_value ").append(alias).append(" ON ").append(alias)
+                        .append(".product_id = v0.product_id AND ").append(condition);
+            }
+        }
+        parameters.addValue("afterId", afterId);
+        parameters.addValue("limit", limit);
+        String sql = "SELECT v0.product_id FROM product_attribute_value v0" + joins
+                + " WHERE " + firstCondition + " AND v0.product_id > :afterId ORDER BY v0.product_id LIMIT :limit";
+        return namedParameterJdbcTemplate.queryForList(sql, parameters, Long.class);
+    }
+
+    private static String condition(String alias, Attribute attribute, AttributePredicate predicate, MapSqlParameterSource parameters) {
+        List<String> values = predicate.values() != null ? predicate.values() : List.of();
+        int expected = switch (predicate.operator()) {
+            case BETWEEN -> 2;
+            case IN -> values.isEmpty() ? 1 : values.size();
+            default -> 1;
+        };
+        if (values.size() != expected || values.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException(predicate.operator() + " on '" + attribute.getCode() + "' takes "
+                    + (predicate.operator() == AttributePredicate.Operator.IN ? "at least one value." : expected + " value(s)."));
+        }
+        String parameter = ":" + alias + "_value";
+
+        if (TypedAttributeValue.NUMBER.equalsIgnoreCase(attribute.getType())) {
+            List<BigDecimal> numbers = values.stream().map(value -> {
+                BigDecimal number = TypedAttributeValue.parseNumber(value);
+                if (number == null) {
+                    throw new IllegalArgumentException("'" + value + "' is not a number (attribute '" + attribute.getCode() + "').");
+                }
+                return number;
+            }).toList();
+            String column = alias + ".numeric_value";
+            switch (predicate.operator()) {
+                case EQ -> {
+                    parameters.addValue(alias + "_value", numbers.get(0));
+                    return column + " = " + parameter;
+                }
+                case IN -> {
+                    parameters.addValue(alias + "_value", numbers);
+                    return column + " IN (" + parameter + ")";
+                }
+                case GT, GTE, LT, LTE -> {
+                    parameters.addValue(alias + "_value", numbers.get(0));
+                    return column + " " + comparison(predicate.operator()) + " " + parameter;
+                }
+                case BETWEEN -> {
+                    parameters.addValue(alias + "_from", numbers.get(0));
+                    parameters.addValue(alias + "_to", numbers.get(1));
+                    return column + " BETWEEN :" + alias + "_from AND :" + alias + "_to";
+                }
+                default -> throw unsupported(attribute, predicate);
+            }
+        }
+
+        if (TypedAttributeValue.BOOLEAN.equalsIgnoreCase(attribute.getType())) {
+            Boolean value = TypedAttributeValue.parseBoolean(values.get(0));
+            if (predicate.operator() != AttributePredicate.Operator.EQ) {
+                throw unsupported(attribute, predicate);
+            }
+            if (value == null) {
+                throw new IllegalArgumentException("'" + values.get(0) + "' is not yes or no (attribute '" + attribute.getCode() + "').");
+            }
+            parameters.addValue(alias + "_value", value);
+            return alias + ".boolean_value = " + parameter;
+        }
+
+        List<String> normalized = values.stream().map(TypedAttributeValue::normalize).toList();
+        String column = alias + ".normalized_value";
+        switch (predicate.operator()) {
+            case EQ -> {
+                parameters.addValue(alias + "_value", normalized.get(0));
+                return column + " = " + parameter;
+            }
+            case IN -> {
+                parameters.addValue(alias + "_value", normalized);
+                return column + " IN (" + parameter + ")";
+            }
+            case PREFIX -> {
+                // Escape LIKE wildcards so that the prefix is matched literally (and still uses the index)
+                parameters.addValue(alias + "_value", normalized.get(0).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+                return column + " LIKE " + parameter + " ESCAPE '\\'";
+            }
+            default -> throw unsupported(attribute, predicate);
+        }
+    }
+
+    private static String comparison(AttributePredicate.Operator operator) {
+        return switch (operator) {
+            case GT -> ">";
+            case GTE -> ">=";
+            case LT -> "<";
+            case LTE -> "<=";
+            default -> throw new IllegalStateException("Not a comparison: " + operator);
+        };
+    }
+
+    private static IllegalArgumentException unsupported(Attribute attribute, AttributePredicate predicate) {
+        String type = attribute.getType() != null ? attribute.getType() : "TEXT";
+        return new IllegalArgumentException(predicate.operator() + " does not apply to " + type + " attribute '" + attribute.getCode() + "'.");
+    }
+}
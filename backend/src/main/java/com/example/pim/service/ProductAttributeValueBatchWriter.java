@@ -0,0 +1,288 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.ProductAttributeValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Sets many attribute values, of one product or of many, with the same rules as
+ * {@link ProductAttributeValueService#saveProductAttributeValue}. Values are processed in chunks of whole products, each
+ * in its own transaction: one query checks the chunk's products, one reads their existing values of the requested
+ * attributes, attributes come from the {@link ReferenceDataCache}, and values are validated in memory by
+ * {@link AttributeValidationService}. New and changed values are written with JDBC batches, values that are already
+ * set as requested are left alone, and the completeness of the chunk's changed products is recomputed once, after all
+ * their values are written. If the same value is given more than once, the last one wins.
+ */
+@Service
+public class ProductAttributeValueBatchWriter {
+
+    private static final String SELECT_PRODUCT_IDS = "SELECT id FROM product WHERE id IN (:ids)";
+    private static final String SELECT_VALUES = "SELECT id, product_id, attribute_id, attribute_value FROM product_attribute_value "
+            + "WHERE product_id IN (:productIds) AND attribute_id IN (:attributeIds)";
+    private static final String INSERT_VALUE = "INSERT INTO product_attribute_value (product_id, attribute_id, attribute_value, numeric_value, boolean_value, normalized_value) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_VALUE = "UPDATE product_attribute_value SET attribute_value = ?, numeric_value = ?, boolean_value = ?, normalized_value = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReferenceDataCache referenceDataCache;
+    private final AttributeValidationService attributeValidationService;
+    private final CompletenessRecomputer completenessRecomputer;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxValues;
+
+    @Autowired
+    public ProductAttributeValueBatchWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ReferenceDataCache referenceDataCache,
+                                            AttributeValidationService attributeValidationService, CompletenessRecomputer completenessRecomputer,
+                                            AuditLogService auditLogService, ApplicationEventPublisher eventPublisher, @Value("${pim.bulk.chunk-size:500}") int batchSize,
+                                            @Value("${pim.products.max-attribute-value-batch-size:50000}") int maxValues) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.referenceDataCache = referenceDataCache;
+        this.attributeValidationService = attributeValidationService;
+        this.completenessRecomputer = completenessRecomputer;
+        this.auditLogService = auditLogService;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxValues = maxValues;
+    }
+
+    /**
+     * Sets attribute values of one product; the changes need not repeat the product id.
+     */
+    public AttributeValueChangeResult changeValues(Long productId, List<AttributeValueChange> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("At least one attribute value is required.");
+        }
+        List<AttributeValueChange> ofProduct = new ArrayList<>(changes.size());
+        for (AttributeValueChange change : changes) {
+            if (change == null) {
+                throw new IllegalArgumentException("Attribute values must not be null.");
+            }
+            if (change.productId() != null && !change.productId().equals(productId)) {
+                throw new IllegalArgumentException("Attribute value for product " + change.productId() + " cannot be set on product " + productId + ".");
+            }
+            ofProduct.add(new AttributeValueChange(productId, change.attributeId(), change.value()));
+        }
+        return changeValues(ofProduct);
+    }
+
+    public AttributeValueChangeResult changeValues(List<AttributeValueChange> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("At least one attribute value is required.");
+        }
+        // Attribute values by attribute id by product id, in request order
+        Map<Long, Map<Long, AttributeValueChange>> byProduct = new LinkedHashMap<>();
+        int requested = 0;
+        for (AttributeValueChange change : changes) {
+            if (change == null || change.productId() == null || change.attributeId() == null) {
+                throw new IllegalArgumentException("Every attribute value needs a product id and an attribute id.");
+            }
+            if (byProduct.computeIfAbsent(change.productId(), id -> new LinkedHashMap<>()).put(change.attributeId(), change) == null) {
+                requested++;
+            }
+        }
+        if (requested > maxValues) {
+            throw new IllegalArgumentException("At most " + maxValues + " attribute values can be set at once.");
+        }
+
+        int created = 0;
+        int updated = 0;
+        int unchanged = 0;
+        List<AttributeValueChangeResult.Failure> failures = new ArrayList<>();
+        for (Map<Long, Map<Long, AttributeValueChange>> chunk : chunks(byProduct)) {
+            ChunkResult result;
+            try {
+                result = transactionTemplate.execute(status -> changeChunk(chunk));
+            } catch (DataAccessException e) {
+                System.err.println("Error setting the attribute values of products " + chunk.keySet() + ": " + e.getMessage());
+                String message = "Could not be set: " + e.getMostSpecificCause().getMessage();
+                chunk.values().forEach(values -> values.values().forEach(change -> failures.add(failure(change, message))));
+                continue;
+            }
+            created += result.created;
+            updated += result.updated;
+            unchanged += result.unchanged;
+            failures.addAll(result.failures);
+        }
+        return new AttributeValueChangeResult(requested, created, updated, unchanged, failures);
+    }
+
+    /**
+     * Splits the values into chunks of about {@code batchSize} values, keeping each product's values together so that
+     * its completeness is recomputed once.
+     */
+    private List<Map<Long, Map<Long, AttributeValueChange>>> chunks(Map<Long, Map<Long, AttributeValueChange>> byProduct) {
+        List<Map<Long, Map<Long, AttributeValueChange>>> chunks = new ArrayList<>();
+        Map<Long, Map<Long, AttributeValueChange>> chunk = new LinkedHashMap<>();
+        int size = 0;
+        for (Map.Entry<Long, Map<Long, AttributeValueChange>> product : byProduct.entrySet()) {
+            if (size > 0 && size + product.getValue().size() > batchSize) {
+                chunks.add(chunk);
+                chunk = new LinkedHashMap<>();
+                size = 0;
+            }
+            chunk.put(product.getKey(), product.getValue());
+            size += product.getValue().size();
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private ChunkResult changeChunk(Map<Long, Map<Long, AttributeValueChange>> changes) {
+        ChunkResult result = new ChunkResult();
+        Set<Long> productIds = new HashSet<>(namedParameterJdbcTemplate.queryForList(SELECT_PRODUCT_IDS, Map.of("ids", changes.keySet()), Long.class));
+        Map<Long, Optional<Attribute>> attributes = new HashMap<>();
+        changes.values().forEach(values -> values.keySet().forEach(id -> attributes.computeIfAbsent(id, referenceDataCache::attribute)));
+        Map<Key, Existing> existing = existingValues(productIds, attributes.keySet());
+
+        // Changed values, with the id of the row to update (null for new values)
+        List<ProductAttributeValue> candidates = new ArrayList<>();
+        List<AttributeValueChange> candidateChanges = new ArrayList<>();
+        for (Map<Long, AttributeValueChange> values : changes.values()) {
+            for (AttributeValueChange change : values.values()) {
+                Optional<Attribute> attribute = attributes.get(change.attributeId());
+                if (!productIds.contains(change.productId())) {
+                    result.failures.add(failure(change, "Product not found"));
+                } else if (attribute.isEmpty()) {
+                    result.failures.add(failure(change, "Attribute not found"));
+                } else {
+                    Existing row = existing.get(new Key(change.productId(), change.attributeId()));
+                    if (row != null && Objects.equals(row.value, change.value())) {
+                        result.unchanged++;
+                        continue;
+                    }
+                    ProductAttributeValue value = new ProductAttributeValue();
+                    value.setId(row != null ? row.id : null);
+                    value.setAttribute(attribute.get());
+                    value.setValue(change.value());
+                    candidates.add(value);
+                    candidateChanges.add(change);
+                }
+            }
+        }
+
+        List<String> messages = attributeValidationService.validateAll(candidates);
+        List<AttributeValueChange> inserts = new ArrayList<>();
+        List<ProductAttributeValue> updates = new ArrayList<>();
+        List<AttributeValueChange> updateChanges = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (messages.get(i) != null) {
+                result.failures.add(failure(candidateChanges.get(i), messages.get(i)));
+            } else if (candidates.get(i).getId() == null) {
+                inserts.add(candidateChanges.get(i));
+            } else {
+                updates.add(candidates.get(i));
+                updateChanges.add(candidateChanges.get(i));
+            }
+        }
+
+        Set<Long> writtenProducts = new LinkedHashSet<>();
+        if (!updates.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_VALUE, updates, updates.size(), (ps, value) -> {
+                ps.setString(1, value.getValue());
+                TypedAttributeValue.of(value.getAttribute().getType(), value.getValue()).setParameters(ps, 2);
+                ps.setLong(5, value.getId());
+            })[0];
+            List<Long> updatedIds = new ArrayList<>();
+            for (int i = 0; i < updates.size(); i++) {
+                // Drivers may report SUCCESS_NO_INFO for batched statements; only an explicit 0 is a lost row
+                if (counts[i] == 0) {
+                    result.failures.add(failure(updateChanges.get(i), "Attribute value was removed by another user; it was not set"));
+                } else if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                    updatedIds.add(updates.get(i).getId());
+                    writtenProducts.add(updateChanges.get(i).productId());
+                }
+            }
+            auditLogService.logAll("UPDATE_ATTRIBUTE_VALUE", "ProductAttributeValue", updatedIds, "system");
+            result.updated = updatedIds.size();
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_VALUE, inserts, inserts.size(), (ps, change) -> {
+                ps.setLong(1, change.productId());
+                ps.setLong(2, change.attributeId());
+                ps.setString(3, change.value());
+                TypedAttributeValue.of(attributes.get(change.attributeId()).get().getType(), change.value()).setParameters(ps, 4);
+            });
+            // (product, attribute) is unique, so it identifies the new rows
+            Set<Long> insertedProducts = new HashSet<>();
+            Set<Long> insertedAttributes = new HashSet<>();
+            inserts.forEach(change -> {
+                insertedProducts.add(change.productId());
+                insertedAttributes.add(change.attributeId());
+            });
+            Map<Key, Existing> inserted = existingValues(insertedProducts, insertedAttributes);
+            List<Long> createdIds = new ArrayList<>(inserts.size());
+            for (AttributeValueChange change : inserts) {
+                createdIds.add(inserted.get(new Key(change.productId(), change.attributeId())).id);
+                writtenProducts.add(change.productId());
+            }
+            auditLogService.logAll("CREATE_ATTRIBUTE_VALUE", "ProductAttributeValue", createdIds, "system");
+            result.created = createdIds.size();
+        }
+
+        if (!writtenProducts.isEmpty()) {
+            Map<Long, String> notRescored = completenessRecomputer.rescoreProducts(writtenProducts);
+            if (!notRescored.isEmpty()) {
+                System.err.println("Completeness of products " + notRescored.values() + " was not recomputed; they kept being modified by other users.");
+            }
+            eventPublisher.publishEvent(new ProductChangedEvent(writtenProducts));
+        }
+        return result;
+    }
+
+    private Map<Key, Existing> existingValues(Collection<Long> productIds, Collection<Long> attributeIds) {
+        Map<Key, Existing> existing = new HashMap<>();
+        if (productIds.isEmpty() || attributeIds.isEmpty()) {
+            return existing;
+        }
+        namedParameterJdbcTemplate.query(SELECT_VALUES, Map.of("productIds", productIds, "attributeIds", attributeIds), rs -> {
+            existing.put(new Key(rs.getLong("product_id"), rs.getLong("attribute_id")), new Existing(rs.getLong("id"), rs.getString("attribute_value")));
+        });
+        return existing;
+    }
+
+    private static AttributeValueChangeResult.Failure failure(AttributeValueChange change, String message) {
+        return new AttributeValueChangeResult.Failure(change.productId(), change.attributeId(), message);
+    }
+
+    private record Key(long productId, long attributeId) {
+    }
+
+    private record Existing(long id, String value) {
+    }
+
+    private static final class ChunkResult {
+        int created;
+        int updated;
+        int unchanged;
+        final List<AttributeValueChangeResult.Failure> failures = new ArrayList<>();
+    }
+}
@@ -4,44 +4,57 @@ import com.example.pim.domain.Attribute;
 import com.example.pim.domain.Product;
 import com.example.pim.domain.ProductAttributeValue;
 import com.example.pim.domain.ProductFamily;
-import com.example.pim.repository.AttributeRepository;
 import com.example.pim.repository.ProductAttributeValueRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 @Service
 public class ProductAttributeValueService {
 
+    private static final String SELECT_VALUES_OF_ATTRIBUTE = "SELECT id, attribute_value FROM product_attribute_value WHERE attribute_id = ? AND id > ? ORDER BY id LIMIT ?";
+    // normalized_value is only null for values that have not been typed yet (or have no value at all)
+    private static final String SELECT_UNTYPED_VALUES = "SELECT v.id, v.attribute_value, a.type FROM product_attribute_value v JOIN attribute a ON a.id = v.attribute_id "
+            + "WHERE v.attribute_value IS NOT NULL AND v.normalized_value IS NULL AND v.id > ? ORDER BY v.id LIMIT ?";
+    private static final String UPDATE_TYPED_VALUE = "UPDATE product_attribute_value SET numeric_value = ?, boolean_value = ?, normalized_value = ? WHERE id = ?";
+
     private final ProductAttributeValueRepository productAttributeValueRepository;
-    private final AttributeRepository attributeRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final AttributeValidationService attributeValidationService;
     private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
 
     @Autowired
-    public ProductAttributeValueService(ProductAttributeValueRepository productAttributeValueRepository, AttributeRepository attributeRepository, AuditLogService auditLogService) {
+    public ProductAttributeValueService(ProductAttributeValueRepository productAttributeValueRepository, ReferenceDataCache referenceDataCache, AttributeValidationService attributeValidationService,
+                                        AuditLogService auditLogService, ApplicationEventPublisher eventPublisher, JdbcTemplate jdbcTemplate, @Value("${pim.bulk.chunk-size:500}") int batchSize) {
         this.productAttributeValueRepository = productAttributeValueRepository;
-        this.attributeRepository = attributeRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.attributeValidationService = attributeValidationService;
         this.auditLogService = auditLogService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
     }
 
     public ProductAttributeValue saveProductAttributeValue(Product product, Long attributeId, String value) {
-        Attribute attribute = attributeRepository.findById(attributeId)
+        Attribute attribute = referenceDataCache.attribute(attributeId)
                 .orElseThrow(() -> new IllegalArgumentException("Attribute not found"));
 
-        // Validate value against attribute's regex if present
-        if (attribute.getValidationRegex() != null && !attribute.getValidationRegex().isEmpty()) {
-            try {
-                if (!Pattern.compile(attribute.getValidationRegex()).matcher(value).matches()) {
-                    throw new IllegalArgumentException("Value '" + value + "' does not match regex for attribute '" + attribute.getName() + "'.");
-                }
-            } catch (PatternSyntaxException e) {
-                // This should ideally be caught during attribute creation, but good to have a fallback
-                throw new IllegalArgumentException("Invalid regex pattern for attribute '" + attribute.getName() + "'.");
-            }
+        // Validate value against attribute's regex and type
+        String invalidValue = attributeValidationService.validate(attribute, value);
+        if (invalidValue != null) {
+            throw new IllegalArgumentException(invalidValue);
         }
 
         Optional<ProductAttributeValue> existingValue = productAttributeValueRepository.findByProductAndAttribute(product, attribute);
@@ -50,18 +63,76 @@ public class ProductAttributeValueService {
         if (existingValue.isPresent()) {
             productAttributeValue = existingValue.get();
             productAttributeValue.setValue(value);
+            TypedAttributeValue.of(attribute.getType(), value).applyTo(productAttributeValue);
             auditLogService.log("UPDATE_ATTRIBUTE_VALUE", "ProductAttributeValue", productAttributeValue.getId(), "system");
         } else {
             productAttributeValue = new ProductAttributeValue();
             productAttributeValue.setProduct(product);
             productAttributeValue.setAttribute(attribute);
             productAttributeValue.setValue(value);
+            TypedAttributeValue.of(attribute.getType(), value).applyTo(productAttributeValue);
             auditLogService.log("CREATE_ATTRIBUTE_VALUE", "ProductAttributeValue", null, "system"); // ID will be generated on save
         }
-        return productAttributeValueRepository.save(productAttributeValue);
+        ProductAttributeValue savedValue = productAttributeValueRepository.save(productAttributeValue);
+        eventPublisher.publishEvent(new ProductChangedEvent(List.of(product.getId())));
+        return savedValue;
     }
 
     public List<ProductAttributeValue> getAttributeValuesForProduct(Long productId) {
         return productAttributeValueRepository.findByProductId(productId);
     }
+
+    /**
+     * Recomputes the typed copies of all values of an attribute, after its type has changed. Runs in the caller's
+     * transaction.
+     */
+    public void retypeAttributeValues(Long attributeId, String type) {
+        long lastId = 0;
+        while (true) {
+            List<Object[]> rows = new ArrayList<>();
+            jdbcTemplate.query(SELECT_VALUES_OF_ATTRIBUTE, rs -> {
+                rows.add(new Object[]{rs.getLong("id"), TypedAttributeValue.of(type, rs.getString("attribute_value"))});
+            }, attributeId, lastId, batchSize);
+            if (rows.isEmpty()) {
+                return;
+            }
+            updateTypedValues(rows);
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    /**
+     * Fills the typed copies of values stored before they existed. Values written since are typed when written.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillTypedValues() {
+        long lastId = 0;
+        int filled = 0;
+        try {
+            while (true) {
+                List<Object[]> rows = new ArrayList<>();
+                jdbcTemplate.query(SELECT_UNTYPED_VALUES, rs -> {
+                    rows.add(new Object[]{rs.getLong("id"), TypedAttributeValue.of(rs.getString("type"), rs.getString("attribute_value"))});
+                }, lastId, batchSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                updateTypedValues(rows);
+                filled += rows.size();
+                lastId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Could not fill typed attribute values: " + e.getMessage());
+        }
+        if (filled > 0) {
+            System.out.println("Filled typed copies of " + filled + " attribute values.");
+        }
+    }
+
+    private void updateTypedValues(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(UPDATE_TYPED_VALUE, rows, rows.size(), (ps, row) -> {
+            ((TypedAttributeValue) row[1]).setParameters(ps, 1);
+            ps.setLong(4, (Long) row[0]);
+        });
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.pim.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of a product before a bulk update, as kept in the change journal. The product columns are always present;
+ * {@code attributeValues} (attribute id to value) and {@code categoryIds} are null unless the update changed them.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProductBeforeImage(Long productId, long version, String name, String description, String status,
+                                 String workflowStatus, int completenessScore, Long productFamilyId,
+                                 Map<Long, String> attributeValues, List<Long> categoryIds) {
+
+    ProductBeforeImage with(Map<Long, String> attributeValues, List<Long> categoryIds) {
+        return new ProductBeforeImage(productId, version, name, description, status, workflowStatus, completenessScore,
+                productFamilyId, attributeValues, categoryIds);
+    }
+}
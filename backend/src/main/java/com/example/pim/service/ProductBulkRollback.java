@@ -0,0 +1,258 @@
+package com.example.pim.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Undoes a bulk operation by replaying its change journal backwards, one batch of entries per transaction. Within a
+ * batch the entries of each product collapse into a single step (the oldest before-image, checked against the newest
+ * version the operation wrote), which is applied with JDBC batch statements like the original writes. Products that
+ * have been changed by anyone else since the operation are left alone and reported as conflicts. Every replayed batch
+ * is removed from the journal in the same transaction, so an interrupted rollback simply continues where it stopped.
+ * Deleted and restored products are audited as {@code ROLLBACK_DELETE} and {@code ROLLBACK_RESTORE} in that
+ * transaction as well.
+ */
+@Service
+public class ProductBulkRollback {
+
+    private static final String LOCK_PRODUCTS = "SELECT id, version FROM product WHERE id IN (:ids) FOR UPDATE";
+    private static final String DELETE_ATTRIBUTE_VALUES = "DELETE FROM product_attribute_value WHERE product_id = ?";
+    private static final String DELETE_PRODUCT_CATEGORIES = "DELETE FROM product_category WHERE product_id = ?";
+    private static final String DELETE_PRODUCT = "DELETE FROM product WHERE id = ? AND version = ?";
+    private static final String RESTORE_PRODUCT = "UPDATE product SET version = ?, name = ?, description = ?, status = ?, workflow_status = ?, completeness_score = ?, product_family_id = ? WHERE id = ? AND version = ?";
+    private static final String INSERT_ATTRIBUTE_VALUE = "INSERT INTO product_attribute_value (product_id, attribute_id, attribute_value, numeric_value, boolean_value, normalized_value) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_ATTRIBUTE_TYPES = "SELECT id, type FROM attribute WHERE id IN (:ids)";
+    private static final String INSERT_PRODUCT_CATEGORY = "INSERT INTO product_category (product_id, category_id) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BulkChangeJournal bulkChangeJournal;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    @Autowired
+    public ProductBulkRollback(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, BulkChangeJournal bulkChangeJournal,
+                               AuditLogService auditLogService, ApplicationEventPublisher eventPublisher, @Value("${pim.bulk.chunk-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkChangeJournal = bulkChangeJournal;
+        this.auditLogService = auditLogService;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Replays the newest batch of journal entries of an operation and removes them from the journal.
+     *
+     * @param conflicted products already reported as conflicts; their older entries are dropped without another report,
+     *                   and new conflicts are added
+     * @param username   user the rollback is audited for
+     * @return the outcome, or null once the journal is empty
+     */
+    public BatchResult rollbackBatch(Long operationId, Set<Long> conflicted, String username) {
+        List<BulkChangeJournal.Entry> entries = bulkChangeJournal.newest(operationId, batchSize);
+        if (entries.isEmpty()) {
+            return null;
+        }
+        long oldestEntryId = entries.get(entries.size() - 1).id();
+        List<Step> steps = collapse(entries, conflicted);
+        BatchResult result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                BatchResult applied = apply(steps, username);
+                bulkChangeJournal.consume(operationId, oldestEntryId);
+                return applied;
+            });
+        } catch (DataAccessException e) {
+            // The batch was rejected as a whole (e.g. a created product has since been given variants). Replay each
+            // product on its own to isolate the ones that cannot be undone; each removes its own entries, so a
+            // restart never replays a product that has already been rolled back.
+            result = new BatchResult(0, 0, List.of());
+            for (Step step : steps) {
+                try {
+                    result = result.plus(transactionTemplate.execute(status -> {
+                        BatchResult applied = apply(List.of(step), username);
+                        bulkChangeJournal.consume(operationId, step.productId, step.oldest.id());
+                        return applied;
+                    }));
+                } catch (DataAccessException stepException) {
+                    result = result.plus(new BatchResult(0, 0, List.of(new Conflict(step.productId,
+                            "Could not be rolled back: " + stepException.getMostSpecificCause().getMessage()))));
+                }
+            }
+            // What is left are the entries of products that could not be rolled back
+            bulkChangeJournal.consume(operationId, oldestEntryId);
+        }
+        result.conflicts().forEach(conflict -> conflicted.add(conflict.productId()));
+        return result;
+    }
+
+    /**
+     * Folds the entries of each product (newest first) into one step: the product must still be at the newest
+     * version the operation wrote, and goes back to the state before the oldest entry.
+     */
+    private List<Step> collapse(List<BulkChangeJournal.Entry> entries, Set<Long> conflicted) {
+        Map<Long, Step> steps = new LinkedHashMap<>();
+        for (BulkChangeJournal.Entry entry : entries) {
+            if (conflicted.contains(entry.productId())) {
+                continue;
+            }
+            Step step = steps.computeIfAbsent(entry.productId(), id -> new Step(id, entry.afterVersion()));
+            step.oldest = entry;
+            if (entry.beforeImage() != null) {
+                // Values and categories only appear in entries that changed them, so take the oldest one that has them
+                if (entry.beforeImage().attributeValues() != null) {
+                    step.attributeValues = entry.beforeImage().attributeValues();
+                }
+                if (entry.beforeImage().categoryIds() != null) {
+                    step.categoryIds = entry.beforeImage().categoryIds();
+                }
+            }
+        }
+        return new ArrayList<>(steps.values());
+    }
+
+    private BatchResult apply(List<Step> steps, String username) {
+        if (steps.isEmpty()) {
+            return new BatchResult(0, 0, List.of());
+        }
+        Map<Long, Long> currentVersions = new HashMap<>();
+        namedParameterJdbcTemplate.query(LOCK_PRODUCTS, Map.of("ids", steps.stream().map(step -> step.productId).toList()),
+                rs -> {
+                    currentVersions.put(rs.getLong("id"), rs.getLong("version"));
+                });
+
+        int alreadyGone = 0;
+        List<Conflict> conflicts = new ArrayList<>();
+        List<Step> deletes = new ArrayList<>();
+        List<Step> restores = new ArrayList<>();
+        for (Step step : steps) {
+            Long current = currentVersions.get(step.productId);
+            boolean created = BulkChangeJournal.CREATED.equals(step.oldest.changeType());
+            if (current == null) {
+                if (created) {
+                    alreadyGone++;
+                } else {
+                    conflicts.add(new Conflict(step.productId, "Product no longer exists; it was not restored."));
+                }
+            } else if (current != step.newestVersion) {
+                conflicts.add(new Conflict(step.productId, "Product was modified after the bulk operation (version " + current
+                        + ", expected " + step.newestVersion + "); it was " + (created ? "not deleted." : "not restored.")));
+            } else if (created) {
+                deletes.add(step);
+            } else {
+                restores.add(step);
+            }
+        }
+
+        List<Object[]> deletedIds = deletes.stream().map(step -> new Object[]{step.productId}).toList();
+        jdbcTemplate.batchUpdate(DELETE_ATTRIBUTE_VALUES, deletedIds);
+        jdbcTemplate.batchUpdate(DELETE_PRODUCT_CATEGORIES, deletedIds);
+        jdbcTemplate.batchUpdate(DELETE_PRODUCT, deletes, deletes.size(), (ps, step) -> {
+            ps.setLong(1, step.productId);
+            ps.setLong(2, step.newestVersion);
+        });
+
+        // Restored rows get their original version back, so that a client still holding the pre-operation copy can save it
+        jdbcTemplate.batchUpdate(RESTORE_PRODUCT, restores, restores.size(), (ps, step) -> {
+            ProductBeforeImage image = step.oldest.beforeImage();
+            ps.setLong(1, step.oldest.beforeVersion());
+            ps.setString(2, image.name());
+            ps.setString(3, image.description());
+            ps.setString(4, image.status());
+            ps.setString(5, image.workflowStatus());
+            ps.setInt(6, image.completenessScore());
+            ps.setObject(7, image.productFamilyId());
+            ps.setLong(8, step.productId);
+            ps.setLong(9, step.newestVersion);
+        });
+        List<Object[]> revalued = new ArrayList<>();
+        List<Object[]> values = new ArrayList<>();
+        List<Object[]> recategorized = new ArrayList<>();
+        List<Object[]> categories = new ArrayList<>();
+        Set<Long> attributeIds = new HashSet<>();
+        restores.stream().filter(step -> step.attributeValues != null).forEach(step -> attributeIds.addAll(step.attributeValues.keySet()));
+        Map<Long, String> attributeTypes = new HashMap<>();
+        if (!attributeIds.isEmpty()) {
+            namedParameterJdbcTemplate.query(SELECT_ATTRIBUTE_TYPES, Map.of("ids", attributeIds), rs -> {
+                attributeTypes.put(rs.getLong("id"), rs.getString("type"));
+            });
+        }
+        for (Step step : restores) {
+            if (step.attributeValues != null) {
+                revalued.add(new Object[]{step.productId});
+                step.attributeValues.forEach((attributeId, value) -> {
+                    TypedAttributeValue typed = TypedAttributeValue.of(attributeTypes.get(attributeId), value);
+                    values.add(new Object[]{step.productId, attributeId, value, typed.numericValue(), typed.booleanValue(), typed.normalizedValue()});
+                });
+            }
+            if (step.categoryIds != null) {
+                recategorized.add(new Object[]{step.productId});
+                step.categoryIds.forEach(categoryId -> categories.add(new Object[]{step.productId, categoryId}));
+            }
+        }
+        jdbcTemplate.batchUpdate(DELETE_ATTRIBUTE_VALUES, revalued);
+        jdbcTemplate.batchUpdate(INSERT_ATTRIBUTE_VALUE, values);
+        jdbcTemplate.batchUpdate(DELETE_PRODUCT_CATEGORIES, recategorized);
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_CATEGORY, categories);
+
+        List<Long> deletedProductIds = deletes.stream().map(step -> step.productId).toList();
+        List<Long> restoredProductIds = restores.stream().map(step -> step.productId).toList();
+        auditLogService.logAll("ROLLBACK_DELETE", "Product", deletedProductIds, username);
+        auditLogService.logAll("ROLLBACK_RESTORE", "Product", restoredProductIds, username);
+
+        List<Long> changed = new ArrayList<>(deletedProductIds);
+        changed.addAll(restoredProductIds);
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(changed));
+        }
+
+        return new BatchResult(deletes.size() + alreadyGone, restores.size(), conflicts);
+    }
+
+    /**
+     * Outcome of one replayed batch.
+     */
+    public record BatchResult(int deleted, int restored, List<Conflict> conflicts) {
+
+        BatchResult plus(BatchResult other) {
+            List<Conflict> all = new ArrayList<>(conflicts);
+            all.addAll(other.conflicts);
+            return new BatchResult(deleted + other.deleted, restored + other.restored, all);
+        }
+    }
+
+    public record Conflict(Long productId, String message) {
+    }
+
+    private static final class Step {
+        private final Long productId;
+        private final long newestVersion;
+        private BulkChangeJournal.Entry oldest;
+        private Map<Long, String> attributeValues;
+        private List<Long> categoryIds;
+
+        private Step(Long productId, long newestVersion) {
+            this.productId = productId;
+            this.newestVersion = newestVersion;
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductAttributeValue;
+import com.example.pim.domain.ProductFamily;
+import com.example.pim.repository.AttributeRepository;
+import com.example.pim.repository.ProductFamilyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies partial product updates chunk by chunk. Only the fields present in a record are changed. Targets are
+ * loaded with one {@code IN} query per chunk, patched in memory and written back with JDBC batch statements. Every
+ * product update is guarded by its {@code @Version} column, so rows changed concurrently are reported as conflicts
+ * instead of being overwritten.
+ *
+ * <p>Supported fields: {@code id} or {@code sku} to address the product, optional {@code version} for an explicit
+ * optimistic check, {@code name}, {@code description}, {@code workflowStatus}, {@code status} (except publishing),
+ * {@code productFamily} ({@code {"id": ..}} or null), {@code categories} (replaces the assignment) and
+ * {@code attributeValues} (upserted per attribute; a null value removes it).
+ */
+@Service
+public class ProductBulkUpdater {
+
+    private static final String SELECT_PRODUCTS = "SELECT id, version, sku, name, description, status, workflow_status, completeness_score, product_family_id FROM product WHERE id IN (:ids) OR sku IN (:skus)";
+    private static final String SELECT_ATTRIBUTE_VALUES = "SELECT id, product_id, attribute_id, attribute_value FROM product_attribute_value WHERE product_id IN (:productIds)";
+    private static final String UPDATE_PRODUCT = "UPDATE product SET version = version + 1, name = ?, description = ?, status = ?, workflow_status = ?, completeness_score = ?, product_family_id = ? WHERE id = ? AND version = ?";
+    private static final String INSERT_ATTRIBUTE_VALUE = "INSERT INTO product_attribute_value (product_id, attribute_id, attribute_value, numeric_value, boolean_value, normalized_value) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_ATTRIBUTE_VALUE = "UPDATE product_attribute_value SET attribute_value = ?, numeric_value = ?, boolean_value = ?, normalized_value = ? WHERE id = ?";
+    private static final String DELETE_ATTRIBUTE_VALUE = "DELETE FROM product_attribute_value WHERE id = ?";
+    private static final String DELETE_PRODUCT_CATEGORIES = "DELETE FROM product_category WHERE product_id = ?";
+    private static final String INSERT_PRODUCT_CATEGORY = "INSERT INTO product_category (product_id, category_id) VALUES (?, ?)";
+    private static final String SELECT_PRODUCT_CATEGORIES = "SELECT product_id, category_id FROM product_category WHERE product_id IN (:productIds)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ChunkTransactionTemplate transactionTemplate;
+    private final ProductFamilyRepository productFamilyRepository;
+    private final AttributeRepository attributeRepository;
+    private final AttributeValidationService attributeValidationService;
+    private final CompletenessScoreService completenessScoreService;
+    private final BulkChangeJournal bulkChangeJournal;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public ProductBulkUpdater(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ProductFamilyRepository productFamilyRepository, AttributeRepository attributeRepository, AttributeValidationService attributeValidationService, CompletenessScoreService completenessScoreService, BulkChangeJournal bulkChangeJournal, AuditLogService auditLogService, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new ChunkTransactionTemplate(transactionManager, jdbcTemplate.getDataSource());
+        this.productFamilyRepository = productFamilyRepository;
+        this.attributeRepository = attributeRepository;
+        this.attributeValidationService = attributeValidationService;
+        this.completenessScoreService = completenessScoreService;
+        this.bulkChangeJournal = bulkChangeJournal;
+        this.auditLogService = auditLogService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Updates one chunk and journals the before-images of the written products under {@code operationId} (null to
+     * skip the journal).
+     */
+    public BulkChunkResult updateChunk(Long operationId, List<BulkRecord> records) {
+        try {
+            return transactionTemplate.execute(() -> doUpdateChunk(operationId, records));
+        } catch (DataAccessException e) {
+            // Replay row by row to isolate the statement the database rejected
+            int succeeded = 0;
+            List<BulkRecordError> errors = new ArrayList<>();
+            for (BulkRecord record : records) {
+                try {
+                    BulkChunkResult single = transactionTemplate.execute(() -> doUpdateChunk(operationId, List.of(record)));
+                    succeeded += single.succeeded();
+                    errors.addAll(single.errors());
+                } catch (DataAccessException rowException) {
+                    errors.add(new BulkRecordError(record.rowIndex(), record.sku(), null, rowException.getMostSpecificCause().getMessage()));
+                }
+            }
+            return new BulkChunkResult(succeeded, errors);
+        }
+    }
+
+    private BulkChunkResult doUpdateChunk(Long operationId, List<BulkRecord> records) {
+        List<BulkRecordError> errors = new ArrayList<>();
+        List<ProductPatch> patches = new ArrayList<>();
+        for (BulkRecord record : records) {
+            if (record.parseError() != null) {
+                errors.add(new BulkRecordError(record.rowIndex(), null, null, record.parseError()));
+                continue;
+            }
+            try {
+                patches.add(ProductPatch.parse(record));
+            } catch (IllegalArgumentException e) {
+                errors.add(new BulkRecordError(record.rowIndex(), record.sku(), null, e.getMessage()));
+            }
+        }
+
+        Map<Long, Target> targetsById = loadTargets(patches);
+        Map<String, Target> targetsBySku = new HashMap<>();
+        targetsById.values().forEach(target -> targetsBySku.put(target.product.getSku(), target));
+
+        Set<Long> familyIds = new HashSet<>();
+        Set<Long> attributeIds = new HashSet<>();
+        Set<String> attributeCodes = new HashSet<>();
+        for (Target target : targetsById.values()) {
+            if (target.familyId != null) {
+                familyIds.add(target.familyId);
+            }
+            target.product.getAttributeValues().forEach(pav -> attributeIds.add(pav.getAttribute().getId()));
+        }
+        for (ProductPatch patch : patches) {
+            if (patch.familyId() != null) {
+                familyIds.add(patch.familyId());
+            }
+            BulkReferenceData.collectAttributeReferences(patch.attributeValues(), attributeIds, attributeCodes);
+        }
+        BulkReferenceData referenceData = BulkReferenceData.load(familyIds, attributeIds, attributeCodes, productFamilyRepository, attributeRepository, attributeValidationService);
+        for (Target target : targetsById.values()) {
+            target.product.setProductFamily(referenceData.family(target.familyId));
+            target.product.getAttributeValues().forEach(pav -> pav.setAttribute(referenceData.attribute(pav.getAttribute().getId())));
+        }
+
+        // Apply patches in feed order; several rows for the same product are applied one after the other
+        Map<Target, List<ProductPatch>> applied = new LinkedHashMap<>();
+        for (ProductPatch patch : patches) {
+            Target target = patch.id() != null ? targetsById.get(patch.id()) : targetsBySku.get(patch.sku());
+            if (target == null) {
+                errors.add(new BulkRecordError(patch.rowIndex(), patch.sku(), patch.id() != null ? "id" : "sku", "Product not found"));
+                continue;
+            }
+            Rejection rejection = apply(patch, target, referenceData);
+            if (rejection != null) {
+                errors.add(new BulkRecordError(patch.rowIndex(), target.product.getSku(), rejection.field(), rejection.message()));
+                continue;
+            }
+            applied.computeIfAbsent(target, t -> new ArrayList<>()).add(patch);
+        }
+
+        List<Target> changed = new ArrayList<>(applied.keySet());
+        if (changed.isEmpty()) {
+            // Nothing to write; an empty batch would also report no counts at all
+            errors.sort(Comparator.comparingLong(BulkRecordError::rowIndex));
+            return new BulkChunkResult(0, errors);
+        }
+        int[] scores = completenessScoreService.scoreAll(changed.stream().map(target -> target.product).toList());
+        for (int i = 0; i < changed.size(); i++) {
+            changed.get(i).product.setCompletenessScore(scores[i]);
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_PRODUCT, changed, changed.size(), (ps, target) -> {
+            Product product = target.product;
+            ps.setString(1, product.getName());
+            ps.setString(2, product.getDescription());
+            ps.setString(3, product.getStatus());
+            ps.setString(4, product.getWorkflowStatus());
+            ps.setInt(5, product.getCompletenessScore());
+            ps.setObject(6, product.getProductFamily() != null ? product.getProductFamily().getId() : null);
+            ps.setLong(7, product.getId());
+            ps.setLong(8, target.expectedVersion);
+        })[0];
+
+        int succeeded = 0;
+        List<Target> written = new ArrayList<>();
+        for (int i = 0; i < changed.size(); i++) {
+            Target target = changed.get(i);
+            // Drivers may report SUCCESS_NO_INFO for batched statements; only an explicit 0 is a lost version check
+            if (counts[i] == 0) {
+                for (ProductPatch patch : applied.get(target)) {
+                    errors.add(new BulkRecordError(patch.rowIndex(), target.product.getSku(), "version",
+                            "Product was modified by another user (expected version " + target.expectedVersion + ")"));
+                }
+            } else if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                written.add(target);
+                succeeded += applied.get(target).size();
+            }
+        }
+        if (operationId != null) {
+            bulkChangeJournal.recordUpdated(operationId, beforeImages(written));
+        }
+        writeAttributeValues(written);
+        writeCategories(written);
+        if (!written.isEmpty()) {
+            List<Long> writtenIds = written.stream().map(target -> target.product.getId()).toList();
+            auditLogService.logAll("UPDATE", "Product", writtenIds, "system");
+            eventPublisher.publishEvent(new ProductChangedEvent(writtenIds));
+        }
+
+        errors.sort(Comparator.comparingLong(BulkRecordError::rowIndex));
+        return new BulkChunkResult(succeeded, errors);
+    }
+
+    private Map<Long, Target> loadTargets(List<ProductPatch> patches) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> skus = new HashSet<>();
+        for (ProductPatch patch : patches) {
+            if (patch.id() != null) {
+                ids.add(patch.id());
+            } else {
+                skus.add(patch.sku());
+            }
+        }
+        Map<Long, Target> targets = new HashMap<>();
+        if (ids.isEmpty() && skus.isEmpty()) {
+            return targets;
+        }
+        // An empty IN list is not valid SQL, so fall back to a value that can never match
+        Map<String, Object> params = Map.of("ids", ids.isEmpty() ? List.of(-1L) : ids, "skus", skus.isEmpty() ? List.of("") : skus);
+        namedParameterJdbcTemplate.query(SELECT_PRODUCTS, params, rs -> {
+            Product product = new Product();
+            product.setId(rs.getLong("id"));
+            product.setVersion(rs.getLong("version"));
+            product.setSku(rs.getString("sku"));
+            product.setName(rs.getString("name"));
+            product.setDescription(rs.getString("description"));
+            product.setStatus(rs.getString("status"));
+            product.setWorkflowStatus(rs.getString("workflow_status"));
+            product.setCompletenessScore(rs.getInt("completeness_score"));
+            product.setAttributeValues(new ArrayList<>());
+            long familyId = rs.getLong("product_family_id");
+            targets.put(product.getId(), new Target(product, rs.wasNull() ? null : familyId));
+        });
+        if (!targets.isEmpty()) {
+            namedParameterJdbcTemplate.query(SELECT_ATTRIBUTE_VALUES, Map.of("productIds", targets.keySet()), rs -> {
+                Target target = targets.get(rs.getLong("product_id"));
+                Attribute attribute = new Attribute();
+                attribute.setId(rs.getLong("attribute_id"));
+                ProductAttributeValue pav = new ProductAttributeValue();
+                pav.setId(rs.getLong("id"));
+                pav.setProduct(target.product);
+                pav.setAttribute(attribute);
+                pav.setValue(rs.getString("attribute_value"));
+                target.product.getAttributeValues().add(pav);
+                target.beforeValues.put(attribute.getId(), pav.getValue());
+            });
+        }
+        return targets;
+    }
+
+    /**
+     * Validates a patch against the current state of its target and applies it. Returns why the patch was rejected,
+     * leaving the target untouched, or null if it was applied.
+     */
+    private Rejection apply(ProductPatch patch, Target target, BulkReferenceData referenceData) {
+        Product product = target.product;
+        if (patch.version() != null && !patch.version().equals(product.getVersion())) {
+            return new Rejection("version", "Product was modified by another user (expected version " + patch.version() + ", found " + product.getVersion() + ")");
+        }
+        if (patch.id() != null && patch.sku() != null && !patch.sku().equals(product.getSku())) {
+            return new Rejection("sku", "SKU cannot be changed through bulk update.");
+        }
+        if (patch.has("name") && (patch.name() == null || patch.name().isBlank())) {
+            return new Rejection("name", "Name is mandatory");
+        }
+        if (patch.has("status") && "published".equalsIgnoreCase(patch.status()) && !"published".equalsIgnoreCase(product.getStatus())) {
+            return new Rejection("status", "Products cannot be published through bulk update.");
+        }
+
+        ProductFamily family = product.getProductFamily();
+        if (patch.has("productFamily")) {
+            family = referenceData.family(patch.familyId());
+            if (patch.familyId() != null && family == null) {
+                return new Rejection("productFamily", "Product family not found");
+            }
+        }
+
+        // Resolve attribute value changes before touching the product
+        Map<Long, ProductAttributeValue> current = new HashMap<>();
+        product.getAttributeValues().forEach(pav -> current.put(pav.getAttribute().getId(), pav));
+        Map<Attribute, String> valueChanges = new LinkedHashMap<>();
+        for (ProductAttributeValue change : patch.attributeValues()) {
+            Attribute attribute = referenceData.resolveAttribute(change.getAttribute());
+            if (attribute == null) {
+                return new Rejection("attributeValues", "Attribute not found");
+            }
+            if (change.getValue() != null) {
+                String invalidValue = referenceData.validateValue(attribute, change.getValue());
+                if (invalidValue != null) {
+                    return new Rejection(attribute.getCode(), invalidValue);
+                }
+            } else if (family != null && family.getAttributes().contains(attribute)) {
+                return new Rejection(attribute.getCode(), "Missing required attribute: " + attribute.getName());
+            }
+            valueChanges.put(attribute, change.getValue());
+        }
+
+        if (patch.has("name")) {
+            product.setName(patch.name());
+        }
+        if (patch.has("description")) {
+            product.setDescription(patch.description());
+        }
+        if (patch.has("status")) {
+            product.setStatus(patch.status());
+        }
+        if (patch.has("workflowStatus")) {
+            product.setWorkflowStatus(patch.workflowStatus());
+        }
+        if (patch.has("categories")) {
+            target.categoryIds = patch.categoryIds();
+        }
+        for (Map.Entry<Attribute, String> change : valueChanges.entrySet()) {
+            ProductAttributeValue existing = current.get(change.getKey().getId());
+            if (change.getValue() == null) {
+                if (existing != null) {
+                    product.getAttributeValues().removeIf(pav -> pav == existing);
+                    target.deletedValues.add(existing);
+                }
+            } else if (existing != null) {
+                existing.setValue(change.getValue());
+                if (existing.getId() != null) {
+                    target.updatedValues.add(existing);
+                }
+            } else {
+                ProductAttributeValue created = new ProductAttributeValue();
+                created.setProduct(product);
+                created.setAttribute(change.getKey());
+                created.setValue(change.getValue());
+                product.getAttributeValues().add(created);
+                current.put(change.getKey().getId(), created);
+                target.insertedValues.add(created);
+            }
+        }
+        if (patch.has("productFamily") && family != product.getProductFamily()) {
+            product.setProductFamily(family);
+            if (family != null) {
+                // Same as a single family change: values of attributes outside the new family are dropped
+                Set<Long> familyAttributeIds = new HashSet<>();
+                family.getAttributes().forEach(attribute -> familyAttributeIds.add(attribute.getId()));
+                List<ProductAttributeValue> orphaned = product.getAttributeValues().stream()
+                        .filter(pav -> !familyAttributeIds.contains(pav.getAttribute().getId()))
+                        .toList();
+                product.getAttributeValues().removeIf(pav -> !familyAttributeIds.contains(pav.getAttribute().getId()));
+                orphaned.forEach(pav -> {
+                    if (!target.insertedValues.remove(pav)) {
+                        target.updatedValues.remove(pav);
+                        target.deletedValues.add(pav);
+                    }
+                });
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Before-images of written targets. Attribute values and categories are only included if the update changed them;
+     * the categories are read here, before {@link #writeCategories} replaces them.
+     */
+    private List<ProductBeforeImage> beforeImages(List<Target> targets) {
+        List<Long> recategorized = targets.stream().filter(target -> target.categoryIds != null).map(target -> target.product.getId()).toList();
+        Map<Long, List<Long>> beforeCategories = new HashMap<>();
+        if (!recategorized.isEmpty()) {
+            namedParameterJdbcTemplate.query(SELECT_PRODUCT_CATEGORIES, Map.of("productIds", recategorized), rs -> {
+                beforeCategories.computeIfAbsent(rs.getLong("product_id"), id -> new ArrayList<>()).add(rs.getLong("category_id"));
+            });
+        }
+        List<ProductBeforeImage> images = new ArrayList<>();
+        for (Target target : targets) {
+            boolean valuesChanged = !target.insertedValues.isEmpty() || !target.updatedValues.isEmpty() || !target.deletedValues.isEmpty();
+            images.add(target.before.with(valuesChanged ? target.beforeValues : null,
+                    target.categoryIds != null ? beforeCategories.getOrDefault(target.product.getId(), List.of()) : null));
+        }
+        return images;
+    }
+
+    private void writeAttributeValues(List<Target> targets) {
+        List<ProductAttributeValue> inserted = new ArrayList<>();
+        List<ProductAttributeValue> updated = new ArrayList<>();
+        List<Object[]> deleted = new ArrayList<>();
+        for (Target target : targets) {
+            inserted.addAll(target.insertedValues);
+            updated.addAll(target.updatedValues);
+            target.deletedValues.forEach(pav -> deleted.add(new Object[]{pav.getId()}));
+        }
+        jdbcTemplate.batchUpdate(DELETE_ATTRIBUTE_VALUE, deleted);
+        jdbcTemplate.batchUpdate(UPDATE_ATTRIBUTE_VALUE, updated, updated.size(), (ps, pav) -> {
+            ps.setString(1, pav.getValue());
+            TypedAttributeValue.of(pav.getAttribute().getType(), pav.getValue()).setParameters(ps, 2);
+            ps.setLong(5, pav.getId());
+        });
+        jdbcTemplate.batchUpdate(INSERT_ATTRIBUTE_VALUE, inserted, inserted.size(), (ps, pav) -> {
+            ps.setLong(1, pav.getProduct().getId());
+            ps.setLong(2, pav.getAttribute().getId());
+            ps.setString(3, pav.getValue());
+            TypedAttributeValue.of(pav.getAttribute().getType(), pav.getValue()).setParameters(ps, 4);
+        });
+    }
+
+    private void writeCategories(List<Target> targets) {
+        List<Object[]> cleared = new ArrayList<>();
+        List<Object[]> links = new ArrayList<>();
+        for (Target target : targets) {
+            if (target.categoryIds != null) {
+                cleared.add(new Object[]{target.product.getId()});
+                target.categoryIds.forEach(categoryId -> links.add(new Object[]{target.product.getId(), categoryId}));
+            }
+        }
+        jdbcTemplate.batchUpdate(DELETE_PRODUCT_CATEGORIES, cleared);
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_CATEGORY, links);
+    }
+
+    private record Rejection(String field, String message) {
+    }
+
+    /**
+     * One update row from the feed, checked for shape but not yet resolved against the database.
+     */
+    private record ProductPatch(long rowIndex, Long id, String sku, Long version, Map<String, Object> fields,
+                                Long familyId, List<Long> categoryIds, List<ProductAttributeValue> attributeValues) {
+
+        private static final Set<String> PATCHABLE_FIELDS = Set.of("id", "sku", "version", "name", "description", "status",
+                "workflowStatus", "productFamily", "categories", "attributeValues");
+
+        static ProductPatch parse(BulkRecord record) {
+            Map<String, Object> data = record.data();
+            for (String field : data.keySet()) {
+                if (!PATCHABLE_FIELDS.contains(field)) {
+                    throw new IllegalArgumentException("Field '" + field + "' cannot be changed through bulk update.");
+                }
+            }
+            Long id = toLong(data.get("id"), "id");
+            String sku = data.get("sku") != null ? data.get("sku").toString() : null;
+            if (id == null && (sku == null || sku.isBlank())) {
+                throw new IllegalArgumentException("Either id or sku is required to identify the product.");
+            }
+            Long familyId = data.get("productFamily") != null ? referencedId(data.get("productFamily"), "productFamily") : null;
+            List<Long> categoryIds = null;
+            if (data.containsKey("categories")) {
+                categoryIds = new ArrayList<>();
+                for (Object category : listOf(data.get("categories"), "categories")) {
+                    categoryIds.add(referencedId(category, "categories"));
+                }
+            }
+            List<ProductAttributeValue> attributeValues = new ArrayList<>();
+            for (Object entry : listOf(data.get("attributeValues"), "attributeValues")) {
+                if (!(entry instanceof Map<?, ?> value) || !(value.get("attribute") instanceof Map<?, ?> reference)) {
+                    throw new IllegalArgumentException("Attribute values must have the form {\"attribute\": {...}, \"value\": ...}.");
+                }
+                Attribute attribute = new Attribute();
+                attribute.setId(toLong(reference.get("id"), "attribute.id"));
+                attribute.setCode(reference.get("code") != null ? reference.get("code").toString() : null);
+                ProductAttributeValue pav = new ProductAttributeValue();
+                pav.setAttribute(attribute);
+                pav.setValue(value.get("value") != null ? value.get("value").toString() : null);
+                attributeValues.add(pav);
+            }
+            return new ProductPatch(record.rowIndex(), id, sku, toLong(data.get("version"), "version"), data,
+                    familyId, categoryIds, attributeValues);
+        }
+
+        boolean has(String field) {
+            return fields.containsKey(field);
+        }
+
+        String name() {
+            return string("name");
+        }
+
+        String description() {
+            return string("description");
+        }
+
+        String status() {
+            return string("status");
+        }
+
+        String workflowStatus() {
+            return string("workflowStatus");
+        }
+
+        private String string(String field) {
+            Object value = fields.get(field);
+            return value != null ? value.toString() : null;
+        }
+
+        private static Long referencedId(Object reference, String field) {
+            Object id = reference instanceof Map<?, ?> map ? map.get("id") : reference;
+            Long value = toLong(id, field);
+            if (value == null) {
+                throw new IllegalArgumentException("Field '" + field + "' must reference an id.");
+            }
+            return value;
+        }
+
+        private static Long toLong(Object value, String field) {
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof Number number) {
+                return number.longValue();
+            }
+            try {
+                return Long.valueOf(value.toString());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Field '" + field + "' must be a number.");
+            }
+        }
+
+        private static List<?> listOf(Object value, String field) {
+            if (value == null) {
+                return List.of();
+            }
+            if (!(value instanceof List<?> list)) {
+                throw new IllegalArgumentException("Field '" + field + "' must be a list.");
+            }
+            return list;
+        }
+    }
+
+    /**
+     * A product loaded for update together with the changes to write for it.
+     */
+    private static final class Target {
+        private final Product product;
+        private final Long familyId;
+        private final long expectedVersion;
+        private final ProductBeforeImage before;
+        private final Map<Long, String> beforeValues = new HashMap<>();
+        private final Set<ProductAttributeValue> insertedValues = newIdentitySet();
+        private final Set<ProductAttributeValue> updatedValues = newIdentitySet();
+        private final Set<ProductAttributeValue> deletedValues = newIdentitySet();
+        private Collection<Long> categoryIds;
+
+        private Target(Product product, Long familyId) {
+            this.product = product;
+            this.familyId = familyId;
+            this.expectedVersion = product.getVersion();
+            this.before = new ProductBeforeImage(product.getId(), product.getVersion(), product.getName(), product.getDescription(),
+                    product.getStatus(), product.getWorkflowStatus(), product.getCompletenessScore(), familyId, null, null);
+        }
+
+        // ProductAttributeValue uses value-based equals/hashCode that walk the product, so track rows by identity
+        private static Set<ProductAttributeValue> newIdentitySet() {
+            return Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+    }
+}
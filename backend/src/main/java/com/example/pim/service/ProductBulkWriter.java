@@ -0,0 +1,314 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Category;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductAttributeValue;
+import com.example.pim.domain.ProductFamily;
+import com.example.pim.repository.AttributeRepository;
+import com.example.pim.repository.ProductFamilyRepository;
+import com.example.pim.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Writes bulk-created products chunk by chunk. Every chunk is validated in memory against reference data
+ * loaded once per chunk, and the surviving rows are inserted with JDBC batch statements in a single transaction.
+ * If the batch itself is rejected by the database, the chunk is replayed row by row so that only the offending
+ * rows end up in the error report.
+ */
+@Service
+public class ProductBulkWriter {
+
+    private static final String INSERT_PRODUCT = "INSERT INTO product (version, sku, name, description, status, workflow_status, completeness_score, product_family_id) VALUES (0, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ATTRIBUTE_VALUE = "INSERT INTO product_attribute_value (product_id, attribute_id, attribute_value, numeric_value, boolean_value, normalized_value) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PRODUCT_CATEGORY = "INSERT INTO product_category (product_id, category_id) VALUES (?, ?)";
+    private static final String SELECT_IDS_BY_SKU = "SELECT id, sku FROM product WHERE sku IN (:skus)";
+    private static final String SELECT_ATTRIBUTE_VALUE_IDS = "SELECT id FROM product_attribute_value WHERE product_id IN (:productIds)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ChunkTransactionTemplate transactionTemplate;
+    private final ProductRepository productRepository;
+    private final ProductFamilyRepository productFamilyRepository;
+    private final AttributeRepository attributeRepository;
+    private final AttributeValidationService attributeValidationService;
+    private final CompletenessScoreService completenessScoreService;
+    private final Validator validator;
+    private final ProductBulkUpdater productBulkUpdater;
+    private final BulkChangeJournal bulkChangeJournal;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    public ProductBulkWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ProductRepository productRepository, ProductFamilyRepository productFamilyRepository, AttributeRepository attributeRepository, AttributeValidationService attributeValidationService, CompletenessScoreService completenessScoreService, Validator validator, ProductBulkUpdater productBulkUpdater, BulkChangeJournal bulkChangeJournal, AuditLogService auditLogService, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new ChunkTransactionTemplate(transactionManager, jdbcTemplate.getDataSource());
+        this.productRepository = productRepository;
+        this.productFamilyRepository = productFamilyRepository;
+        this.attributeRepository = attributeRepository;
+        this.attributeValidationService = attributeValidationService;
+        this.completenessScoreService = completenessScoreService;
+        this.validator = validator;
+        this.productBulkUpdater = productBulkUpdater;
+        this.bulkChangeJournal = bulkChangeJournal;
+        this.auditLogService = auditLogService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Writes one chunk and journals what it changed under {@code operationId} (null to skip the journal). In
+     * {@link BulkWriteMode#UPSERT} mode the chunk's SKUs are looked up first with one query; records for existing
+     * SKUs, and repeats of a SKU within the chunk, are handed to {@link ProductBulkUpdater} as partial updates after
+     * the new products have been inserted.
+     */
+    public BulkChunkResult writeChunk(Long operationId, List<BulkRecord> records, BulkWriteMode mode) {
+        if (mode != BulkWriteMode.UPSERT) {
+            return insertChunk(operationId, records);
+        }
+        List<String> skus = records.stream().map(BulkRecord::sku).filter(Objects::nonNull).distinct().toList();
+        Set<String> existingSkus = skus.isEmpty() ? Set.of() : new HashSet<>(productRepository.findExistingSkus(skus));
+        Set<String> insertedSkus = new HashSet<>();
+        List<BulkRecord> inserts = new ArrayList<>();
+        List<BulkRecord> updates = new ArrayList<>();
+        for (BulkRecord record : records) {
+            String sku = record.parseError() == null ? record.sku() : null;
+            if (sku != null && (existingSkus.contains(sku) || !insertedSkus.add(sku))) {
+                // Upserts address products by SKU only
+                Map<String, Object> patch = new LinkedHashMap<>(record.data());
+                patch.remove("id");
+                updates.add(new BulkRecord(record.rowIndex(), patch));
+            } else {
+                inserts.add(record);
+            }
+        }
+
+        BulkChunkResult inserted = insertChunk(operationId, inserts);
+        if (updates.isEmpty()) {
+            return inserted;
+        }
+        BulkChunkResult updated = productBulkUpdater.updateChunk(operationId, updates);
+        List<BulkRecordError> errors = new ArrayList<>(inserted.errors());
+        errors.addAll(updated.errors());
+        errors.sort(Comparator.comparingLong(BulkRecordError::rowIndex));
+        return new BulkChunkResult(inserted.succeeded() + updated.succeeded(), errors);
+    }
+
+    private BulkChunkResult insertChunk(Long operationId, List<BulkRecord> records) {
+        if (records.isEmpty()) {
+            return new BulkChunkResult(0, List.of());
+        }
+        try {
+            return transactionTemplate.execute(() -> doWriteChunk(operationId, records));
+        } catch (DataAccessException e) {
+            // The batch was rejected as a whole (e.g. a concurrent insert of the same SKU). Replay each row in its
+            // own transaction to isolate the failing ones.
+            int succeeded = 0;
+            List<BulkRecordError> errors = new ArrayList<>();
+            for (BulkRecord record : records) {
+                try {
+                    BulkChunkResult single = transactionTemplate.execute(() -> doWriteChunk(operationId, List.of(record)));
+                    succeeded += single.succeeded();
+                    errors.addAll(single.errors());
+                } catch (DataAccessException rowException) {
+                    errors.add(new BulkRecordError(record.rowIndex(), record.sku(), null, rowException.getMostSpecificCause().getMessage()));
+                }
+            }
+            return new BulkChunkResult(succeeded, errors);
+        }
+    }
+
+    private BulkChunkResult doWriteChunk(Long operationId, List<BulkRecord> records) {
+        List<BulkRecordError> errors = new ArrayList<>();
+        List<Candidate> candidates = new ArrayList<>();
+
+        for (BulkRecord record : records) {
+            if (record.parseError() != null) {
+                errors.add(new BulkRecordError(record.rowIndex(), null, null, record.parseError()));
+                continue;
+            }
+            try {
+                Product product = objectMapper.convertValue(record.data(), Product.class);
+                Set<ConstraintViolation<Product>> violations = validator.validate(product);
+                if (!violations.isEmpty()) {
+                    ConstraintViolation<Product> violation = violations.iterator().next();
+                    errors.add(new BulkRecordError(record.rowIndex(), record.sku(), violation.getPropertyPath().toString(), violation.getMessage()));
+                } else if (product.getVariants() != null && !product.getVariants().isEmpty()) {
+                    errors.add(new BulkRecordError(record.rowIndex(), record.sku(), "variants", "Variants cannot be created through bulk create."));
+                } else {
+                    candidates.add(new Candidate(record, product));
+                }
+            } catch (IllegalArgumentException e) {
+                errors.add(new BulkRecordError(record.rowIndex(), record.sku(), null, e.getMessage()));
+            }
+        }
+
+        // Resolve SKU conflicts and reference data once for the whole chunk
+        List<Product> products = candidates.stream().map(Candidate::product).toList();
+        Set<String> existingSkus = products.isEmpty() ? Set.of()
+                : new HashSet<>(productRepository.findExistingSkus(products.stream().map(Product::getSku).toList()));
+        Set<Long> attributeIds = new HashSet<>();
+        Set<String> attributeCodes = new HashSet<>();
+        for (Product product : products) {
+            if (product.getAttributeValues() != null) {
+                BulkReferenceData.collectAttributeReferences(product.getAttributeValues(), attributeIds, attributeCodes);
+            }
+        }
+        BulkReferenceData referenceData = BulkReferenceData.load(BulkReferenceData.referencedFamilyIds(products), attributeIds, attributeCodes,
+                productFamilyRepository, attributeRepository, attributeValidationService);
+
+        Set<String> chunkSkus = new HashSet<>();
+        List<Product> valid = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            BulkRecord record = candidate.record();
+            Product product = candidate.product();
+            if (existingSkus.contains(product.getSku()) || !chunkSkus.add(product.getSku())) {
+                errors.add(new BulkRecordError(record.rowIndex(), product.getSku(), "sku", "SKU '" + product.getSku() + "' already exists"));
+                continue;
+            }
+            BulkRecordError error = resolveAndValidate(record, product, referenceData);
+            if (error != null) {
+                chunkSkus.remove(product.getSku());
+                errors.add(error);
+                continue;
+            }
+            valid.add(product);
+        }
+        int[] scores = completenessScoreService.scoreAll(valid);
+        for (int i = 0; i < valid.size(); i++) {
+            valid.get(i).setCompletenessScore(scores[i]);
+        }
+
+        insert(valid);
+        List<Long> createdIds = valid.stream().map(Product::getId).toList();
+        bulkChangeJournal.recordCreated(operationId, createdIds);
+        if (!createdIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(createdIds));
+        }
+        errors.sort(Comparator.comparingLong(BulkRecordError::rowIndex));
+        return new BulkChunkResult(valid.size(), errors);
+    }
+
+    private BulkRecordError resolveAndValidate(BulkRecord record, Product product, BulkReferenceData referenceData) {
+        if (product.getStatus() == null) {
+            product.setStatus("draft");
+        }
+        if (product.getWorkflowStatus() == null) {
+            product.setWorkflowStatus("not_started");
+        }
+        if (product.getAttributeValues() == null) {
+            product.setAttributeValues(new ArrayList<>());
+        }
+
+        Set<Long> providedAttributeIds = new HashSet<>();
+        for (ProductAttributeValue pav : product.getAttributeValues()) {
+            Attribute attribute = referenceData.resolveAttribute(pav.getAttribute());
+            if (attribute == null) {
+                return new BulkRecordError(record.rowIndex(), product.getSku(), "attributeValues", "Attribute not found");
+            }
+            String invalidValue = referenceData.validateValue(attribute, pav.getValue());
+            if (invalidValue != null) {
+                return new BulkRecordError(record.rowIndex(), product.getSku(), attribute.getCode(), invalidValue);
+            }
+            pav.setAttribute(attribute);
+            pav.setProduct(product);
+            providedAttributeIds.add(attribute.getId());
+        }
+
+        if (product.getProductFamily() != null && product.getProductFamily().getId() != null) {
+            ProductFamily productFamily = referenceData.family(product.getProductFamily().getId());
+            if (productFamily == null) {
+                return new BulkRecordError(record.rowIndex(), product.getSku(), "productFamily", "Product family not found");
+            }
+            product.setProductFamily(productFamily);
+            for (Attribute requiredAttribute : productFamily.getAttributes()) {
+                if (!providedAttributeIds.contains(requiredAttribute.getId())) {
+                    return new BulkRecordError(record.rowIndex(), product.getSku(), requiredAttribute.getCode(), "Missing required attribute: " + requiredAttribute.getName());
+                }
+            }
+        } else {
+            product.setProductFamily(null);
+        }
+        return null;
+    }
+
+    /**
+     * Inserts the products with their attribute values and categories, and audits them like
+     * {@link ProductService#createProduct} does, in the caller's transaction.
+     */
+    private void insert(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT, products, products.size(), (ps, product) -> {
+            ps.setString(1, product.getSku());
+            ps.setString(2, product.getName());
+            ps.setString(3, product.getDescription());
+            ps.setString(4, product.getStatus());
+            ps.setString(5, product.getWorkflowStatus());
+            ps.setInt(6, product.getCompletenessScore());
+            ps.setObject(7, product.getProductFamily() != null ? product.getProductFamily().getId() : null);
+        });
+
+        // Generated keys are not portable across batched statements, so read the ids back in one query
+        Map<String, Long> idsBySku = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_IDS_BY_SKU, Map.of("skus", products.stream().map(Product::getSku).toList()),
+                rs -> {
+                    idsBySku.put(rs.getString("sku"), rs.getLong("id"));
+                });
+        products.forEach(product -> product.setId(idsBySku.get(product.getSku())));
+
+        List<ProductAttributeValue> attributeValues = products.stream()
+                .flatMap(product -> product.getAttributeValues().stream())
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_ATTRIBUTE_VALUE, attributeValues, attributeValues.size(), (ps, pav) -> {
+            ps.setLong(1, pav.getProduct().getId());
+            ps.setLong(2, pav.getAttribute().getId());
+            ps.setString(3, pav.getValue());
+            TypedAttributeValue.of(pav.getAttribute().getType(), pav.getValue()).setParameters(ps, 4);
+        });
+        List<Long> productIds = products.stream().map(Product::getId).toList();
+        auditLogService.logAll("CREATE", "Product", productIds, "system");
+        if (!attributeValues.isEmpty()) {
+            // The products are new, so all of their values were inserted just now
+            List<Long> attributeValueIds = namedParameterJdbcTemplate.queryForList(SELECT_ATTRIBUTE_VALUE_IDS, Map.of("productIds", productIds), Long.class);
+            auditLogService.logAll("CREATE_ATTRIBUTE_VALUE", "ProductAttributeValue", attributeValueIds, "system");
+        }
+
+        List<Object[]> categoryLinks = new ArrayList<>();
+        for (Product product : products) {
+            if (product.getCategories() != null) {
+                for (Category category : product.getCategories()) {
+                    if (category.getId() != null) {
+                        categoryLinks.add(new Object[]{product.getId(), category.getId()});
+                    }
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_CATEGORY, categoryLinks);
+    }
+
+    private record Candidate(BulkRecord record, Product product) {
+    }
+}
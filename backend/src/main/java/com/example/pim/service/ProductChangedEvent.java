@@ -0,0 +1,10 @@
+package com.example.pim.service;
+
+import java.util.Collection;
+
+/**
+ * Published whenever products are created, changed or deleted, so that derived data such as the search index can
+ * follow. Listeners that read the products back should do so after the publishing transaction has committed.
+ */
+public record ProductChangedEvent(Collection<Long> productIds) {
+}
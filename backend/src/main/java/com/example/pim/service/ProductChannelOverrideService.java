@@ -3,7 +3,6 @@ package com.example.pim.service;
 import com.example.pim.domain.Channel;
 import com.example.pim.domain.Product;
 import com.example.pim.domain.ProductChannelOverride;
-import com.example.pim.repository.ChannelRepository;
 import com.example.pim.repository.ProductChannelOverrideRepository;
 import com.example.pim.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,14 +16,14 @@ public class ProductChannelOverrideService {
 
     private final ProductChannelOverrideRepository overrideRepository;
     private final ProductRepository productRepository;
-    private final ChannelRepository channelRepository;
+    private final ReferenceDataCache referenceDataCache;
     private final AuditLogService auditLogService;
 
     @Autowired
-    public ProductChannelOverrideService(ProductChannelOverrideRepository overrideRepository, ProductRepository productRepository, ChannelRepository channelRepository, AuditLogService auditLogService) {
+    public ProductChannelOverrideService(ProductChannelOverrideRepository overrideRepository, ProductRepository productRepository, ReferenceDataCache referenceDataCache, AuditLogService auditLogService) {
         this.overrideRepository = overrideRepository;
         this.productRepository = productRepository;
-        this.channelRepository = channelRepository;
+        this.referenceDataCache = referenceDataCache;
         this.auditLogService = auditLogService;
     }
 
@@ -32,7 +31,7 @@ public class ProductChannelOverrideService {
     public ProductChannelOverride saveOverride(Long productId, Long channelId, String attributeName, String overrideValue) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new IllegalArgumentException("Product not found"));
-        Channel channel = channelRepository.findById(channelId)
+        Channel channel = referenceDataCache.channel(channelId)
                 .orElseThrow(() -> new IllegalArgumentException("Channel not found"));
 
         ProductChannelOverride override = overrideRepository.findByProductIdAndChannelId(productId, channelId).stream()
@@ -0,0 +1,312 @@
+package com.example.pim.service;
+
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory facet index: for every value of every facet (category, product family, status, workflow status and
+ * completeness band) a compressed bitmap of the ids of the products that have it. Filtering is a bitmap intersection
+ * and counting a facet value the cardinality of one, so a faceted search needs no database query beyond loading the
+ * products of the requested page. Kept current from {@link ProductChangedEvent}s the same way as the
+ * {@link ProductSearchIndex}, and built from the database when the application starts.
+ */
+@Service
+public class ProductFacetIndex {
+
+    public static final String CATEGORY = "category";
+    public static final String FAMILY = "family";
+    public static final String STATUS = "status";
+    public static final String WORKFLOW_STATUS = "workflowStatus";
+    public static final String COMPLETENESS = "completeness";
+    public static final List<String> FACETS = List.of(CATEGORY, FAMILY, STATUS, WORKFLOW_STATUS, COMPLETENESS);
+
+    private static final String SELECT_PRODUCTS = "SELECT id, status, workflow_status, completeness_score, product_family_id FROM product WHERE id IN (:ids)";
+    private static final String SELECT_PRODUCT_PAGE = "SELECT id, status, workflow_status, completeness_score, product_family_id FROM product WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_CATEGORIES = "SELECT product_id, category_id FROM product_category WHERE product_id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final int[] completenessBands;
+    private final int batchSize;
+    private final Set<Long> pendingChanges = ConcurrentHashMap.newKeySet();
+    private final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "facet-index-build"));
+    // Readers intersect and count under the read lock; changes are applied a batch at a time under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Map<String, RoaringBitmap>> facets = emptyFacets();
+    private RoaringBitmap allProducts = new RoaringBitmap();
+    private volatile boolean ready;
+    private volatile boolean closing;
+
+    @Autowired
+    public ProductFacetIndex(JdbcTemplate jdbcTemplate,
+                             @Value("${pim.facets.completeness-bands:0,50,80,100}") int[] completenessBands,
+                             @Value("${pim.facets.batch-size:1000}") int batchSize) {
+        if (completenessBands.length == 0 || completenessBands[0] != 0) {
+            throw new IllegalArgumentException("pim.facets.completeness-bands must start at 0");
+        }
+        for (int i = 1; i < completenessBands.length; i++) {
+            if (completenessBands[i] <= completenessBands[i - 1] || completenessBands[i] > 100) {
+                throw new IllegalArgumentException("pim.facets.completeness-bands must be ascending and at most 100");
+            }
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.completenessBands = completenessBands;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        buildExecutor.execute(this::build);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductChangedEvent event) {
+        pendingChanges.addAll(event.productIds());
+    }
+
+    /**
+     * Re-reads the products changed since the last run. Changes arriving during the initial build wait for it, and are
+     * then applied on top of it.
+     */
+    @Scheduled(fixedDelayString = "${pim.search.refresh-interval-ms:500}")
+    public void applyPendingChanges() {
+        while (ready && !pendingChanges.isEmpty()) {
+            List<Long> batch = new ArrayList<>(batchSize);
+            Iterator<Long> iterator = pendingChanges.iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            Map<String, Map<String, RoaringBitmap>> changed = emptyFacets();
+            RoaringBitmap existing = new RoaringBitmap();
+            try {
+                namedParameterJdbcTemplate.query(SELECT_PRODUCTS, Map.of("ids", batch), rs -> {
+                    addProduct(changed, existing, rs);
+                });
+                namedParameterJdbcTemplate.query(SELECT_CATEGORIES, Map.of("ids", batch), rs -> {
+                    add(changed, CATEGORY, rs.getString("category_id"), bitmapId(rs.getLong("product_id")));
+                });
+            } catch (DataAccessException e) {
+                // Keep the batch for the next run
+                pendingChanges.addAll(batch);
+                System.err.println("Could not update product facet index: " + e.getMessage());
+                return;
+            }
+            RoaringBitmap batchIds = new RoaringBitmap();
+            batch.forEach(id -> batchIds.add(bitmapId(id)));
+            lock.writeLock().lock();
+            try {
+                // Clear the batch from every value, then add back what the products have now; deleted products stay out
+                for (Map<String, RoaringBitmap> values : facets.values()) {
+                    values.values().forEach(bitmap -> bitmap.andNot(batchIds));
+                    values.values().removeIf(RoaringBitmap::isEmpty);
+                }
+                allProducts.andNot(batchIds);
+                allProducts.or(existing);
+                changed.forEach((facet, values) -> values.forEach((value, ids) ->
+                        facets.get(facet).computeIfAbsent(value, key -> new RoaringBitmap()).or(ids)));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Products that pass the filters, and per facet the number of products with each value. Within a facet the
+     * selected values are alternatives; across facets they must all hold. The counts of a facet apply the filters of
+     * all other facets but not its own, so they tell how many products each further choice of that facet would add.
+     *
+     * @param within  products to restrict the search to (e.g. the matches of a text query), or null for all
+     * @param filters selected values per facet name; facets without values do not filter
+     * @throws IllegalStateException while the index is still being built
+     */
+    public Result search(RoaringBitmap within, Map<String, ? extends Collection<String>> filters) {
+        if (!ready) {
+            throw new IllegalStateException("Facet index is still being built. Please retry shortly.");
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap base = within != null ? RoaringBitmap.and(allProducts, within) : allProducts.clone();
+            Map<String, RoaringBitmap> selected = new LinkedHashMap<>();
+            filters.forEach((facet, values) -> {
+                Map<String, RoaringBitmap> facetValues = facets.get(facet);
+                if (facetValues == null) {
+                    throw new IllegalArgumentException("Unknown facet '" + facet + "'.");
+                }
+                if (values != null && !values.isEmpty()) {
+                    RoaringBitmap union = new RoaringBitmap();
+                    values.forEach(value -> {
+                        RoaringBitmap ids = facetValues.get(value);
+                        if (ids != null) {
+                            union.or(ids);
+                        }
+                    });
+                    selected.put(facet, union);
+                }
+            });
+
+            RoaringBitmap matches = base.clone();
+            selected.values().forEach(matches::and);
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (String facet : FACETS) {
+                RoaringBitmap others = matches;
+                if (selected.containsKey(facet)) {
+                    others = base.clone();
+                    for (Map.Entry<String, RoaringBitmap> entry : selected.entrySet()) {
+                        if (!entry.getKey().equals(facet)) {
+                            others.and(entry.getValue());
+                        }
+                    }
+                }
+                List<Map.Entry<String, Integer>> facetCounts = new ArrayList<>();
+                for (Map.Entry<String, RoaringBitmap> value : facets.get(facet).entrySet()) {
+                    int count = RoaringBitmap.andCardinality(others, value.getValue());
+                    if (count > 0) {
+                        facetCounts.add(Map.entry(value.getKey(), count));
+                    }
+                }
+                facetCounts.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+                Map<String, Integer> ordered = new LinkedHashMap<>();
+                facetCounts.forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+                counts.put(facet, ordered);
+            }
+            return new Result(matches, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void build() {
+        Map<String, Map<String, RoaringBitmap>> built = emptyFacets();
+        RoaringBitmap builtProducts = new RoaringBitmap();
+        try {
+            long lastId = 0;
+            while (!closing) {
+                List<Long> page = new ArrayList<>(batchSize);
+                jdbcTemplate.query(SELECT_PRODUCT_PAGE, rs -> {
+                    addProduct(built, builtProducts, rs);
+                    page.add(rs.getLong("id"));
+                }, lastId, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                namedParameterJdbcTemplate.query(SELECT_CATEGORIES, Map.of("ids", page), rs -> {
+                    add(built, CATEGORY, rs.getString("category_id"), bitmapId(rs.getLong("product_id")));
+                });
+                lastId = page.get(page.size() - 1);
+            }
+            if (closing) {
+                return;
+            }
+            built.values().forEach(values -> values.values().forEach(RoaringBitmap::runOptimize));
+            builtProducts.runOptimize();
+            lock.writeLock().lock();
+            try {
+                facets = built;
+                allProducts = builtProducts;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+        } catch (DataAccessException e) {
+            System.err.println("Product facet index build failed: " + e.getMessage());
+        }
+    }
+
+    private void addProduct(Map<String, Map<String, RoaringBitmap>> target, RoaringBitmap products, ResultSet rs) throws SQLException {
+        int id = bitmapId(rs.getLong("id"));
+        products.add(id);
+        add(target, STATUS, rs.getString("status"), id);
+        add(target, WORKFLOW_STATUS, rs.getString("workflow_status"), id);
+        add(target, COMPLETENESS, completenessBand(rs.getInt("completeness_score")), id);
+        add(target, FAMILY, rs.getString("product_family_id"), id);
+    }
+
+    private static void add(Map<String, Map<String, RoaringBitmap>> target, String facet, String value, int productId) {
+        if (value != null) {
+            target.get(facet).computeIfAbsent(value, key -> new RoaringBitmap()).add(productId);
+        }
+    }
+
+    /**
+     * A product id as a bitmap entry. Bitmaps hold 32-bit ints; product ids are database identities, far below that
+     * range, and one beyond it is refused rather than stored as another product's bit.
+     *
+     * @throws IllegalStateException if the id does not fit
+     */
+    static int bitmapId(long productId) {
+        if (productId < 0 || productId > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Product id " + productId + " is outside the range the product indexes support.");
+        }
+        return (int) productId;
+    }
+
+    /**
+     * Label of the band a completeness score falls in, e.g. "50-79".
+     */
+    String completenessBand(int score) {
+        int band = 0;
+        while (band + 1 < completenessBands.length && completenessBands[band + 1] <= score) {
+            band++;
+        }
+        int from = completenessBands[band];
+        int to = band + 1 < completenessBands.length ? completenessBands[band + 1] - 1 : 100;
+        return from == to ? Integer.toString(from) : from + "-" + to;
+    }
+
+    private static Map<String, Map<String, RoaringBitmap>> emptyFacets() {
+        Map<String, Map<String, RoaringBitmap>> facets = new HashMap<>();
+        FACETS.forEach(facet -> facets.put(facet, new HashMap<>()));
+        return facets;
+    }
+
+    /**
+     * @param matches ids of the products that pass all filters
+     * @param counts  per facet, the number of products per value, most frequent first
+     */
+    public record Result(RoaringBitmap matches, Map<String, Map<String, Integer>> counts) {
+    }
+
+    @PreDestroy
+    public void close() {
+        closing = true;
+        buildExecutor.shutdown();
+        try {
+            buildExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.pim.service;
+
+/**
+ * Published when attributes are added to or removed from a product family, which changes how complete every product
+ * of that family is.
+ */
+public record ProductFamilyAttributesChangedEvent(Long productFamilyId) {
+}
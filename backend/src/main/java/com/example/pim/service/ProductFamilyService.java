@@ -1,26 +1,40 @@
 package com.example.pim.service;
 
+import com.example.pim.domain.Attribute;
 import com.example.pim.domain.ProductFamily;
+import com.example.pim.repository.AttributeRepository;
 import com.example.pim.repository.ProductFamilyRepository;
 import com.example.pim.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductFamilyService {
 
     private final ProductFamilyRepository productFamilyRepository;
     private final ProductRepository productRepository;
+    private final AttributeRepository attributeRepository;
     private final AuditLogService auditLogService;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public ProductFamilyService(ProductFamilyRepository productFamilyRepository, ProductRepository productRepository, AuditLogService auditLogService) {
+    public ProductFamilyService(ProductFamilyRepository productFamilyRepository, ProductRepository productRepository, AttributeRepository attributeRepository, AuditLogService auditLogService,
+                                ReferenceDataCache referenceDataCache, ApplicationEventPublisher eventPublisher) {
         this.productFamilyRepository = productFamilyRepository;
         this.productRepository = productRepository;
+        this.attributeRepository = attributeRepository;
         this.auditLogService = auditLogService;
+        this.referenceDataCache = referenceDataCache;
+        this.eventPublisher = eventPublisher;
     }
 
     public ProductFamily createProductFamily(ProductFamily productFamily) {
@@ -28,12 +42,65 @@ public class ProductFamilyService {
             throw new IllegalArgumentException("Product family with code '" + productFamily.getCode() + "' already exists.");
         }
         ProductFamily createdProductFamily = productFamilyRepository.save(productFamily);
+        referenceDataCache.invalidateProductFamily(createdProductFamily.getId());
         auditLogService.log("CREATE", "ProductFamily", createdProductFamily.getId(), "system"); // TODO: Replace "system" with actual username
         return createdProductFamily;
     }
 
+    /**
+     * Replaces name, attributes, completeness threshold and SKU pattern. Adding or removing attributes changes the
+     * completeness of every product in the family, so the products are rescored in the background once the change
+     * has committed. The threshold is read at publish time and needs no rescoring.
+     */
+    @Transactional
+    public ProductFamily updateProductFamily(Long id, ProductFamily productFamilyDetails) {
+        ProductFamily productFamily = productFamilyRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Product family not found"));
+
+        if (!productFamily.getCode().equals(productFamilyDetails.getCode())) {
+            throw new IllegalArgumentException("Product family code cannot be changed.");
+        }
+
+        Set<Attribute> attributes = resolveAttributes(productFamilyDetails.getAttributes());
+        boolean attributesChanged = !attributeIds(productFamily.getAttributes()).equals(attributeIds(attributes));
+        productFamily.setName(productFamilyDetails.getName());
+        productFamily.setAttributes(attributes);
+        productFamily.setCompletenessThreshold(productFamilyDetails.getCompletenessThreshold());
+        productFamily.setSkuGenerationPattern(productFamilyDetails.getSkuGenerationPattern());
+
+        ProductFamily updatedProductFamily = productFamilyRepository.save(productFamily);
+        referenceDataCache.invalidateProductFamily(id);
+        auditLogService.log("UPDATE", "ProductFamily", id, "system");
+        if (attributesChanged) {
+            eventPublisher.publishEvent(new ProductFamilyAttributesChangedEvent(id));
+        }
+        return updatedProductFamily;
+    }
+
+    private Set<Attribute> resolveAttributes(Set<Attribute> attributes) {
+        Set<Long> ids = attributeIds(attributes);
+        if (ids.contains(null)) {
+            throw new IllegalArgumentException("Attribute id is mandatory");
+        }
+        List<Attribute> found = attributeRepository.findAllById(ids);
+        if (found.size() != ids.size()) {
+            throw new IllegalArgumentException("Attribute not found");
+        }
+        return new HashSet<>(found);
+    }
+
+    private static Set<Long> attributeIds(Set<Attribute> attributes) {
+        if (attributes == null) {
+            return Set.of();
+        }
+        return attributes.stream().map(Attribute::getId).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * @return a cached, read-only copy of the family with its attributes
+     */
     public Optional<ProductFamily> getProductFamilyById(Long id) {
-        return productFamilyRepository.findById(id);
+        return referenceDataCache.productFamily(id);
     }
 
     public List<ProductFamily> getAllProductFamilies() {
@@ -50,6 +117,7 @@ public class ProductFamilyService {
         }
 
         productFamilyRepository.delete(productFamily);
+        referenceDataCache.invalidateProductFamily(id);
         auditLogService.log("DELETE", "ProductFamily", id, "system"); // TODO: Replace "system" with actual username
     }
 }
@@ -0,0 +1,9 @@
+package com.example.pim.service;
+
+import java.util.List;
+
+/**
+ * One page of a product listing or search. {@code nextCursor} is null on the last page.
+ */
+public record ProductPage(List<ProductView> items, String nextCursor) {
+}
@@ -0,0 +1,89 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Category;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductAttributeValue;
+import com.example.pim.domain.ProductVariant;
+import com.example.pim.repository.ProductAttributeValueRepository;
+import com.example.pim.repository.ProductRepository;
+import com.example.pim.repository.ProductVariantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read path for the product API. Builds {@link ProductView}s for any number of products with four queries: the
+ * products with their family, their categories, their attribute values with the attributes, and their variants with
+ * the variant attributes. Lazy associations of the entities are never touched, so the number of queries does not grow
+ * with the page size.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ProductReader {
+
+    private final ProductRepository productRepository;
+    private final ProductAttributeValueRepository productAttributeValueRepository;
+    private final ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    public ProductReader(ProductRepository productRepository, ProductAttributeValueRepository productAttributeValueRepository,
+                         ProductVariantRepository productVariantRepository) {
+        this.productRepository = productRepository;
+        this.productAttributeValueRepository = productAttributeValueRepository;
+        this.productVariantRepository = productVariantRepository;
+    }
+
+    public Optional<ProductView> read(Long id) {
+        List<ProductView> views = read(List.of(id));
+        return views.isEmpty() ? Optional.empty() : Optional.of(views.get(0));
+    }
+
+    /**
+     * Views of the given products in the given order; ids of products that do not exist are skipped.
+     */
+    public List<ProductView> read(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // Products first, so that the product references of values and variants resolve from the persistence context
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findWithFamilyByIdIn(ids).forEach(product -> products.put(product.getId(), product));
+        Map<Long, List<ProductView.CategoryRef>> categories = new HashMap<>();
+        for (Object[] row : productRepository.findCategoriesByProductIdIn(products.keySet())) {
+            categories.computeIfAbsent((Long) row[0], key -> new ArrayList<>()).add(ProductView.CategoryRef.of((Category) row[1]));
+        }
+        Map<Long, List<ProductView.AttributeValue>> attributeValues = new HashMap<>();
+        for (ProductAttributeValue value : productAttributeValueRepository.findWithAttributeByProductIdIn(products.keySet())) {
+            attributeValues.computeIfAbsent(value.getProduct().getId(), key -> new ArrayList<>()).add(ProductView.AttributeValue.of(value));
+        }
+        Map<Long, List<ProductView.Variant>> variants = new HashMap<>();
+        for (ProductVariant variant : productVariantRepository.findWithAttributesByProductIdIn(products.keySet())) {
+            variants.computeIfAbsent(variant.getProduct().getId(), key -> new ArrayList<>()).add(ProductView.Variant.of(variant));
+        }
+
+        List<ProductView> views = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = products.get(id);
+            if (product != null) {
+                views.add(new ProductView(product.getId(), product.getVersion(), product.getSku(), product.getName(),
+                        product.getDescription(), product.getStatus(), product.getWorkflowStatus(), product.getCompletenessScore(),
+                        ProductView.Family.of(product.getProductFamily()), categories.getOrDefault(id, List.of()),
+                        attributeValues.getOrDefault(id, List.of()), variants.getOrDefault(id, List.of())));
+            }
+        }
+        return views;
+    }
+
+    public List<ProductView.AttributeValue> readAttributeValues(Long productId) {
+        return productAttributeValueRepository.findWithAttributeByProductIdIn(List.of(productId)).stream()
+                .map(ProductView.AttributeValue::of)
+                .toList();
+    }
+}
@@ -0,0 +1,486 @@
+package com.example.pim.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-text index of products (SKU, name, description and attribute values) in an embedded Lucene index on local
+ * disk. Changed products are collected from {@link ProductChangedEvent}s after their transaction has committed and
+ * re-read from the database every {@code pim.search.refresh-interval-ms}, so that a bulk import costs one index update
+ * per batch rather than per row. A full rebuild keeps the old documents searchable until it has finished.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final String ID = "id";
+    private static final String SKU = "sku";
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String ATTRIBUTES = "attributes";
+    private static final String GENERATION = "generation";
+    private static final String SCHEMA = "schema";
+    // Bump whenever the document layout changes; an index written with another version is recreated on startup
+    private static final String SCHEMA_VERSION = "2";
+    private static final Sort RELEVANCE = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.LONG));
+
+    private static final String SELECT_PRODUCTS = "SELECT id, sku, name, description FROM product WHERE id IN (:ids)";
+    private static final String SELECT_PRODUCT_PAGE = "SELECT id, sku, name, description FROM product WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_ATTRIBUTE_VALUES = "SELECT product_id, attribute_value FROM product_attribute_value WHERE product_id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+    private final Directory directory;
+    private final IndexWriter indexWriter;
+    private final SearcherManager searcherManager;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "search-index-rebuild"));
+    private final Set<Long> pendingChanges = ConcurrentHashMap.newKeySet();
+    private final Object writeLock = new Object();
+    private final int batchSize;
+    private volatile long generation = System.currentTimeMillis();
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+    private volatile boolean closing;
+    private volatile LocalDateTime lastRebuild;
+
+    @Autowired
+    public ProductSearchIndex(JdbcTemplate jdbcTemplate,
+                              @Value("${pim.search.index-dir:search-index}") String indexDir,
+                              @Value("${pim.search.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.batchSize = batchSize;
+        try {
+            Path location = Paths.get(indexDir);
+            Files.createDirectories(location);
+            this.directory = FSDirectory.open(location);
+            // Lucene refuses documents whose fields disagree with the existing segments, so an index written with
+            // another layout is started afresh; verifyOnStartup then rebuilds it
+            boolean current = DirectoryReader.indexExists(directory)
+                    && SCHEMA_VERSION.equals(SegmentInfos.readLatestCommit(directory).getUserData().get(SCHEMA));
+            this.indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(current ? IndexWriterConfig.OpenMode.CREATE_OR_APPEND : IndexWriterConfig.OpenMode.CREATE));
+            this.searcherManager = new SearcherManager(indexWriter, null);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize product search index", e);
+        }
+    }
+
+    /**
+     * Checks the index against the database once the application is up and rebuilds it if they disagree, e.g. after
+     * the index directory was lost or changes were missed while the application was down.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        long indexed;
+        try {
+            searcherManager.maybeRefreshBlocking();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                indexed = searcher.getIndexReader().numDocs();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String schema = null;
+        Iterable<Map.Entry<String, String>> commitData = indexWriter.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (SCHEMA.equals(entry.getKey())) {
+                    schema = entry.getValue();
+                }
+            }
+        }
+        Long products = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Long.class);
+        if (SCHEMA_VERSION.equals(schema) && products != null && products == indexed) {
+            ready = true;
+        } else {
+            rebuild();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductChangedEvent event) {
+        pendingChanges.addAll(event.productIds());
+    }
+
+    /**
+     * Re-indexes the products changed since the last run and makes them searchable.
+     */
+    @Scheduled(fixedDelayString = "${pim.search.refresh-interval-ms:500}")
+    public void applyPendingChanges() {
+        while (!pendingChanges.isEmpty()) {
+            List<Long> batch = new ArrayList<>(batchSize);
+            Iterator<Long> iterator = pendingChanges.iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            try {
+                synchronized (writeLock) {
+                    Map<Long, Document> documents = loadDocuments(batch);
+                    for (Long id : batch) {
+                        Document document = documents.get(id);
+                        if (document != null) {
+                            indexWriter.updateDocument(new Term(ID, id.toString()), document);
+                        } else {
+                            indexWriter.deleteDocuments(new Term(ID, id.toString()));
+                        }
+                    }
+                    indexWriter.commit();
+                }
+                searcherManager.maybeRefresh();
+            } catch (IOException | DataAccessException e) {
+                // Keep the batch for the next run
+                pendingChanges.addAll(batch);
+                System.err.println("Could not update product search index: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts a full rebuild in the background unless one is already running.
+     *
+     * @return false if a rebuild was already running
+     */
+    public synchronized boolean rebuild() {
+        if (rebuilding) {
+            return false;
+        }
+        rebuilding = true;
+        rebuildExecutor.execute(this::doRebuild);
+        return true;
+    }
+
+    private void doRebuild() {
+        // Documents written by this rebuild or by incremental updates from now on carry the new generation; whatever
+        // is left with an older one afterwards belongs to products that no longer exist
+        long rebuildGeneration = System.currentTimeMillis();
+        generation = rebuildGeneration;
+        try {
+            long lastId = 0;
+            while (!closing) {
+                synchronized (writeLock) {
+                    Map<Long, Document> documents = loadPage(lastId);
+                    if (documents.isEmpty()) {
+                        break;
+                    }
+                    for (Map.Entry<Long, Document> entry : documents.entrySet()) {
+                        indexWriter.updateDocument(new Term(ID, entry.getKey().toString()), entry.getValue());
+                        lastId = entry.getKey();
+                    }
+                }
+                searcherManager.maybeRefresh();
+            }
+            if (closing) {
+                // Unfinished; the document count will not match on the next start, which rebuilds again
+                return;
+            }
+            synchronized (writeLock) {
+                indexWriter.deleteDocuments(LongPoint.newRangeQuery(GENERATION, Long.MIN_VALUE, rebuildGeneration - 1));
+                // Kept by the writer and written with every later commit
+                indexWriter.setLiveCommitData(Map.of(SCHEMA, SCHEMA_VERSION).entrySet());
+                indexWriter.commit();
+            }
+            searcherManager.maybeRefresh();
+            lastRebuild = LocalDateTime.now();
+            ready = true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Product search index rebuild failed: " + e.getMessage());
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    /**
+     * Products matching {@code query}, best match first and by id among equal scores. Every word must match a word
+     * of the name, description or attribute values; the last word also matches as a prefix, so that results follow
+     * the user's typing. An exact or prefix match on the SKU ranks highest.
+     *
+     * @param after the last hit of the previous page, or null for the first page
+     */
+    public List<Hit> search(String query, Hit after, int size) {
+        Query luceneQuery = buildQuery(query);
+        if (luceneQuery == null) {
+            return List.of();
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                // Continue from the sort key rather than a Lucene doc id, which changes whenever segments are merged. The
+                // highest doc id makes the hit that equals the key count as already returned.
+                FieldDoc afterDoc = after != null ? new FieldDoc(searcher.getIndexReader().maxDoc() - 1, after.score(),
+                        new Object[]{after.score(), after.productId()}) : null;
+                ScoreDoc[] hits = searcher.searchAfter(afterDoc, luceneQuery, size, RELEVANCE, true).scoreDocs;
+                List<Hit> results = new ArrayList<>(hits.length);
+                StoredFields storedFields = searcher.storedFields();
+                for (ScoreDoc hit : hits) {
+                    results.add(new Hit(Long.parseLong(storedFields.document(hit.doc).get(ID)), hit.score));
+                }
+                return results;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ids of all products matching {@code query}, unranked, as used to narrow faceted searches. Read from the id doc
+     * values, so no stored document is loaded.
+     */
+    public RoaringBitmap matchingIds(String query) {
+        Query luceneQuery = buildQuery(query);
+        if (luceneQuery == null) {
+            return new RoaringBitmap();
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return searcher.search(luceneQuery, new CollectorManager<IdCollector, RoaringBitmap>() {
+                    @Override
+                    public IdCollector newCollector() {
+                        return new IdCollector();
+                    }
+
+                    @Override
+                    public RoaringBitmap reduce(Collection<IdCollector> collectors) {
+                        RoaringBitmap ids = new RoaringBitmap();
+                        collectors.forEach(collector -> ids.or(collector.ids));
+                        return ids;
+                    }
+                });
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * False until the index is known to match the database; callers should fall back to a database query meanwhile.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public SearchIndexStatus status() {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return new SearchIndexStatus(searcher.getIndexReader().numDocs(), pendingChanges.size(), ready, rebuilding, lastRebuild);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Query buildQuery(String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        List<String> words = analyze(query);
+        boolean completeLastWord = Character.isWhitespace(query.charAt(query.length() - 1));
+        BooleanQuery.Builder text = new BooleanQuery.Builder();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            for (String field : List.of(NAME, DESCRIPTION, ATTRIBUTES)) {
+                float boost = NAME.equals(field) ? 3f : 1f;
+                anyField.add(new BoostQuery(new TermQuery(new Term(field, word)), boost), BooleanClause.Occur.SHOULD);
+                if (i == words.size() - 1 && !completeLastWord) {
+                    anyField.add(new BoostQuery(new PrefixQuery(new Term(field, word)), boost / 2), BooleanClause.Occur.SHOULD);
+                }
+            }
+            text.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+
+        String sku = query.trim().toLowerCase(Locale.ROOT);
+        BooleanQuery.Builder root = new BooleanQuery.Builder();
+        if (!words.isEmpty()) {
+            root.add(text.build(), BooleanClause.Occur.SHOULD);
+        }
+        root.add(new BoostQuery(new TermQuery(new Term(SKU, sku)), 10f), BooleanClause.Occur.SHOULD);
+        root.add(new BoostQuery(new PrefixQuery(new Term(SKU, sku)), 5f), BooleanClause.Occur.SHOULD);
+        return root.build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> words = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                words.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+
+    private Map<Long, Document> loadDocuments(List<Long> ids) {
+        Map<Long, Document> documents = new LinkedHashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_PRODUCTS, Map.of("ids", ids), rs -> {
+            documents.put(rs.getLong("id"), newDocument(rs.getLong("id"), rs.getString("sku"), rs.getString("name"), rs.getString("description")));
+        });
+        addAttributeValues(documents);
+        return documents;
+    }
+
+    private Map<Long, Document> loadPage(long afterId) {
+        Map<Long, Document> documents = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_PRODUCT_PAGE, rs -> {
+            documents.put(rs.getLong("id"), newDocument(rs.getLong("id"), rs.getString("sku"), rs.getString("name"), rs.getString("description")));
+        }, afterId, batchSize);
+        addAttributeValues(documents);
+        return documents;
+    }
+
+    private void addAttributeValues(Map<Long, Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.query(SELECT_ATTRIBUTE_VALUES, Map.of("ids", new HashSet<>(documents.keySet())), rs -> {
+            String value = rs.getString("attribute_value");
+            if (value != null) {
+                documents.get(rs.getLong("product_id")).add(new TextField(ATTRIBUTES, value, Field.Store.NO));
+            }
+        });
+    }
+
+    private Document newDocument(long id, String sku, String name, String description) {
+        Document document = new Document();
+        document.add(new StringField(ID, Long.toString(id), Field.Store.YES));
+        document.add(new NumericDocValuesField(ID, id));
+        document.add(new LongPoint(GENERATION, generation));
+        if (sku != null) {
+            document.add(new StringField(SKU, sku.toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        if (name != null) {
+            document.add(new TextField(NAME, name, Field.Store.NO));
+        }
+        if (description != null) {
+            document.add(new TextField(DESCRIPTION, description, Field.Store.NO));
+        }
+        return document;
+    }
+
+    public record Hit(long productId, float score) {
+    }
+
+    private static final class IdCollector extends SimpleCollector {
+        private final RoaringBitmap ids = new RoaringBitmap();
+        private NumericDocValues values;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            values = context.reader().getNumericDocValues(ID);
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (values != null && values.advanceExact(doc)) {
+                ids.add(ProductFacetIndex.bitmapId(values.longValue()));
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        // Interrupting a thread that writes to the index can close the writer, so the rebuild is asked to stop instead
+        closing = true;
+        rebuildExecutor.shutdown();
+        try {
+            rebuildExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            searcherManager.close();
+            indexWriter.close();
+            directory.close();
+        } catch (IOException e) {
+            System.err.println("Could not close product search index: " + e.getMessage());
+        }
+    }
+}
@@ -1,39 +1,65 @@
 package com.example.pim.service;
 
 import com.example.pim.domain.*;
-import com.example.pim.repository.AttributeRepository;
 import com.example.pim.repository.ProductAttributeValueRepository;
 import com.example.pim.repository.ProductRepository;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    private static final String PRODUCT_LISTING = "products";
+
     private final ProductRepository productRepository;
     private final AuditLogService auditLogService;
     private final CompletenessScoreService completenessScoreService;
     private final ProductFamilyService productFamilyService;
     private final ProductAttributeValueService productAttributeValueService;
-    private final AttributeRepository attributeRepository;
+    private final ReferenceDataCache referenceDataCache;
     private final ProductAttributeValueRepository productAttributeValueRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductAttributeQuery productAttributeQuery;
+    private final ProductReader productReader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
 
     @Autowired
-    public ProductService(ProductRepository productRepository, AuditLogService auditLogService, CompletenessScoreService completenessScoreService, ProductFamilyService productFamilyService, ProductAttributeValueService productAttributeValueService, AttributeRepository attributeRepository, ProductAttributeValueRepository productAttributeValueRepository) {
+    public ProductService(ProductRepository productRepository, AuditLogService auditLogService, CompletenessScoreService completenessScoreService, ProductFamilyService productFamilyService, ProductAttributeValueService productAttributeValueService, ReferenceDataCache referenceDataCache, ProductAttributeValueRepository productAttributeValueRepository, ProductSearchIndex productSearchIndex, ProductFacetIndex productFacetIndex, ProductAttributeQuery productAttributeQuery, ProductReader productReader, ApplicationEventPublisher eventPublisher,
+                          @Value("${pim.products.default-page-size:50}") int defaultPageSize, @Value("${pim.products.max-page-size:200}") int maxPageSize) {
         this.productRepository = productRepository;
         this.auditLogService = auditLogService;
         this.completenessScoreService = completenessScoreService;
         this.productFamilyService = productFamilyService;
         this.productAttributeValueService = productAttributeValueService;
-        this.attributeRepository = attributeRepository;
+        this.referenceDataCache = referenceDataCache;
         this.productAttributeValueRepository = productAttributeValueRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productAttributeQuery = productAttributeQuery;
+        this.productReader = productReader;
+        this.eventPublisher = eventPublisher;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     @Transactional
@@ -78,6 +104,7 @@ public class ProductService {
         Product updatedProduct = productRepository.save(createdProduct);
 
         auditLogService.log("CREATE", "Product", updatedProduct.getId(), "system"); // TODO: Replace "system" with actual username
+        eventPublisher.publishEvent(new ProductChangedEvent(List.of(updatedProduct.getId())));
         return updatedProduct;
     }
 
@@ -106,7 +133,7 @@ public class ProductService {
 
             // Check if variants are complete
             if (product.getVariants() != null && !product.getVariants().isEmpty()) {
-                List<Attribute> variantAttributes = attributeRepository.findAll().stream()
+                List<Attribute> variantAttributes = referenceDataCache.allAttributes().stream()
                         .filter(Attribute::isVariantAttribute)
                         .toList();
                 for (ProductVariant variant : product.getVariants()) {
@@ -122,6 +149,7 @@ public class ProductService {
         product.setStatus(newStatus);
         Product updatedProduct = productRepository.save(product);
         auditLogService.log("UPDATE_STATUS", "Product", updatedProduct.getId(), "system");
+        eventPublisher.publishEvent(new ProductChangedEvent(List.of(updatedProduct.getId())));
         return updatedProduct;
     }
 
@@ -149,12 +177,153 @@ public class ProductService {
         product.setCompletenessScore(completenessScoreService.calculateCompletenessScore(product));
         Product updatedProduct = productRepository.save(product);
         auditLogService.log("CHANGE_FAMILY", "Product", updatedProduct.getId(), "system");
+        eventPublisher.publishEvent(new ProductChangedEvent(List.of(updatedProduct.getId())));
         return updatedProduct;
     }
 
 
-    public List<Product> searchProducts(String query) {
-        return productRepository.findByNameContainingIgnoreCaseOrSkuContainingIgnoreCase(query, query);
+    /**
+     * Products in id order, one page at a time.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     * @param size   page size, or null for the default
+     */
+    public ProductPage listProducts(String cursor, Integer size) {
+        int pageSize = pageSize(size);
+        long afterId = cursor != null ? decodeCursor(cursor, PRODUCT_LISTING).longKey(0) : 0L;
+        return page(productRepository.findIdsAfter(afterId, Limit.of(pageSize + 1)), pageSize, PRODUCT_LISTING);
+    }
+
+    /**
+     * Relevance-ranked search over SKU, name, description and attribute values, one page at a time; pages continue
+     * after the score and id of the last hit. Falls back to a substring match on name and SKU, in id order, while the
+     * search index is still being built. A cursor keeps the mode its first page was served in, so paging through
+     * results never mixes the two orders.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     * @param size   page size, or null for the default
+     */
+    public ProductPage searchProducts(String query, String cursor, Integer size) {
+        int pageSize = pageSize(size);
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        String rankedListing = "search:" + Integer.toHexString(normalized.hashCode());
+        String substringListing = "search-like:" + Integer.toHexString(normalized.hashCode());
+        PageCursor after = null;
+        if (cursor != null) {
+            after = PageCursor.decode(cursor);
+            if (!after.listing().equals(rankedListing) && !after.listing().equals(substringListing)) {
+                throw new IllegalArgumentException("Page cursor does not belong to this search.");
+            }
+        }
+
+        if (after != null ? after.listing().equals(substringListing) : !productSearchIndex.isReady()) {
+            long afterId = after != null ? after.longKey(0) : 0L;
+            return page(productRepository.searchIdsByNameOrSkuAfter(normalized, afterId, Limit.of(pageSize + 1)), pageSize, substringListing);
+        }
+
+        ProductSearchIndex.Hit afterHit = after != null
+                ? new ProductSearchIndex.Hit(after.longKey(1), Float.intBitsToFloat((int) after.longKey(0))) : null;
+        List<ProductSearchIndex.Hit> hits = productSearchIndex.search(query, afterHit, pageSize + 1);
+        boolean more = hits.size() > pageSize;
+        if (more) {
+            hits = hits.subList(0, pageSize);
+        }
+        // Keeps the ranking; a product deleted since it was indexed is skipped
+        List<ProductView> products = productReader.read(hits.stream().map(ProductSearchIndex.Hit::productId).toList());
+        String nextCursor = null;
+        if (more) {
+            ProductSearchIndex.Hit last = hits.get(hits.size() - 1);
+            nextCursor = PageCursor.encode(rankedListing, Float.floatToIntBits(last.score()), last.productId());
+        }
+        return new ProductPage(products, nextCursor);
+    }
+
+    /**
+     * Products passing the facet filters (and matching {@code query}, if given) in id order, one page at a time,
+     * together with the total number of matches and the counts per facet value.
+     *
+     * @param filters selected values per facet, see {@link ProductFacetIndex#FACETS}
+     * @param cursor  the {@code nextCursor} of the previous page, or null for the first page
+     * @param size    page size, or null for the default
+     * @throws IllegalStateException while the facet index is still being built
+     */
+    public FacetedProductPage searchFacets(String query, Map<String, List<String>> filters, String cursor, Integer size) {
+        int pageSize = pageSize(size);
+        String normalized = query != null ? query.trim().toLowerCase(Locale.ROOT) : "";
+        String listing = "facets:" + Integer.toHexString(Objects.hash(normalized, new TreeMap<>(filters)));
+        long afterId = cursor != null ? decodeCursor(cursor, listing).longKey(0) : 0L;
+        if (afterId < 0 || afterId > Integer.MAX_VALUE) {
+            // Facet pages only ever end on an id the bitmaps hold
+            throw new IllegalArgumentException("Invalid page cursor.");
+        }
+
+        RoaringBitmap within = null;
+        if (!normalized.isEmpty()) {
+            within = productSearchIndex.isReady() ? productSearchIndex.matchingIds(query)
+                    : RoaringBitmap.bitmapOf(productRepository.findIdsByNameOrSku(normalized).stream().mapToInt(ProductFacetIndex::bitmapId).toArray());
+        }
+        ProductFacetIndex.Result result = productFacetIndex.search(within, filters);
+
+        PeekableIntIterator ids = result.matches().getIntIterator();
+        ids.advanceIfNeeded((int) afterId);
+        if (ids.hasNext() && ids.peekNext() == afterId) {
+            ids.next();
+        }
+        List<Long> pageIds = new ArrayList<>(pageSize + 1);
+        while (ids.hasNext() && pageIds.size() <= pageSize) {
+            pageIds.add((long) ids.next());
+        }
+        String nextCursor = null;
+        if (pageIds.size() > pageSize) {
+            pageIds = pageIds.subList(0, pageSize);
+            nextCursor = PageCursor.encode(listing, pageIds.get(pageSize - 1));
+        }
+        // A product deleted since the facet index last caught up is skipped
+        List<ProductView> products = productReader.read(pageIds);
+        return new FacetedProductPage(products, nextCursor, result.matches().getCardinality(), result.counts());
+    }
+
+    /**
+     * Products whose attribute values meet all predicates, in id order, one page at a time.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     * @param size   page size, or null for the default
+     */
+    public ProductPage filterByAttributes(List<AttributePredicate> predicates, String cursor, Integer size) {
+        int pageSize = pageSize(size);
+        String listing = "attributes:" + Integer.toHexString(Objects.hashCode(predicates));
+        long afterId = cursor != null ? decodeCursor(cursor, listing).longKey(0) : 0L;
+        return page(productAttributeQuery.findProductIds(predicates, afterId, pageSize + 1), pageSize, listing);
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize + ".");
+        }
+        return size;
+    }
+
+    private static PageCursor decodeCursor(String cursor, String listing) {
+        PageCursor decoded = PageCursor.decode(cursor);
+        if (!decoded.listing().equals(listing)) {
+            throw new IllegalArgumentException("Page cursor does not belong to this listing.");
+        }
+        return decoded;
+    }
+
+    /**
+     * Reads the products of a page of ids in id order, fetched with one extra id that only tells whether there is a
+     * next page.
+     */
+    private ProductPage page(List<Long> ids, int pageSize, String listing) {
+        if (ids.size() <= pageSize) {
+            return new ProductPage(productReader.read(ids), null);
+        }
+        List<Long> pageIds = ids.subList(0, pageSize);
+        return new ProductPage(productReader.read(pageIds), PageCursor.encode(listing, pageIds.get(pageSize - 1)));
     }
 
     public List<Product> getExportableProducts(int minCompletenessScore) {
@@ -0,0 +1,218 @@
+package com.example.pim.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves many products to one status, applying the same publishing rules as
+ * {@link ProductService#updateProductStatus}: the completeness threshold of the product's family (100% without a
+ * family) and a non-empty value for every variant attribute on every variant. Products are processed in chunks, each
+ * in its own transaction: one query reads the chunk's products with their family thresholds, one more finds the
+ * incomplete variants when publishing, and the status is written with a JDBC batch guarded by the {@code @Version}
+ * column. Products that fail a rule or were modified concurrently are reported and left as they were.
+ */
+@Service
+public class ProductStatusBatchUpdater {
+
+    private static final String SELECT_PRODUCTS = "SELECT p.id, p.version, p.sku, p.status, p.completeness_score, p.product_family_id, f.completeness_threshold "
+            + "FROM product p LEFT JOIN product_family f ON f.id = p.product_family_id WHERE p.id IN (:ids)";
+    // First missing variant attribute per product: variants in id order, then attributes in id order
+    private static final String SELECT_INCOMPLETE_VARIANTS = "SELECT v.product_id, v.sku, a.name FROM product_variant v "
+            + "JOIN attribute a ON a.variant_attribute = TRUE "
+            + "LEFT JOIN product_variant_attributes va ON va.product_variant_id = v.id AND va.attribute_name = a.name "
+            + "WHERE v.product_id IN (:productIds) AND (va.attribute_value IS NULL OR va.attribute_value = '') "
+            + "ORDER BY v.product_id, v.id, a.id";
+    private static final String UPDATE_STATUS = "UPDATE product SET version = version + 1, status = ? WHERE id = ? AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxProducts;
+
+    @Autowired
+    public ProductStatusBatchUpdater(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, AuditLogService auditLogService,
+                                     ApplicationEventPublisher eventPublisher, @Value("${pim.bulk.chunk-size:500}") int batchSize,
+                                     @Value("${pim.products.max-status-change-size:50000}") int maxProducts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.auditLogService = auditLogService;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxProducts = maxProducts;
+    }
+
+    public ProductStatusChangeResult changeStatus(ProductStatusChange change) {
+        if (change == null || change.status() == null || change.status().isEmpty()) {
+            throw new IllegalArgumentException("Status is mandatory.");
+        }
+        if (change.productIds() == null || change.productIds().isEmpty()) {
+            throw new IllegalArgumentException("At least one product id is required.");
+        }
+        if (change.productIds().contains(null)) {
+            throw new IllegalArgumentException("Product ids must not be null.");
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(change.productIds()));
+        if (ids.size() > maxProducts) {
+            throw new IllegalArgumentException("At most " + maxProducts + " products can be changed at once.");
+        }
+
+        String status = change.status();
+        int changed = 0;
+        int unchanged = 0;
+        List<ProductStatusChangeResult.Failure> failures = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            ChunkResult result;
+            try {
+                result = transactionTemplate.execute(txStatus -> changeChunk(chunk, status));
+            } catch (DataAccessException e) {
+                System.err.println("Error changing the status of products " + chunk.get(0) + ".." + chunk.get(chunk.size() - 1) + ": " + e.getMessage());
+                String message = "Could not be updated: " + e.getMostSpecificCause().getMessage();
+                chunk.forEach(id -> failures.add(new ProductStatusChangeResult.Failure(id, null, message)));
+                continue;
+            }
+            changed += result.changed;
+            unchanged += result.unchanged;
+            failures.addAll(result.failures);
+        }
+        return new ProductStatusChangeResult(status, ids.size(), changed, unchanged, failures);
+    }
+
+    private ChunkResult changeChunk(List<Long> ids, String status) {
+        Map<Long, Row> rows = new LinkedHashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_PRODUCTS, Map.of("ids", ids), rs -> {
+            Row row = new Row();
+            row.id = rs.getLong("id");
+            row.version = rs.getLong("version");
+            row.sku = rs.getString("sku");
+            row.status = rs.getString("status");
+            row.completenessScore = rs.getInt("completeness_score");
+            rs.getLong("product_family_id");
+            if (!rs.wasNull()) {
+                row.threshold = rs.getInt("completeness_threshold");
+            }
+            rows.put(row.id, row);
+        });
+
+        ChunkResult result = new ChunkResult();
+        List<Row> candidates = new ArrayList<>();
+        for (Long id : ids) {
+            Row row = rows.get(id);
+            if (row == null) {
+                result.failures.add(new ProductStatusChangeResult.Failure(id, null, "Product not found"));
+            } else if (status.equals(row.status)) {
+                result.unchanged++;
+            } else {
+                candidates.add(row);
+            }
+        }
+        if ("published".equalsIgnoreCase(status)) {
+            candidates = checkPublishable(candidates, result.failures);
+        }
+        if (candidates.isEmpty()) {
+            return result;
+        }
+
+        List<Row> updates = candidates;
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS, updates, updates.size(), (ps, row) -> {
+            ps.setString(1, status);
+            ps.setLong(2, row.id);
+            ps.setLong(3, row.version);
+        })[0];
+        List<Long> written = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            // Drivers may report SUCCESS_NO_INFO for batched statements; only an explicit 0 is a lost version check
+            if (counts[i] == 0) {
+                result.failures.add(new ProductStatusChangeResult.Failure(updates.get(i).id, updates.get(i).sku,
+                        "Product was modified by another user; its status was not changed"));
+            } else if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                written.add(updates.get(i).id);
+            }
+        }
+        if (!written.isEmpty()) {
+            auditLogService.logAll("UPDATE_STATUS", "Product", written, "system");
+            eventPublisher.publishEvent(new ProductChangedEvent(written));
+        }
+        result.changed = written.size();
+        return result;
+    }
+
+    /**
+     * @return the candidates that may be published; the others are added to {@code failures}
+     */
+    private List<Row> checkPublishable(List<Row> candidates, List<ProductStatusChangeResult.Failure> failures) {
+        List<Row> complete = new ArrayList<>();
+        for (Row row : candidates) {
+            if (row.threshold == null) {
+                if (row.completenessScore < 100) {
+                    failures.add(new ProductStatusChangeResult.Failure(row.id, row.sku, "Product must be 100% complete to be published without a product family."));
+                    continue;
+                }
+            } else if (row.completenessScore < row.threshold) {
+                failures.add(new ProductStatusChangeResult.Failure(row.id, row.sku, "Product completeness score (" + row.completenessScore
+                        + "%) is below the required threshold (" + row.threshold + "%) for publishing."));
+                continue;
+            }
+            complete.add(row);
+        }
+        if (complete.isEmpty()) {
+            return complete;
+        }
+
+        Map<Long, String> incompleteVariants = new HashMap<>();
+        Set<Long> ids = new LinkedHashSet<>();
+        complete.forEach(row -> ids.add(row.id));
+        namedParameterJdbcTemplate.query(SELECT_INCOMPLETE_VARIANTS, Map.of("productIds", ids), rs -> {
+            incompleteVariants.putIfAbsent(rs.getLong("product_id"), "Cannot publish product: Variant with SKU '" + rs.getString("sku")
+                    + "' is incomplete. Missing value for attribute '" + rs.getString("name") + "'.");
+        });
+        if (incompleteVariants.isEmpty()) {
+            return complete;
+        }
+        List<Row> publishable = new ArrayList<>();
+        for (Row row : complete) {
+            String message = incompleteVariants.get(row.id);
+            if (message != null) {
+                failures.add(new ProductStatusChangeResult.Failure(row.id, row.sku, message));
+            } else {
+                publishable.add(row);
+            }
+        }
+        return publishable;
+    }
+
+    private static final class Row {
+        long id;
+        long version;
+        String sku;
+        String status;
+        int completenessScore;
+        Integer threshold; // null without a family
+    }
+
+    private static final class ChunkResult {
+        int changed;
+        int unchanged;
+        final List<ProductStatusChangeResult.Failure> failures = new ArrayList<>();
+    }
+}
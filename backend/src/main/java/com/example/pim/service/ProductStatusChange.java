@@ -0,0 +1,9 @@
+package com.example.pim.service;
+
+import java.util.List;
+
+/**
+ * A request to move many products to one status, e.g. {@code {"productIds": [1, 2, 3], "status": "published"}}.
+ */
+public record ProductStatusChange(List<Long> productIds, String status) {
+}
@@ -0,0 +1,13 @@
+package com.example.pim.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch status change. {@code unchanged} counts products that already had the status; every product that
+ * could not be moved is listed in {@code failures} with the reason.
+ */
+public record ProductStatusChangeResult(String status, int requested, int changed, int unchanged, List<Failure> failures) {
+
+    public record Failure(Long productId, String sku, String message) {
+    }
+}
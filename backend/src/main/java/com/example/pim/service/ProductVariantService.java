@@ -2,37 +2,40 @@ package com.example.pim.service;
 
 import com.example.pim.domain.Attribute;
 import com.example.pim.domain.Product;
-import com.example.pim.domain.ProductFamily;
 import com.example.pim.domain.ProductVariant;
-import com.example.pim.repository.AttributeRepository;
 import com.example.pim.repository.ProductVariantRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductVariantService {
 
+    private static final String DUPLICATE_COMBINATION = "A product variant with the same combination of differentiating attributes already exists.";
+
     private final ProductVariantRepository productVariantRepository;
-    private final AttributeRepository attributeRepository;
+    private final ReferenceDataCache referenceDataCache;
     private final AuditLogService auditLogService;
-    private final AtomicInteger skuCounter = new AtomicInteger(1); // Fallback for basic sequential SKU generation
+    private final ProductVariantSignatures productVariantSignatures;
+    private final VariantSkuGenerator variantSkuGenerator;
 
     @Autowired
-    public ProductVariantService(ProductVariantRepository productVariantRepository, AttributeRepository attributeRepository, AuditLogService auditLogService) {
+    public ProductVariantService(ProductVariantRepository productVariantRepository, ReferenceDataCache referenceDataCache, AuditLogService auditLogService,
+                                 ProductVariantSignatures productVariantSignatures, VariantSkuGenerator variantSkuGenerator) {
         this.productVariantRepository = productVariantRepository;
-        this.attributeRepository = attributeRepository;
+        this.referenceDataCache = referenceDataCache;
         this.auditLogService = auditLogService;
+        this.productVariantSignatures = productVariantSignatures;
+        this.variantSkuGenerator = variantSkuGenerator;
     }
 
     public ProductVariant createProductVariant(Product product, ProductVariant productVariant) {
         if (productVariant.getSku() == null || productVariant.getSku().isEmpty()) {
-            productVariant.setSku(generateSku(product, productVariant));
+            productVariant.setSku(variantSkuGenerator.generate(product, productVariant.getAttributes()));
         }
 
         if (productVariantRepository.existsBySku(productVariant.getSku())) {
@@ -40,7 +43,7 @@ public class ProductVariantService {
         }
 
         // Validate differentiating attributes (US-102: Prevents variant creation without differentiating attributes)
-        List<Attribute> variantAttributes = attributeRepository.findAll().stream()
+        List<Attribute> variantAttributes = referenceDataCache.allAttributes().stream()
                 .filter(Attribute::isVariantAttribute)
                 .toList();
 
@@ -52,62 +55,28 @@ public class ProductVariantService {
             throw new IllegalArgumentException("Product variant must have at least one differentiating attribute.");
         }
 
-        // Validate variant combination uniqueness (US-102)
-        List<ProductVariant> existingVariants = productVariantRepository.findByProductId(product.getId());
-        for (ProductVariant existingVariant : existingVariants) {
-            if (areAttributeMapsEqual(existingVariant.getAttributes(), productVariant.getAttributes(), variantAttributes)) {
-                throw new IllegalArgumentException("A product variant with the same combination of differentiating attributes already exists.");
-            }
+        // Validate variant combination uniqueness (US-102): one probe of the (product_id, variant_signature) key, which
+        // the database also enforces for concurrent inserts
+        String signature = productVariantSignatures.signature(productVariant.getAttributes());
+        if (productVariantRepository.existsByProductIdAndVariantSignature(product.getId(), signature)) {
+            throw new IllegalArgumentException(DUPLICATE_COMBINATION);
         }
 
         productVariant.setProduct(product);
-        ProductVariant createdProductVariant = productVariantRepository.save(productVariant);
-        auditLogService.log("CREATE_VARIANT", "ProductVariant", createdProductVariant.getId(), "system"); // TODO: Replace "system" with actual username
-        return createdProductVariant;
-    }
-
-    private String generateSku(Product product, ProductVariant variant) {
-        ProductFamily family = product.getProductFamily();
-        if (family != null && family.getSkuGenerationPattern() != null && !family.getSkuGenerationPattern().isEmpty()) {
-            String pattern = family.getSkuGenerationPattern();
-            String sku = pattern.replace("{parent_sku}", product.getSku());
-
-            // Replace attribute placeholders, e.g., {COLOR}
-            for (Map.Entry<String, String> entry : variant.getAttributes().entrySet()) {
-                sku = sku.replace("{" + entry.getKey().toUpperCase() + "}", entry.getValue().replaceAll("\\s+", "-").toUpperCase());
-            }
-
-            // Handle invalid pattern if placeholders are not replaced
-            if (sku.contains("{") || sku.contains("}")) {
-                throw new IllegalArgumentException("Invalid SKU generation pattern or missing variant attributes for pattern: " + pattern);
-            }
-            return sku;
-        }
-
-        // Fallback to simple SKU generation
-        return product.getSku() + "-VAR-" + skuCounter.getAndIncrement();
-    }
-
-
-    private boolean areAttributeMapsEqual(Map<String, String> map1, Map<String, String> map2, List<Attribute> variantAttributes) {
-        if (map1 == null || map2 == null) {
-            return map1 == map2;
-        }
-
-        for (Attribute attr : variantAttributes) {
-            String attrName = attr.getName();
-            String value1 = map1.get(attrName);
-            String value2 = map2.get(attrName);
-
-            if (value1 == null && value2 == null) {
-                continue;
+        productVariant.setVariantSignature(signature);
+        ProductVariant createdProductVariant;
+        try {
+            createdProductVariant = productVariantRepository.save(productVariant);
+        } catch (DataIntegrityViolationException e) {
+            if (productVariantRepository.existsByProductIdAndVariantSignature(product.getId(), signature)) {
+                throw new IllegalArgumentException(DUPLICATE_COMBINATION);
             }
-            if (value1 == null || value2 == null || !value1.equals(value2)) {
-                return false;
+            if (productVariantRepository.existsBySku(productVariant.getSku())) {
+                throw new IllegalArgumentException("SKU '" + productVariant.getSku() + "' already exists");
             }
+            throw e;
         }
-        return true;
+        auditLogService.log("CREATE_VARIANT", "ProductVariant", createdProductVariant.getId(), "system"); // TODO: Replace "system" with actual username
+        return createdProductVariant;
     }
 }
-
-
@@ -0,0 +1,208 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Signatures of product variants: a SHA-256 hash of the variant's values for the variant attributes, so that two
+ * variants of a product have the same signature exactly when they have the same differentiating values. The
+ * signature is stored on the variant under a unique (product_id, variant_signature) constraint, which turns the
+ * duplicate check into one indexed probe and lets the database reject duplicates inserted concurrently.
+ *
+ * <p>Signatures depend on which attributes are variant attributes and on their names, so they are recomputed for all
+ * variants when those change. Variants that become duplicates of an older variant of their product through such a
+ * change keep no signature and are returned to the caller, which may reject the change.
+ */
+@Service
+public class ProductVariantSignatures {
+
+    private static final String SELECT_VARIANT_ATTRIBUTE_NAMES = "SELECT name FROM attribute WHERE variant_attribute = TRUE";
+    private static final String SELECT_PRODUCT_IDS = "SELECT DISTINCT product_id FROM product_variant WHERE product_id > ? ORDER BY product_id LIMIT ?";
+    private static final String SELECT_VARIANTS = "SELECT v.id, v.product_id, v.variant_signature, va.attribute_name, va.attribute_value FROM product_variant v "
+            + "LEFT JOIN product_variant_attributes va ON va.product_variant_id = v.id WHERE v.product_id IN (:productIds) ORDER BY v.product_id, v.id";
+    private static final String UPDATE_SIGNATURE = "UPDATE product_variant SET variant_signature = ? WHERE id = ?";
+    private static final String EXISTS_UNSIGNED = "SELECT COUNT(*) FROM product_variant WHERE variant_signature IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReferenceDataCache referenceDataCache;
+    private final int batchSize;
+
+    @Autowired
+    public ProductVariantSignatures(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ReferenceDataCache referenceDataCache,
+                                    @Value("${pim.bulk.chunk-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.referenceDataCache = referenceDataCache;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the signature of a variant with these attribute values under the current variant attributes
+     */
+    public String signature(Map<String, String> attributes) {
+        return signature(attributes, variantAttributeNames());
+    }
+
+    /**
+     * @return the names of the current variant attributes, for signing many variants with {@link #signature(Map, Collection)}
+     */
+    public Set<String> variantAttributeNames() {
+        Set<String> names = new HashSet<>();
+        for (Attribute attribute : referenceDataCache.allAttributes()) {
+            if (attribute.isVariantAttribute()) {
+                names.add(attribute.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Hashes the non-null values of the given attributes in name order. Names and values are length-prefixed, so no
+     * two different sets of values encode alike.
+     */
+    public static String signature(Map<String, String> attributes, Collection<String> variantAttributeNames) {
+        StringBuilder canonical = new StringBuilder();
+        if (attributes != null) {
+            for (String name : new TreeSet<>(variantAttributeNames)) {
+                String value = attributes.get(name);
+                if (value != null) {
+                    canonical.append(name.length()).append(':').append(name).append(value.length()).append(':').append(value);
+                }
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Every Java platform must provide it
+        }
+    }
+
+    /**
+     * Recomputes the signatures of all variants from the current variant attributes, a page of products at a time.
+     * Joins the caller's transaction, if any, so that it sees the attribute change that made it necessary, and so that
+     * rolling it back also undoes the recompute.
+     */
+    public Recomputation recomputeAll() {
+        Set<String> names = new HashSet<>(jdbcTemplate.queryForList(SELECT_VARIANT_ATTRIBUTE_NAMES, String.class));
+        long lastProductId = 0;
+        int changed = 0;
+        List<Long> duplicates = new ArrayList<>();
+        while (true) {
+            List<Long> productIds = jdbcTemplate.queryForList(SELECT_PRODUCT_IDS, Long.class, lastProductId, batchSize);
+            if (productIds.isEmpty()) {
+                return new Recomputation(changed, duplicates);
+            }
+            changed += transactionTemplate.execute(status -> recompute(productIds, names, duplicates));
+            lastProductId = productIds.get(productIds.size() - 1);
+        }
+    }
+
+    /**
+     * Signs the variants of earlier versions, whose signature column was added empty.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSignatures() {
+        try {
+            Long unsigned = jdbcTemplate.queryForObject(EXISTS_UNSIGNED, Long.class);
+            if (unsigned != null && unsigned > 0) {
+                Recomputation recomputation = recomputeAll();
+                if (recomputation.changed() > 0) {
+                    System.out.println("Computed variant signatures of " + recomputation.changed() + " product variants.");
+                }
+                if (!recomputation.duplicates().isEmpty()) {
+                    System.err.println("Product variants " + recomputation.duplicates() + " have the same variant attribute values as an older variant "
+                            + "of their product; they are left without a signature.");
+                }
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Could not compute variant signatures: " + e.getMessage());
+        }
+    }
+
+    private int recompute(List<Long> productIds, Set<String> names, List<Long> duplicates) {
+        Map<Long, Variant> variants = new LinkedHashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_VARIANTS, Map.of("productIds", productIds), rs -> {
+            Variant variant = variants.computeIfAbsent(rs.getLong("id"), id -> new Variant());
+            variant.productId = rs.getLong("product_id");
+            variant.signature = rs.getString("variant_signature");
+            String name = rs.getString("attribute_name");
+            if (name != null) {
+                variant.attributes.put(name, rs.getString("attribute_value"));
+            }
+        });
+
+        Map<Long, Set<String>> signaturesByProduct = new HashMap<>();
+        Map<Long, String> changes = new LinkedHashMap<>();
+        for (Map.Entry<Long, Variant> entry : variants.entrySet()) {
+            Variant variant = entry.getValue();
+            String signature = signature(variant.attributes, names);
+            // Variants are in id order, so the oldest variant keeps a signature its duplicates share
+            if (!signaturesByProduct.computeIfAbsent(variant.productId, id -> new HashSet<>()).add(signature)) {
+                duplicates.add(entry.getKey());
+                signature = null;
+            }
+            if (!Objects.equals(signature, variant.signature)) {
+                changes.put(entry.getKey(), signature);
+            }
+        }
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        // Clear first, so that variants swapping signatures never collide on the unique constraint
+        List<Map.Entry<Long, String>> updates = new ArrayList<>(changes.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_SIGNATURE, updates, updates.size(), (ps, update) -> {
+            ps.setNull(1, Types.VARCHAR);
+            ps.setLong(2, update.getKey());
+        });
+        List<Map.Entry<Long, String>> signed = updates.stream().filter(update -> update.getValue() != null).toList();
+        jdbcTemplate.batchUpdate(UPDATE_SIGNATURE, signed, signed.size(), (ps, update) -> {
+            ps.setString(1, update.getValue());
+            ps.setLong(2, update.getKey());
+        });
+        return changes.size();
+    }
+
+    /**
+     * @param changed    the number of variants whose signature changed
+     * @param duplicates ids of the variants left without a signature because an older variant of their product has the
+     *                   same variant attribute values
+     */
+    public record Recomputation(int changed, List<Long> duplicates) {
+    }
+
+    private static final class Variant {
+        long productId;
+        String signature;
+        final Map<String, String> attributes = new HashMap<>();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Category;
+import com.example.pim.domain.ProductAttributeValue;
+import com.example.pim.domain.ProductFamily;
+import com.example.pim.domain.ProductVariant;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A product as returned by the API: its own columns plus flat copies of the family, categories, attribute values and
+ * variants it refers to, without back references or lazy associations. Built by {@link ProductReader}.
+ */
+public record ProductView(Long id, Long version, String sku, String name, String description, String status,
+                          String workflowStatus, int completenessScore, Family productFamily, List<CategoryRef> categories,
+                          List<AttributeValue> attributeValues, List<Variant> variants) {
+
+    public record Family(Long id, String code, String name) {
+
+        static Family of(ProductFamily family) {
+            return family != null ? new Family(family.getId(), family.getCode(), family.getName()) : null;
+        }
+    }
+
+    public record CategoryRef(Long id, String name, String slug) {
+
+        static CategoryRef of(Category category) {
+            return new CategoryRef(category.getId(), category.getName(), category.getSlug());
+        }
+    }
+
+    public record AttributeValue(Long id, Long attributeId, String attributeCode, String attributeName, String type, String value) {
+
+        public static AttributeValue of(ProductAttributeValue value) {
+            return new AttributeValue(value.getId(), value.getAttribute().getId(), value.getAttribute().getCode(),
+                    value.getAttribute().getName(), value.getAttribute().getType(), value.getValue());
+        }
+    }
+
+    public record Variant(Long id, String sku, String name, Map<String, String> attributes) {
+
+        public static Variant of(ProductVariant variant) {
+            return new Variant(variant.getId(), variant.getSku(), variant.getName(),
+                    variant.getAttributes() != null ? Map.copyOf(variant.getAttributes()) : Map.of());
+        }
+    }
+}
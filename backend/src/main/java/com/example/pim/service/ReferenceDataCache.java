@@ -0,0 +1,215 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Category;
+import com.example.pim.domain.Channel;
+import com.example.pim.domain.ProductFamily;
+import com.example.pim.repository.AttributeRepository;
+import com.example.pim.repository.CategoryRepository;
+import com.example.pim.repository.ChannelRepository;
+import com.example.pim.repository.ProductFamilyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of the reference data that product writes look up over and over: attributes, product
+ * families (with their attributes), categories and channels. Entries are detached copies that no persistence context
+ * manages, so they can be shared between threads and used as association targets; callers must treat them as
+ * read-only. The services that write reference data invalidate the affected entries, once right away and once more
+ * when their transaction has completed, so a lookup racing with the write cannot keep the old row. Entries also expire
+ * after a while, which bounds staleness after changes made outside these services.
+ */
+@Service
+public class ReferenceDataCache {
+
+    private static final String ALL = "all";
+
+    private final AttributeRepository attributeRepository;
+    private final ProductFamilyRepository productFamilyRepository;
+    private final CategoryRepository categoryRepository;
+    private final ChannelRepository channelRepository;
+    private final TransactionTemplate readTransaction;
+
+    private final Cache<Long, Optional<Attribute>> attributes;
+    private final Cache<String, List<Attribute>> attributeLists;
+    private final Cache<Long, Optional<ProductFamily>> productFamilies;
+    private final Cache<Long, Optional<Category>> categories;
+    private final Cache<Long, Optional<Channel>> channels;
+
+    @Autowired
+    public ReferenceDataCache(AttributeRepository attributeRepository, ProductFamilyRepository productFamilyRepository, CategoryRepository categoryRepository,
+                              ChannelRepository channelRepository, PlatformTransactionManager transactionManager,
+                              @Value("${pim.reference-cache.maximum-size:10000}") long maximumSize,
+                              @Value("${pim.reference-cache.expire-after-write-seconds:600}") long expireAfterWriteSeconds) {
+        this.attributeRepository = attributeRepository;
+        this.productFamilyRepository = productFamilyRepository;
+        this.categoryRepository = categoryRepository;
+        this.channelRepository = channelRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.attributes = newCache(maximumSize, expireAfterWriteSeconds);
+        this.attributeLists = newCache(1, expireAfterWriteSeconds);
+        this.productFamilies = newCache(maximumSize, expireAfterWriteSeconds);
+        this.categories = newCache(maximumSize, expireAfterWriteSeconds);
+        this.channels = newCache(maximumSize, expireAfterWriteSeconds);
+    }
+
+    private static <K, V> Cache<K, V> newCache(long maximumSize, long expireAfterWriteSeconds) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Attribute> attribute(Long id) {
+        return attributes.get(id, key -> load(() -> attributeRepository.findById(key).map(ReferenceDataCache::copy)));
+    }
+
+    public List<Attribute> allAttributes() {
+        return attributeLists.get(ALL, key -> load(() -> attributeRepository.findAll().stream().map(ReferenceDataCache::copy).toList()));
+    }
+
+    /**
+     * @return the family with its attributes loaded
+     */
+    public Optional<ProductFamily> productFamily(Long id) {
+        return productFamilies.get(id, key -> load(() -> productFamilyRepository.findWithAttributesById(key).map(ReferenceDataCache::copy)));
+    }
+
+    /**
+     * @return the category with its chain of parents, but without its children
+     */
+    public Optional<Category> category(Long id) {
+        return categories.get(id, key -> load(() -> categoryRepository.findById(key).map(ReferenceDataCache::copy)));
+    }
+
+    public Optional<Channel> channel(Long id) {
+        return channels.get(id, key -> load(() -> channelRepository.findById(key).map(ReferenceDataCache::copy)));
+    }
+
+    /**
+     * Families hold copies of their attributes, so they are dropped along with the attribute.
+     */
+    public void invalidateAttribute(Long id) {
+        invalidate(() -> {
+            attributes.invalidate(id);
+            attributeLists.invalidateAll();
+            productFamilies.invalidateAll();
+        });
+    }
+
+    public void invalidateProductFamily(Long id) {
+        invalidate(() -> productFamilies.invalidate(id));
+    }
+
+    /**
+     * Deleting a category deletes its subtree, and cached categories hold copies of their parents, so all categories
+     * are dropped.
+     */
+    public void invalidateCategories() {
+        invalidate(categories::invalidateAll);
+    }
+
+    public void invalidateChannel(Long id) {
+        invalidate(() -> channels.invalidate(id));
+    }
+
+    public void invalidateAll() {
+        invalidate(() -> {
+            attributes.invalidateAll();
+            attributeLists.invalidateAll();
+            productFamilies.invalidateAll();
+            categories.invalidateAll();
+            channels.invalidateAll();
+        });
+    }
+
+    public List<ReferenceDataCacheStats> stats() {
+        return List.of(stats("attributes", attributes), stats("attributeLists", attributeLists), stats("productFamilies", productFamilies),
+                stats("categories", categories), stats("channels", channels));
+    }
+
+    private static ReferenceDataCacheStats stats(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new ReferenceDataCacheStats(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+
+    private <T> T load(Supplier<T> loader) {
+        return readTransaction.execute(status -> loader.get());
+    }
+
+    private void invalidate(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private static Attribute copy(Attribute attribute) {
+        Attribute copy = new Attribute();
+        copy.setId(attribute.getId());
+        copy.setCode(attribute.getCode());
+        copy.setName(attribute.getName());
+        copy.setType(attribute.getType());
+        copy.setValidationRegex(attribute.getValidationRegex());
+        copy.setDefaultValue(attribute.getDefaultValue());
+        copy.setVariantAttribute(attribute.isVariantAttribute());
+        return copy;
+    }
+
+    private static ProductFamily copy(ProductFamily productFamily) {
+        ProductFamily copy = new ProductFamily();
+        copy.setId(productFamily.getId());
+        copy.setCode(productFamily.getCode());
+        copy.setName(productFamily.getName());
+        copy.setCompletenessThreshold(productFamily.getCompletenessThreshold());
+        copy.setSkuGenerationPattern(productFamily.getSkuGenerationPattern());
+        copy.setAttributes(new HashSet<>());
+        if (productFamily.getAttributes() != null) {
+            productFamily.getAttributes().forEach(attribute -> copy.getAttributes().add(copy(attribute)));
+        }
+        return copy;
+    }
+
+    private static Category copy(Category category) {
+        Category copy = new Category();
+        copy.setId(category.getId());
+        copy.setName(category.getName());
+        copy.setSlug(category.getSlug());
+        copy.setLevel(category.getLevel());
+        if (category.getParent() != null) {
+            copy.setParent(copy(category.getParent()));
+        }
+        return copy;
+    }
+
+    private static Channel copy(Channel channel) {
+        Channel copy = new Channel();
+        copy.setId(channel.getId());
+        copy.setCode(channel.getCode());
+        copy.setName(channel.getName());
+        copy.setDescription(channel.getDescription());
+        copy.setActive(channel.isActive());
+        return copy;
+    }
+}
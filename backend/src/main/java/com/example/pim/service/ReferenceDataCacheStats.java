@@ -0,0 +1,7 @@
+package com.example.pim.service;
+
+/**
+ * Size and hit/miss counters of one reference data cache since startup, as reported to administrators.
+ */
+public record ReferenceDataCacheStats(String cache, long size, long hits, long misses, double hitRate, long evictions) {
+}
@@ -0,0 +1,9 @@
+package com.example.pim.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of the product search index as reported to administrators.
+ */
+public record SearchIndexStatus(int documents, int pendingChanges, boolean ready, boolean rebuilding, LocalDateTime lastRebuild) {
+}
@@ -0,0 +1,117 @@
+package com.example.pim.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * A product family's SKU generation pattern, parsed once into literal text and placeholders: {@code {parent_sku}}, the
+ * product's SKU; {@code {seq}}, the next number of a {@link SkuSequenceService} scope; and {@code {NAME}}, the
+ * variant's value of the attribute whose name upper-cased is {@code NAME}, with whitespace turned into dashes and
+ * upper-cased. Patterns are immutable and can be shared between threads.
+ */
+public final class SkuPattern {
+
+    /**
+     * Used for products whose family has no pattern. Variant SKUs must be alphanumeric, so it has no separators.
+     */
+    public static final SkuPattern FALLBACK = compile("{parent_sku}VAR{seq}");
+
+    private static final String PARENT_SKU = "parent_sku";
+    private static final String SEQUENCE = "seq";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String pattern;
+    private final List<Segment> segments;
+    private final boolean usesSequence;
+
+    private SkuPattern(String pattern, List<Segment> segments) {
+        this.pattern = pattern;
+        this.segments = segments;
+        this.usesSequence = segments.stream().anyMatch(segment -> segment.kind == Kind.SEQUENCE);
+    }
+
+    public static SkuPattern compile(String pattern) {
+        List<Segment> segments = new ArrayList<>();
+        int from = 0;
+        while (from < pattern.length()) {
+            int open = pattern.indexOf('{', from);
+            String literal = pattern.substring(from, open < 0 ? pattern.length() : open);
+            if (literal.indexOf('}') >= 0) {
+                throw invalid(pattern);
+            }
+            if (!literal.isEmpty()) {
+                segments.add(new Segment(Kind.LITERAL, literal));
+            }
+            if (open < 0) {
+                break;
+            }
+            int close = pattern.indexOf('}', open);
+            if (close < 0 || pattern.lastIndexOf('{', close) != open) {
+                throw invalid(pattern);
+            }
+            String name = pattern.substring(open + 1, close);
+            if (PARENT_SKU.equals(name)) {
+                segments.add(new Segment(Kind.PARENT_SKU, name));
+            } else if (SEQUENCE.equals(name)) {
+                segments.add(new Segment(Kind.SEQUENCE, name));
+            } else {
+                segments.add(new Segment(Kind.ATTRIBUTE, name));
+            }
+            from = close + 1;
+        }
+        return new SkuPattern(pattern, List.copyOf(segments));
+    }
+
+    public boolean usesSequence() {
+        return usesSequence;
+    }
+
+    /**
+     * @param sequence draws the number for {@code {seq}}; only called if the pattern uses it
+     * @throws IllegalArgumentException if the variant has no value for an attribute placeholder
+     */
+    public String render(String parentSku, Map<String, String> variantAttributes, LongSupplier sequence) {
+        Map<String, String> values = new HashMap<>();
+        if (variantAttributes != null) {
+            variantAttributes.forEach((name, value) -> {
+                if (value != null) {
+                    values.putIfAbsent(name.toUpperCase(), value);
+                }
+            });
+        }
+        StringBuilder sku = new StringBuilder();
+        for (Segment segment : segments) {
+            switch (segment.kind) {
+                case LITERAL -> sku.append(segment.text);
+                case PARENT_SKU -> sku.append(parentSku);
+                case SEQUENCE -> sku.append(sequence.getAsLong());
+                case ATTRIBUTE -> {
+                    String value = values.get(segment.text);
+                    if (value == null) {
+                        throw invalid(pattern);
+                    }
+                    sku.append(WHITESPACE.matcher(value).replaceAll("-").toUpperCase());
+                }
+            }
+        }
+        if (sku.indexOf("{") >= 0 || sku.indexOf("}") >= 0) {
+            throw invalid(pattern);
+        }
+        return sku.toString();
+    }
+
+    private static IllegalArgumentException invalid(String pattern) {
+        return new IllegalArgumentException("Invalid SKU generation pattern or missing variant attributes for pattern: " + pattern);
+    }
+
+    private enum Kind {
+        LITERAL, PARENT_SKU, SEQUENCE, ATTRIBUTE
+    }
+
+    private record Segment(Kind kind, String text) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.pim.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out numbers for generated SKUs, hi/lo style: a block of numbers per scope is reserved with one update of the
+ * scope's {@code sku_sequence} row, in a transaction of its own, and then handed out from memory. Numbers are unique
+ * across restarts and application instances; the rest of a block is skipped when an instance stops, so they are not
+ * gapless.
+ */
+@Service
+public class SkuSequenceService {
+
+    private static final String ADVANCE = "UPDATE sku_sequence SET next_value = next_value + ? WHERE scope = ?";
+    private static final String SELECT_NEXT_VALUE = "SELECT next_value FROM sku_sequence WHERE scope = ?";
+    private static final String INSERT = "INSERT INTO sku_sequence (scope, next_value) VALUES (?, ?)";
+    private static final long FIRST_VALUE = 1;
+    // Only the first reservation of a scope can lose the race to insert its row; the next attempt advances that row
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SkuSequenceService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              @Value("${pim.sku-sequence.block-size:100}") int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("pim.sku-sequence.block-size must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The reservation must not wait for, or be rolled back with, the caller's transaction
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return the next number of the scope, starting at 1
+     */
+    public long next(String scope) {
+        Block block = blocks.computeIfAbsent(scope, key -> new Block());
+        synchronized (block) {
+            if (block.next >= block.limit) {
+                long limit = reserve(scope);
+                block.next = limit - blockSize;
+                block.limit = limit;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * @return the exclusive upper bound of the reserved block
+     * @throws IllegalStateException if the scope's row keeps colliding with another
+     */
+    private long reserve(String scope) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    if (jdbcTemplate.update(ADVANCE, blockSize, scope) == 0) {
+                        jdbcTemplate.update(INSERT, scope, FIRST_VALUE + blockSize);
+                    }
+                    return jdbcTemplate.queryForObject(SELECT_NEXT_VALUE, Long.class, scope);
+                });
+            } catch (DuplicateKeyException e) {
+                // Another instance created the scope's row first; advance it instead
+                if (attempt == MAX_RESERVE_ATTEMPTS) {
+                    throw new IllegalStateException("Could not reserve SKU numbers for scope '" + scope + "'", e);
+                }
+            }
+        }
+    }
+
+    private static final class Block {
+        long next;
+        long limit;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.ProductAttributeValue;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Typed copies of an attribute value, derived from the raw string according to {@code Attribute.type} and stored next
+ * to it so that values can be compared in the database through an index, e.g. "weight between 2 and 5". NUMBER values
+ * get a number and BOOLEAN values a boolean when they parse; every value gets a normalized text (Unicode-normalized,
+ * trimmed, single-spaced, lower case) for case-insensitive equality and prefix matching.
+ */
+public record TypedAttributeValue(BigDecimal numericValue, Boolean booleanValue, String normalizedValue) {
+
+    public static final String NUMBER = "NUMBER";
+    public static final String BOOLEAN = "BOOLEAN";
+
+    // Length of the normalized_value column; longer values are compared on their first characters only
+    static final int MAX_NORMALIZED_LENGTH = 255;
+
+    // A number, optionally followed by a unit ("2.5", "2,5 kg", "-3e2", "40%")
+    private static final Pattern NUMBER_WITH_UNIT = Pattern.compile("([+-]?(?:\\d+(?:[.,]\\d*)?|[.,]\\d+)(?:[eE][+-]?\\d+)?)\\s*[\\p{L}%°\"']*");
+    private static final Set<String> TRUE_VALUES = Set.of("true", "yes", "y", "1", "on");
+    private static final Set<String> FALSE_VALUES = Set.of("false", "no", "n", "0", "off");
+
+    private static final TypedAttributeValue NONE = new TypedAttributeValue(null, null, null);
+
+    public static TypedAttributeValue of(String type, String value) {
+        if (value == null) {
+            return NONE;
+        }
+        String normalized = normalize(value);
+        return new TypedAttributeValue(NUMBER.equalsIgnoreCase(type) ? parseNumber(normalized) : null,
+                BOOLEAN.equalsIgnoreCase(type) ? parseBoolean(normalized) : null, normalized);
+    }
+
+    public static String normalize(String value) {
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.length() > MAX_NORMALIZED_LENGTH ? normalized.substring(0, MAX_NORMALIZED_LENGTH) : normalized;
+    }
+
+    /**
+     * @return the number, or null if the value is not a number
+     */
+    public static BigDecimal parseNumber(String value) {
+        Matcher matcher = NUMBER_WITH_UNIT.matcher(value.strip());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new BigDecimal(matcher.group(1).replace(',', '.'));
+    }
+
+    /**
+     * @return the boolean, or null if the value is not one of the usual spellings of yes or no
+     */
+    public static Boolean parseBoolean(String value) {
+        String normalized = value.strip().toLowerCase(Locale.ROOT);
+        if (TRUE_VALUES.contains(normalized)) {
+            return Boolean.TRUE;
+        }
+        return FALSE_VALUES.contains(normalized) ? Boolean.FALSE : null;
+    }
+
+    public void applyTo(ProductAttributeValue productAttributeValue) {
+        productAttributeValue.setNumericValue(numericValue);
+        productAttributeValue.setBooleanValue(booleanValue);
+        productAttributeValue.setNormalizedValue(normalizedValue);
+    }
+
+    /**
+     * Binds numeric, boolean and normalized value, in that order, starting at parameter {@code index}.
+     */
+    void setParameters(PreparedStatement ps, int index) throws SQLException {
+        ps.setBigDecimal(index, numericValue);
+        ps.setObject(index + 1, booleanValue, Types.BOOLEAN);
+        ps.setString(index + 2, normalizedValue);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductVariant;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates the variants of a product for every combination of the given values of its variant attributes. The
+ * product's existing variants are read once, by signature (see {@link ProductVariantSignatures}), and combinations
+ * that already exist are skipped. SKUs come from {@link VariantSkuGenerator}; the variants and their attribute rows
+ * are inserted with JDBC batch statements in one transaction, so either the whole matrix is created or nothing is.
+ * Variants created concurrently with the same SKU or combination fail the insert on the unique constraints.
+ */
+@Service
+public class VariantMatrixGenerator {
+
+    private static final String SELECT_SIGNATURES = "SELECT variant_signature FROM product_variant WHERE product_id = ? AND variant_signature IS NOT NULL";
+    private static final String SELECT_EXISTING_SKUS = "SELECT sku FROM product_variant WHERE sku IN (:skus)";
+    private static final String INSERT_VARIANT = "INSERT INTO product_variant (product_id, sku, name, variant_signature) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_VARIANT_IDS = "SELECT id, variant_signature FROM product_variant WHERE product_id = :productId AND variant_signature IN (:signatures)";
+    private static final String INSERT_VARIANT_ATTRIBUTE = "INSERT INTO product_variant_attributes (product_variant_id, attribute_name, attribute_value) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ProductVariantSignatures productVariantSignatures;
+    private final VariantSkuGenerator variantSkuGenerator;
+    private final AuditLogService auditLogService;
+    private final Validator validator;
+    private final int maxCombinations;
+
+    @Autowired
+    public VariantMatrixGenerator(JdbcTemplate jdbcTemplate, ProductVariantSignatures productVariantSignatures, VariantSkuGenerator variantSkuGenerator,
+                                  AuditLogService auditLogService, Validator validator, @Value("${pim.variants.max-matrix-size:5000}") int maxCombinations) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.productVariantSignatures = productVariantSignatures;
+        this.variantSkuGenerator = variantSkuGenerator;
+        this.auditLogService = auditLogService;
+        this.validator = validator;
+        this.maxCombinations = maxCombinations;
+    }
+
+    @Transactional
+    public VariantMatrixResult generate(Product product, VariantMatrixRequest request) {
+        Map<String, List<String>> axes = axes(request);
+        List<Map<String, String>> combinations = combinations(axes);
+
+        Set<String> variantAttributeNames = productVariantSignatures.variantAttributeNames();
+        Set<String> existingSignatures = new HashSet<>(jdbcTemplate.queryForList(SELECT_SIGNATURES, String.class, product.getId()));
+        List<Map<String, String>> missing = new ArrayList<>();
+        List<String> signatures = new ArrayList<>();
+        for (Map<String, String> combination : combinations) {
+            String signature = ProductVariantSignatures.signature(combination, variantAttributeNames);
+            if (!existingSignatures.contains(signature)) {
+                missing.add(combination);
+                signatures.add(signature);
+            }
+        }
+        if (missing.isEmpty()) {
+            return new VariantMatrixResult(combinations.size(), 0, combinations.size(), List.of());
+        }
+
+        List<String> skus = variantSkuGenerator.generateAll(product, missing);
+        checkSkus(skus);
+        List<String> names = new ArrayList<>(missing.size());
+        for (Map<String, String> combination : missing) {
+            names.add(product.getName() + " - " + String.join(" / ", combination.values()));
+        }
+
+        List<Integer> indexes = new ArrayList<>(missing.size());
+        for (int i = 0; i < missing.size(); i++) {
+            indexes.add(i);
+        }
+        jdbcTemplate.batchUpdate(INSERT_VARIANT, indexes, indexes.size(), (ps, i) -> {
+            ps.setLong(1, product.getId());
+            ps.setString(2, skus.get(i));
+            ps.setString(3, names.get(i));
+            ps.setString(4, signatures.get(i));
+        });
+        // Signatures are unique per product, so they identify the new rows
+        Map<String, Long> idsBySignature = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_VARIANT_IDS, Map.of("productId", product.getId(), "signatures", signatures), rs -> {
+            idsBySignature.put(rs.getString("variant_signature"), rs.getLong("id"));
+        });
+
+        List<Object[]> attributeRows = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(missing.size());
+        List<ProductView.Variant> variants = new ArrayList<>(missing.size());
+        for (int i = 0; i < missing.size(); i++) {
+            Long id = idsBySignature.get(signatures.get(i));
+            ids.add(id);
+            missing.get(i).forEach((name, value) -> attributeRows.add(new Object[]{id, name, value}));
+            variants.add(new ProductView.Variant(id, skus.get(i), names.get(i), missing.get(i)));
+        }
+        jdbcTemplate.batchUpdate(INSERT_VARIANT_ATTRIBUTE, attributeRows, attributeRows.size(), (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setString(2, (String) row[1]);
+            ps.setString(3, (String) row[2]);
+        });
+        auditLogService.logAll("CREATE_VARIANT", "ProductVariant", ids, "system");
+        return new VariantMatrixResult(combinations.size(), missing.size(), combinations.size() - missing.size(), variants);
+    }
+
+    /**
+     * @return the axes with their values de-duplicated, in request order
+     */
+    private Map<String, List<String>> axes(VariantMatrixRequest request) {
+        if (request == null || request.axes() == null || request.axes().isEmpty()) {
+            throw new IllegalArgumentException("At least one variant attribute with values is required.");
+        }
+        Set<String> variantAttributeNames = productVariantSignatures.variantAttributeNames();
+        Map<String, List<String>> axes = new LinkedHashMap<>();
+        long combinations = 1;
+        for (Map.Entry<String, List<String>> axis : request.axes().entrySet()) {
+            if (!variantAttributeNames.contains(axis.getKey())) {
+                throw new IllegalArgumentException("Attribute '" + axis.getKey() + "' is not a variant attribute.");
+            }
+            Set<String> values = new LinkedHashSet<>();
+            if (axis.getValue() != null) {
+                for (String value : axis.getValue()) {
+                    if (value == null || value.isBlank()) {
+                        throw new IllegalArgumentException("Values of attribute '" + axis.getKey() + "' must not be blank.");
+                    }
+                    values.add(value);
+                }
+            }
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException("Attribute '" + axis.getKey() + "' needs at least one value.");
+            }
+            combinations *= values.size();
+            if (combinations > maxCombinations) {
+                throw new IllegalArgumentException("At most " + maxCombinations + " variants can be generated at once.");
+            }
+            axes.put(axis.getKey(), List.copyOf(values));
+        }
+        return axes;
+    }
+
+    /**
+     * @return every combination of one value per axis, the last axis varying fastest
+     */
+    private static List<Map<String, String>> combinations(Map<String, List<String>> axes) {
+        List<Map<String, String>> combinations = new ArrayList<>();
+        combinations.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<String>> axis : axes.entrySet()) {
+            List<Map<String, String>> extended = new ArrayList<>(combinations.size() * axis.getValue().size());
+            for (Map<String, String> combination : combinations) {
+                for (String value : axis.getValue()) {
+                    Map<String, String> next = new LinkedHashMap<>(combination);
+                    next.put(axis.getKey(), value);
+                    extended.add(next);
+                }
+            }
+            combinations = extended;
+        }
+        return combinations;
+    }
+
+    /**
+     * The rows are inserted with JDBC, so the SKU rules of {@link ProductVariant} are checked here. The check for taken
+     * SKUs names the SKU in the error; a SKU taken after it still fails the insert on the unique constraint.
+     */
+    private void checkSkus(List<String> skus) {
+        Set<String> distinct = new HashSet<>();
+        for (String sku : skus) {
+            Set<ConstraintViolation<ProductVariant>> violations = validator.validateValue(ProductVariant.class, "sku", sku);
+            if (!violations.isEmpty()) {
+                throw new IllegalArgumentException("Generated SKU '" + sku + "' is invalid: " + violations.iterator().next().getMessage());
+            }
+            if (!distinct.add(sku)) {
+                throw new IllegalArgumentException("SKU '" + sku + "' would be generated for more than one variant. The SKU generation pattern must use every axis or {seq}.");
+            }
+        }
+        List<String> taken = namedParameterJdbcTemplate.queryForList(SELECT_EXISTING_SKUS, Map.of("skus", skus), String.class);
+        if (!taken.isEmpty()) {
+            throw new IllegalArgumentException("SKU '" + taken.get(0) + "' already exists");
+        }
+    }
+}
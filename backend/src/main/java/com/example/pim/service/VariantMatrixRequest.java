@@ -0,0 +1,11 @@
+package com.example.pim.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Values per variant attribute, by attribute name, whose combinations are to be created as variants, e.g.
+ * {@code {"axes": {"Color": ["Red", "Blue"], "Size": ["40", "41", "42"]}}}.
+ */
+public record VariantMatrixRequest(Map<String, List<String>> axes) {
+}
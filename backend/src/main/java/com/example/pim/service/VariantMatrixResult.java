@@ -0,0 +1,10 @@
+package com.example.pim.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a variant matrix generation: how many combinations the axes span, how many were created and how many
+ * were skipped because the product already had a variant with those values.
+ */
+public record VariantMatrixResult(int combinations, int created, int skipped, List<ProductView.Variant> variants) {
+}
@@ -0,0 +1,94 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductFamily;
+import com.example.pim.repository.ProductVariantRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates variant SKUs from the product family's {@link SkuPattern}, or {@link SkuPattern#FALLBACK}, drawing
+ * sequence numbers from the family's {@link SkuSequenceService} scope. Numbers whose SKU is already taken (e.g. by
+ * SKUs generated before sequences were persistent) are skipped.
+ */
+@Service
+public class VariantSkuGenerator {
+
+    private static final String SELECT_EXISTING_SKUS = "SELECT sku FROM product_variant WHERE sku IN (:skus)";
+    private static final int SKU_ATTEMPTS = 100;
+
+    private final ProductVariantRepository productVariantRepository;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final SkuSequenceService skuSequenceService;
+    // Compiled SKU generation patterns by pattern text, so a family's pattern is parsed once however often it is used
+    private final Cache<String, SkuPattern> skuPatterns = Caffeine.newBuilder().maximumSize(1000).build();
+
+    @Autowired
+    public VariantSkuGenerator(ProductVariantRepository productVariantRepository, JdbcTemplate jdbcTemplate, SkuSequenceService skuSequenceService) {
+        this.productVariantRepository = productVariantRepository;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.skuSequenceService = skuSequenceService;
+    }
+
+    public String generate(Product product, Map<String, String> variantAttributes) {
+        SkuPattern pattern = pattern(product.getProductFamily());
+        String scope = scope(product.getProductFamily());
+        String sku = pattern.render(product.getSku(), variantAttributes, () -> skuSequenceService.next(scope));
+        for (int attempt = 1; pattern.usesSequence() && attempt < SKU_ATTEMPTS && productVariantRepository.existsBySku(sku); attempt++) {
+            sku = pattern.render(product.getSku(), variantAttributes, () -> skuSequenceService.next(scope));
+        }
+        return sku;
+    }
+
+    /**
+     * Generates the SKUs of many variants of one product, checking for taken SKUs with one query per round instead of
+     * one per SKU. Patterns without {@code {seq}} render the same SKU again, so their collisions are left to the
+     * caller.
+     *
+     * @return the SKUs, in the order of {@code variantAttributes}
+     */
+    public List<String> generateAll(Product product, List<Map<String, String>> variantAttributes) {
+        SkuPattern pattern = pattern(product.getProductFamily());
+        String scope = scope(product.getProductFamily());
+        List<String> skus = new ArrayList<>(variantAttributes.size());
+        for (Map<String, String> attributes : variantAttributes) {
+            skus.add(pattern.render(product.getSku(), attributes, () -> skuSequenceService.next(scope)));
+        }
+        if (!pattern.usesSequence()) {
+            return skus;
+        }
+        for (int attempt = 1; attempt < SKU_ATTEMPTS; attempt++) {
+            Set<String> taken = new HashSet<>(namedParameterJdbcTemplate.queryForList(SELECT_EXISTING_SKUS, Map.of("skus", skus), String.class));
+            if (taken.isEmpty()) {
+                break;
+            }
+            for (int i = 0; i < skus.size(); i++) {
+                if (taken.contains(skus.get(i))) {
+                    skus.set(i, pattern.render(product.getSku(), variantAttributes.get(i), () -> skuSequenceService.next(scope)));
+                }
+            }
+        }
+        return skus;
+    }
+
+    private SkuPattern pattern(ProductFamily family) {
+        if (family != null && family.getSkuGenerationPattern() != null && !family.getSkuGenerationPattern().isEmpty()) {
+            return skuPatterns.get(family.getSkuGenerationPattern(), SkuPattern::compile);
+        }
+        return SkuPattern.FALLBACK;
+    }
+
+    private static String scope(ProductFamily family) {
+        return family != null && family.getId() != null ? "family:" + family.getId() : "default";
+    }
+}
@@ -4,7 +4,9 @@ import com.example.pim.domain.Product;
 import com.example.pim.domain.Role;
 import com.example.pim.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,16 +23,18 @@ public class WorkflowService {
     private final AuditLogService auditLogService;
     private final NotificationService notificationService;
     private final ReviewAssignmentService reviewAssignmentService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Define valid workflow transitions and required roles
     private static final List<String> VALID_WORKFLOW_STATUSES = Arrays.asList("not_started", "in_review", "approved", "rejected");
 
     @Autowired
-    public WorkflowService(ProductRepository productRepository, AuditLogService auditLogService, NotificationService notificationService, ReviewAssignmentService reviewAssignmentService) {
+    public WorkflowService(ProductRepository productRepository, AuditLogService auditLogService, NotificationService notificationService, ReviewAssignmentService reviewAssignmentService, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.auditLogService = auditLogService;
         this.notificationService = notificationService;
         this.reviewAssignmentService = reviewAssignmentService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -82,6 +86,7 @@ public class WorkflowService {
         Product updatedProduct = productRepository.save(product);
 
         auditLogService.log("UPDATE_WORKFLOW_STATUS", "Product", updatedProduct.getId(), username);
+        eventPublisher.publishEvent(new ProductChangedEvent(List.of(updatedProduct.getId())));
         try {
             notificationService.sendNotification(username, "Product Workflow Update: " + updatedProduct.getName(),
                     "Product '" + updatedProduct.getName() + "' workflow status changed from '" + oldWorkflowStatus + "' to '" + newWorkflowStatus + "' by " + username + ".");
@@ -0,0 +1,102 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttributeValidatorTest {
+
+    private final AttributeValidationService service = new AttributeValidationService(
+            new String[]{"red", "Navy"}, new String[]{"S", "M", "one size"}, 50, 100);
+
+    @Test
+    void rejectsAValueOnWhichTheRegexBacktracksPastTheTimeout() {
+        // Backtracks through every way of splitting the a's into 25 groups before giving up on the trailing b
+        AttributeValidator validator = service.compile(attribute("TEXT", "(.*a){25}"));
+        String value = "a".repeat(30) + "b";
+
+        String violation = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> validator.validate(value));
+
+        assertEquals("Value '" + value + "' could not be checked against the regex of attribute 'Attr' in time. The regex should be simplified.", violation);
+        // A short value is still judged by the regex
+        assertEquals("Value 'ab' does not match regex for attribute 'Attr'.", validator.validate("ab"));
+    }
+
+    @Test
+    void recompilesACachedValidatorOnceTheAttributeChanges() {
+        Attribute attribute = attribute("TEXT", "[0-9]+");
+        attribute.setId(1L);
+        AttributeValidator digits = service.validator(attribute);
+        assertSame(digits, service.validator(attribute));
+        assertNotNull(digits.validate("abc"));
+
+        attribute.setValidationRegex("[a-z]+");
+        assertFalse(digits.isCompiledFrom(attribute));
+        AttributeValidator letters = service.validator(attribute);
+        assertNotSame(digits, letters);
+        assertNull(letters.validate("abc"));
+        assertSame(letters, service.validator(attribute));
+
+        attribute.setType("NUMBER");
+        assertFalse(letters.isCompiledFrom(attribute));
+        assertNotNull(service.validate(attribute, "abc"));
+
+        service.invalidate(1L);
+        assertTrue(service.validator(attribute).isCompiledFrom(attribute));
+    }
+
+    @Test
+    void checksValuesAgainstTheAttributeType() {
+        AttributeValidator number = service.compile(attribute("NUMBER", null));
+        assertNull(number.validate("12.5"));
+        assertNull(number.validate("12 kg"));
+        assertEquals("Value 'twelve' is not a number for attribute 'Attr'.", number.validate("twelve"));
+
+        AttributeValidator bool = service.compile(attribute("boolean", null));
+        assertNull(bool.validate("Yes"));
+        assertNull(bool.validate("0"));
+        assertEquals("Value 'maybe' is not yes or no for attribute 'Attr'.", bool.validate("maybe"));
+
+        AttributeValidator date = service.compile(attribute("DATE", null));
+        assertNull(date.validate("2024-02-29"));
+        assertEquals("Value '2023-02-29' is not a date (YYYY-MM-DD) for attribute 'Attr'.", date.validate("2023-02-29"));
+        assertNotNull(date.validate("29.02.2024"));
+
+        AttributeValidator color = service.compile(attribute("COLOR", null));
+        assertNull(color.validate(" RED "));
+        assertNull(color.validate("navy"));
+        assertNull(color.validate("#1a2B3c"));
+        assertEquals("Value 'plaid' is not an allowed color for attribute 'Attr'.", color.validate("plaid"));
+
+        AttributeValidator size = service.compile(attribute("SIZE", null));
+        assertNull(size.validate("m"));
+        assertNull(size.validate("One Size"));
+        assertNull(size.validate("42"));
+        assertEquals("Value 'huge' is not an allowed size for attribute 'Attr'.", size.validate("huge"));
+
+        // Without configured values any color or size is allowed
+        AttributeValidator anyColor = AttributeValidator.compile(attribute("COLOR", null), Set.of(), Duration.ofMillis(50).toNanos());
+        assertNull(anyColor.validate("plaid"));
+        assertNull(service.compile(attribute("TEXT", null)).validate("anything"));
+    }
+
+    private static Attribute attribute(String type, String regex) {
+        Attribute attribute = new Attribute();
+        attribute.setCode("attr");
+        attribute.setName("Attr");
+        attribute.setType(type);
+        attribute.setValidationRegex(regex);
+        return attribute;
+    }
+}
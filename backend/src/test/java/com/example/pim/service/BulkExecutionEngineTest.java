@@ -0,0 +1,145 @@
+package com.example.pim.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class BulkExecutionEngineTest {
+
+    private final List<Long> started = new CopyOnWriteArrayList<>();
+    private final Map<Long, CountDownLatch> releases = new HashMap<>();
+    private BulkExecutionEngine engine;
+
+    @AfterEach
+    void releaseAndShutDown() {
+        releases.values().forEach(CountDownLatch::countDown);
+        engine.shutdown();
+    }
+
+    @Test
+    void dispatchesByPriorityClassThenRoundRobinBetweenOwners() throws InterruptedException {
+        engine = engine(1, 0, 0, 0);
+        submit(1, "alice", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        awaitStarted(1);
+
+        submit(2, "bob", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        submit(3, "bob", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        submit(4, "carol", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        submit(5, "erin", "PRODUCT_CREATE", BulkJobPriority.LOW);
+        submit(6, "gina", "PRODUCT_CREATE", BulkJobPriority.HIGH);
+        assertEquals(List.of(6L, 2L, 4L, 3L, 5L), engine.queuedOperationIds());
+
+        // One slot, so jobs start strictly one after the other in dispatch order
+        for (long id = 1; id <= 6; id++) {
+            release(id);
+        }
+        awaitStarted(6);
+        assertEquals(List.of(1L, 6L, 2L, 4L, 3L, 5L), started);
+    }
+
+    @Test
+    void keepsReservedSlotsForHighPriorityJobs() throws InterruptedException {
+        engine = engine(1, 1, 0, 0);
+        submit(1, "alice", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        awaitStarted(1);
+
+        submit(2, "bob", "PRODUCT_CREATE", BulkJobPriority.LOW);
+        submit(3, "carol", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        submit(4, "dave", "PRODUCT_CREATE", BulkJobPriority.HIGH);
+        awaitStarted(2);
+
+        assertEquals(List.of(1L, 4L), started);
+        assertEquals(List.of(3L, 2L), engine.queuedOperationIds());
+    }
+
+    @Test
+    void holdsJobsBackWhileTheirOwnerOrTypeIsAtItsQuota() throws InterruptedException {
+        engine = engine(3, 0, 1, 2);
+        submit(1, "alice", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        submit(2, "alice", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        submit(3, "bob", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        submit(4, "carol", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        submit(5, "dave", "COMPLETENESS_RECOMPUTE", BulkJobPriority.NORMAL);
+        awaitStarted(3);
+
+        // alice is at the per-user quota and PRODUCT_CREATE at the per-type quota; the three start concurrently
+        assertEquals(Set.of(1L, 3L, 5L), Set.copyOf(started));
+        assertEquals(List.of(2L, 4L), engine.queuedOperationIds());
+
+        // alice's next job takes the freed PRODUCT_CREATE slot; carol's still waits for the type quota
+        release(1);
+        awaitStarted(4);
+        assertEquals(2L, started.get(3));
+        assertEquals(List.of(4L), engine.queuedOperationIds());
+
+        release(3);
+        awaitStarted(5);
+        assertEquals(4L, started.get(4));
+        assertTrue(engine.queuedOperationIds().isEmpty());
+    }
+
+    @Test
+    void startsAHighPriorityJobNextToItsOwnersRunningJob() throws InterruptedException {
+        engine = engine(1, 1, 1, 0);
+        submit(1, "alice", "PRODUCT_CREATE", BulkJobPriority.NORMAL);
+        awaitStarted(1);
+
+        submit(2, "alice", "PRODUCT_CREATE", BulkJobPriority.LOW);
+        submit(3, "alice", "PRODUCT_UPDATE", BulkJobPriority.HIGH);
+        submit(4, "alice", "PRODUCT_UPDATE", BulkJobPriority.HIGH);
+        awaitStarted(2);
+
+        // The reserved slot lifts alice's quota for one HIGH job only; her LOW job still waits for her first one
+        assertEquals(List.of(1L, 3L), started);
+        assertEquals(List.of(4L, 2L), engine.queuedOperationIds());
+
+        release(1);
+        awaitStarted(3);
+        assertEquals(4L, started.get(2));
+        assertEquals(List.of(2L), engine.queuedOperationIds());
+    }
+
+    private static BulkExecutionEngine engine(int maxConcurrentJobs, int reservedHighPrioritySlots, int maxJobsPerUser, int maxJobsPerType) {
+        return new BulkExecutionEngine(maxConcurrentJobs, 100, 1, 1, 2, 10, 5, reservedHighPrioritySlots, maxJobsPerUser, maxJobsPerType);
+    }
+
+    private void submit(long id, String owner, String operationType, BulkJobPriority priority) {
+        CountDownLatch release = new CountDownLatch(1);
+        releases.put(id, release);
+        engine.submit(new BulkJobRequest(id, owner, operationType, priority), () -> {
+            started.add(id);
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> fail("Job " + id + " was rejected"));
+    }
+
+    private void release(long id) {
+        releases.get(id).countDown();
+    }
+
+    private void awaitStarted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (started.size() < count) {
+            if (System.nanoTime() > deadline) {
+                fail("Only jobs " + started + " started, expected " + count);
+            }
+            Thread.sleep(5);
+        }
+        // Give a wrongly dispatched job the chance to show up as well
+        Thread.sleep(50);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductAttributeValue;
+import com.example.pim.domain.ProductFamily;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares completeness scoring of a batch of products: the former per-product algorithm (a set of provided
+ * attributes plus a scan of all values per required attribute, using the entities' Lombok equals and hashCode), one
+ * plan per product through {@link CompletenessScoreService#calculateCompletenessScore}, and
+ * {@link CompletenessScoreService#scoreAll}.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CompletenessScoringBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompletenessScoringBenchmark {
+
+    @Param({"10000", "200000"})
+    private int products;
+
+    @Param({"20"})
+    private int familyAttributes;
+
+    private final CompletenessScoreService completenessScoreService = new CompletenessScoreService();
+    private List<Product> batch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Attribute> attributes = new ArrayList<>();
+        // The family requires the first half; products also carry values of attributes outside the family
+        for (long id = 1; id <= familyAttributes * 2L; id++) {
+            Attribute attribute = new Attribute();
+            attribute.setId(id);
+            attribute.setCode("attribute_" + id);
+            attribute.setName("Attribute " + id);
+            attribute.setType(id % 3 == 0 ? "NUMBER" : "TEXT");
+            attribute.setValidationRegex(id % 5 == 0 ? "^[a-z0-9 ]*$" : null);
+            attributes.add(attribute);
+        }
+        ProductFamily productFamily = new ProductFamily();
+        productFamily.setId(1L);
+        productFamily.setCode("family");
+        productFamily.setName("Family");
+        productFamily.setAttributes(new HashSet<>(attributes.subList(0, familyAttributes)));
+
+        batch = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setSku("SKU" + i);
+            product.setName("Product " + i);
+            product.setDescription(random.nextBoolean() ? "Description " + i : null);
+            product.setStatus("draft");
+            product.setProductFamily(productFamily);
+            List<ProductAttributeValue> values = new ArrayList<>();
+            for (Attribute attribute : attributes) {
+                if (random.nextInt(4) != 0) {
+                    ProductAttributeValue value = new ProductAttributeValue();
+                    value.setId((long) i * attributes.size() + attribute.getId());
+                    value.setAttribute(attribute);
+                    value.setValue(random.nextInt(10) == 0 ? "" : "value " + attribute.getId());
+                    values.add(value);
+                }
+            }
+            product.setAttributeValues(values);
+            batch.add(product);
+        }
+    }
+
+    @Benchmark
+    public void previousAlgorithm(Blackhole blackhole) {
+        for (Product product : batch) {
+            blackhole.consume(previousScore(product));
+        }
+    }
+
+    @Benchmark
+    public void planPerProduct(Blackhole blackhole) {
+        for (Product product : batch) {
+            blackhole.consume(completenessScoreService.calculateCompletenessScore(product));
+        }
+    }
+
+    @Benchmark
+    public int[] scoreAll() {
+        return completenessScoreService.scoreAll(batch);
+    }
+
+    /**
+     * The algorithm {@link CompletenessScoringPlan} replaced, kept as the baseline.
+     */
+    private static int previousScore(Product product) {
+        int totalFields = 4;
+        int completedFields = 0;
+        if (product.getSku() != null && !product.getSku().isEmpty()) {
+            completedFields++;
+        }
+        if (product.getName() != null && !product.getName().isEmpty()) {
+            completedFields++;
+        }
+        if (product.getDescription() != null && !product.getDescription().isEmpty()) {
+            completedFields++;
+        }
+        if (product.getStatus() != null && !product.getStatus().isEmpty()) {
+            completedFields++;
+        }
+        if (product.getProductFamily() != null) {
+            Set<Attribute> requiredAttributes = product.getProductFamily().getAttributes();
+            totalFields += requiredAttributes.size();
+            if (product.getAttributeValues() != null) {
+                List<ProductAttributeValue> providedAttributeValues = product.getAttributeValues();
+                Set<Attribute> providedAttributes = providedAttributeValues.stream()
+                        .map(ProductAttributeValue::getAttribute)
+                        .collect(Collectors.toSet());
+                for (Attribute requiredAttribute : requiredAttributes) {
+                    if (providedAttributes.contains(requiredAttribute)) {
+                        boolean hasValue = providedAttributeValues.stream()
+                                .anyMatch(pav -> pav.getAttribute().equals(requiredAttribute) && pav.getValue() != null && !pav.getValue().isEmpty());
+                        if (hasValue) {
+                            completedFields++;
+                        }
+                    }
+                }
+            }
+        }
+        return (int) (((double) completedFields / totalFields) * 100);
+    }
+}
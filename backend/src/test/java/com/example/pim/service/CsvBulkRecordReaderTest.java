@@ -0,0 +1,48 @@
+package com.example.pim.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvBulkRecordReaderTest {
+
+    @Test
+    void readsQuotedFieldsAndMapsColumns() throws Exception {
+        String csv = "sku,name,description,productFamily,categories,color\r\n"
+                + "ABC1,\"Shirt, blue\",\"Line one\nline \"\"two\"\"\",7,1|2,blue\r\n"
+                + "\r\n"
+                + "ABC2,Hat,,,,\n"
+                + "ABC3,too,few\n";
+
+        List<BulkRecord> records = new ArrayList<>();
+        try (BulkRecordReader reader = new CsvBulkRecordReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            reader.forEachRemaining(records::add);
+        }
+
+        assertEquals(3, records.size());
+
+        Map<String, Object> first = records.get(0).data();
+        assertEquals("ABC1", first.get("sku"));
+        assertEquals("Shirt, blue", first.get("name"));
+        assertEquals("Line one\nline \"two\"", first.get("description"));
+        assertEquals(Map.of("id", "7"), first.get("productFamily"));
+        assertEquals(List.of(Map.of("id", "1"), Map.of("id", "2")), first.get("categories"));
+        assertEquals(List.of(Map.of("attribute", Map.of("code", "color"), "value", "blue")), first.get("attributeValues"));
+
+        BulkRecord second = records.get(1);
+        assertEquals(1, second.rowIndex());
+        assertEquals(Map.of("sku", "ABC2", "name", "Hat"), second.data());
+
+        BulkRecord third = records.get(2);
+        assertNull(third.data());
+        assertNotNull(third.parseError());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductFamily;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ProductAttributeValueBatchWriterTest {
+
+    private static final String SELECT_VALUE = "SELECT attribute_value FROM product_attribute_value WHERE product_id = ? AND attribute_id = ?";
+    private static final String SELECT_VALUE_ID = "SELECT id FROM product_attribute_value WHERE product_id = ? AND attribute_id = ?";
+
+    @Autowired
+    private ProductAttributeValueBatchWriter productAttributeValueBatchWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestCatalog catalog;
+
+    private final String prefix = TestCatalog.uniquePrefix("PAV");
+
+    @Test
+    void insertsAndUpdatesValuesAcrossProductsAndRescoresThem() {
+        Attribute weight = catalog.attribute(prefix + "Weight", "NUMBER", false);
+        Attribute material = catalog.attribute(prefix + "Material", "TEXT", false);
+        ProductFamily family = catalog.family(prefix.toLowerCase(), Set.of(weight, material));
+        // Scored out of 6: three of four own fields (no description) plus the required attributes that have a value
+        Product first = catalog.product(prefix + "A", "Product A", family);
+        Product second = catalog.product(prefix + "B", "Product B", family);
+        Product untouched = catalog.product(prefix + "C", "Product C", family);
+        productAttributeValueBatchWriter.changeValues(List.of(
+                new AttributeValueChange(first.getId(), material.getId(), "cotton"),
+                new AttributeValueChange(untouched.getId(), material.getId(), "silk")));
+        Long existingId = jdbcTemplate.queryForObject(SELECT_VALUE_ID, Long.class, first.getId(), material.getId());
+        assertEquals(66, score(first));
+
+        AttributeValueChangeResult result = productAttributeValueBatchWriter.changeValues(List.of(
+                new AttributeValueChange(first.getId(), material.getId(), "wool"),
+                new AttributeValueChange(first.getId(), weight.getId(), "2.5 kg"),
+                new AttributeValueChange(second.getId(), weight.getId(), "heavy"),
+                new AttributeValueChange(second.getId(), material.getId(), "linen"),
+                new AttributeValueChange(untouched.getId(), material.getId(), "silk"),
+                new AttributeValueChange(Long.MAX_VALUE, material.getId(), "none")));
+
+        assertEquals(6, result.requested());
+        assertEquals(2, result.created());
+        assertEquals(1, result.updated());
+        assertEquals(1, result.unchanged());
+        assertEquals(List.of(
+                new AttributeValueChangeResult.Failure(Long.MAX_VALUE, material.getId(), "Product not found"),
+                new AttributeValueChangeResult.Failure(second.getId(), weight.getId(), "Value 'heavy' is not a number for attribute '" + weight.getName() + "'.")),
+                result.failures());
+
+        assertEquals("wool", jdbcTemplate.queryForObject(SELECT_VALUE, String.class, first.getId(), material.getId()));
+        assertEquals(existingId, jdbcTemplate.queryForObject(SELECT_VALUE_ID, Long.class, first.getId(), material.getId()));
+        assertEquals(0, new BigDecimal("2.5").compareTo(jdbcTemplate.queryForObject(
+                "SELECT numeric_value FROM product_attribute_value WHERE product_id = ? AND attribute_id = ?", BigDecimal.class, first.getId(), weight.getId())));
+        // The invalid weight does not hold back the second product's other value
+        assertEquals("linen", jdbcTemplate.queryForObject(SELECT_VALUE, String.class, second.getId(), material.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_attribute_value WHERE product_id = ? AND attribute_id = ?",
+                Integer.class, second.getId(), weight.getId()));
+
+        assertEquals(83, score(first));
+        assertEquals(66, score(second));
+        assertEquals(66, score(untouched));
+        assertEquals(1, auditRows("UPDATE_ATTRIBUTE_VALUE", existingId));
+    }
+
+    private int score(Product product) {
+        return jdbcTemplate.queryForObject("SELECT completeness_score FROM product WHERE id = ?", Integer.class, product.getId());
+    }
+
+    private int auditRows(String action, Long valueId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_log WHERE action = ? AND entity = 'ProductAttributeValue' AND entity_id = ?",
+                Integer.class, action, valueId);
+    }
+}
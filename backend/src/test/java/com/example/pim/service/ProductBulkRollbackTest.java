@@ -0,0 +1,140 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.BulkOperation;
+import com.example.pim.domain.Product;
+import com.example.pim.repository.BulkOperationRepository;
+import com.example.pim.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest
+class ProductBulkRollbackTest {
+
+    @Autowired
+    private BulkOperationService bulkOperationService;
+
+    @Autowired
+    private BulkOperationRepository bulkOperationRepository;
+
+    @Autowired
+    private BulkExecutionEngine bulkExecutionEngine;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductBulkRollback productBulkRollback;
+
+    @Autowired
+    private BulkChangeJournal bulkChangeJournal;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestCatalog catalog;
+
+    private final String prefix = TestCatalog.uniquePrefix("RBK");
+
+    @Test
+    void deletesCreatedProductsRestoresUpdatedOnesAndReportsLaterChangesAsConflicts() throws Exception {
+        Product updated = catalog.product(prefix + "A", "Original A", null);
+        Product changedLater = catalog.product(prefix + "B", "Original B", null);
+        String createdSku = prefix + "C";
+
+        BulkOperation job = bulkOperationService.initiateBulkCreate(List.of(
+                Map.of("sku", updated.getSku(), "name", "Bulk A"),
+                Map.of("sku", changedLater.getSku(), "name", "Bulk B"),
+                Map.of("sku", createdSku, "name", "Bulk C")), BulkWriteMode.UPSERT, BulkJobPriority.NORMAL, "tester");
+        assertEquals("COMPLETED", awaitStatus(job.getId(), "PENDING", "IN_PROGRESS").getStatus());
+        assertEquals("Bulk A", productRepository.findById(updated.getId()).orElseThrow().getName());
+        Long createdId = jdbcTemplate.queryForObject("SELECT id FROM product WHERE sku = ?", Long.class, createdSku);
+
+        awaitReleased(job.getId());
+
+        // Someone edits B after the job; the rollback must not overwrite that
+        jdbcTemplate.update("UPDATE product SET version = version + 1, name = 'Edited B' WHERE id = ?", changedLater.getId());
+
+        bulkOperationService.rollbackBulkOperation(job.getId(), "tester");
+        BulkOperation rolledBack = awaitStatus(job.getId(), "ROLLING_BACK");
+
+        assertEquals("ROLLED_BACK_WITH_CONFLICTS", rolledBack.getStatus());
+        assertEquals(2, rolledBack.getRolledBackRecords());
+        assertEquals(1, rolledBack.getRollbackConflicts());
+        assertFalse(productRepository.existsById(createdId));
+        Product restored = productRepository.findById(updated.getId()).orElseThrow();
+        assertEquals("Original A", restored.getName());
+        assertEquals(updated.getVersion(), restored.getVersion());
+        assertEquals("Edited B", productRepository.findById(changedLater.getId()).orElseThrow().getName());
+        assertEquals(1, auditRows("ROLLBACK_DELETE", createdId));
+        assertEquals(1, auditRows("ROLLBACK_RESTORE", updated.getId()));
+        assertEquals(0, auditRows("ROLLBACK_RESTORE", changedLater.getId()));
+    }
+
+    @Test
+    void rollsBackTheOtherProductsOfABatchOneOfWhichCannotBeUndone() {
+        Product deletable = catalog.product(prefix + "D", "Created D", null);
+        Product withVariant = catalog.product(prefix + "E", "Created E", null);
+        // A variant added after the operation keeps the created product from being deleted, which fails the batch
+        jdbcTemplate.update("INSERT INTO product_variant (product_id, sku, name) VALUES (?, ?, 'Variant')", withVariant.getId(), prefix + "EV");
+        long operationId = -System.nanoTime();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                bulkChangeJournal.recordCreated(operationId, List.of(deletable.getId(), withVariant.getId())));
+
+        ProductBulkRollback.BatchResult result = productBulkRollback.rollbackBatch(operationId, new HashSet<>(), "tester");
+
+        assertEquals(1, result.deleted());
+        assertEquals(List.of(withVariant.getId()), result.conflicts().stream().map(ProductBulkRollback.Conflict::productId).toList());
+        assertTrue(result.conflicts().get(0).message().startsWith("Could not be rolled back: "));
+        assertFalse(productRepository.existsById(deletable.getId()));
+        assertTrue(productRepository.existsById(withVariant.getId()));
+        assertFalse(bulkChangeJournal.hasEntries(operationId));
+        assertNull(productBulkRollback.rollbackBatch(operationId, new HashSet<>(), "tester"));
+    }
+
+    private BulkOperation awaitStatus(Long operationId, String... transientStatuses) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            BulkOperation operation = bulkOperationRepository.findById(operationId).orElseThrow();
+            if (!List.of(transientStatuses).contains(operation.getStatus())) {
+                return operation;
+            }
+            Thread.sleep(20);
+        }
+        fail("Bulk operation " + operationId + " did not finish");
+        return null;
+    }
+
+    private void awaitReleased(Long operationId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (bulkExecutionEngine.isActive(operationId)) {
+            if (System.nanoTime() > deadline) {
+                fail("Bulk operation " + operationId + " was not released by the engine");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private int auditRows(String action, Long productId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_log WHERE action = ? AND entity = 'Product' AND entity_id = ? AND username = 'tester'",
+                Integer.class, action, productId);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Product;
+import com.example.pim.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ProductBulkUpdaterTest {
+
+    @Autowired
+    private ProductBulkUpdater productBulkUpdater;
+
+    @Autowired
+    private ProductBulkWriter productBulkWriter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestCatalog catalog;
+
+    private final String prefix = TestCatalog.uniquePrefix("UPD");
+
+    @Test
+    void reportsStaleVersionsAndMissingProductsAndWritesTheRest() {
+        Product fresh = catalog.product(prefix + "A");
+        Product stale = catalog.product(prefix + "B");
+        long staleVersion = stale.getVersion();
+        jdbcTemplate.update("UPDATE product SET version = version + 1 WHERE id = ?", stale.getId());
+
+        BulkChunkResult result = productBulkUpdater.updateChunk(null, List.of(
+                new BulkRecord(0, Map.of("id", fresh.getId(), "version", fresh.getVersion(), "name", "Renamed")),
+                new BulkRecord(1, Map.of("id", stale.getId(), "version", staleVersion, "name", "Lost")),
+                new BulkRecord(2, Map.of("id", Long.MAX_VALUE, "name", "Nobody")),
+                new BulkRecord(3, Map.of("sku", prefix + "MISSING", "name", "Nobody"))));
+
+        assertEquals(1, result.succeeded());
+        assertEquals(List.of("version", "id", "sku"), result.errors().stream().map(BulkRecordError::field).toList());
+        assertEquals(List.of(1L, 2L, 3L), result.errors().stream().map(BulkRecordError::rowIndex).toList());
+        assertEquals("Product not found", result.errors().get(1).message());
+        assertEquals("Renamed", productRepository.findById(fresh.getId()).orElseThrow().getName());
+        assertEquals(fresh.getVersion() + 1, productRepository.findById(fresh.getId()).orElseThrow().getVersion());
+        assertEquals(stale.getName(), productRepository.findById(stale.getId()).orElseThrow().getName());
+        assertEquals(1, auditRows("UPDATE", fresh.getId()));
+        assertEquals(0, auditRows("UPDATE", stale.getId()));
+    }
+
+    @Test
+    void reportsEachRowWhenNoRowOfTheChunkCanBeWritten() {
+        Product product = catalog.product(prefix + "E");
+
+        BulkChunkResult result = productBulkUpdater.updateChunk(null, List.of(
+                new BulkRecord(0, Map.of("sku", prefix + "MISSING", "name", "Nobody")),
+                new BulkRecord(1, Map.of("id", product.getId(), "status", "published")),
+                BulkRecord.malformed(2, "Unexpected end of row"),
+                new BulkRecord(3, Map.of("id", product.getId(), "version", product.getVersion() + 1, "name", "Stale"))));
+
+        assertEquals(0, result.succeeded());
+        assertEquals(List.of("Product not found", "Products cannot be published through bulk update.", "Unexpected end of row",
+                "Product was modified by another user (expected version " + (product.getVersion() + 1) + ", found " + product.getVersion() + ")"),
+                result.errors().stream().map(BulkRecordError::message).toList());
+        assertEquals(product.getName(), productRepository.findById(product.getId()).orElseThrow().getName());
+        assertEquals(0, auditRows("UPDATE", product.getId()));
+    }
+
+    @Test
+    void upsertUpdatesExistingSkusAndAppliesRepeatsOfANewSkuInOrder() {
+        Product existing = catalog.product(prefix + "C");
+        String newSku = prefix + "D";
+
+        BulkChunkResult result = productBulkWriter.writeChunk(null, List.of(
+                new BulkRecord(0, record(existing.getSku(), "Existing updated")),
+                new BulkRecord(1, record(newSku, "First")),
+                new BulkRecord(2, record(newSku, "Second"))), BulkWriteMode.UPSERT);
+
+        assertEquals(3, result.succeeded());
+        assertEquals(List.of(), result.errors());
+        assertEquals("Existing updated", productRepository.findById(existing.getId()).orElseThrow().getName());
+        Long createdId = jdbcTemplate.queryForObject("SELECT id FROM product WHERE sku = ?", Long.class, newSku);
+        Product created = productRepository.findById(createdId).orElseThrow();
+        assertEquals("Second", created.getName());
+        assertEquals(1, auditRows("CREATE", created.getId()));
+        assertEquals(1, auditRows("UPDATE", created.getId()));
+        assertEquals(1, auditRows("UPDATE", existing.getId()));
+    }
+
+    private static Map<String, Object> record(String sku, String name) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("sku", sku);
+        data.put("name", name);
+        return data;
+    }
+
+    private int auditRows(String action, Long productId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_log WHERE action = ? AND entity = 'Product' AND entity_id = ?", Integer.class, action, productId);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.pim.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ProductBulkWriterTest {
+
+    @Autowired
+    private ProductBulkWriter productBulkWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String prefix = TestCatalog.uniquePrefix("WRT");
+
+    @Test
+    void isolatesRowsTheDatabaseRejectsWithinTheChunkTransaction() {
+        // Too long for the name column, which only the database notices
+        String tooLong = "x".repeat(300);
+        List<BulkRecord> records = List.of(
+                new BulkRecord(0, Map.of("sku", prefix + "A", "name", "Fine")),
+                new BulkRecord(1, Map.of("sku", prefix + "B", "name", tooLong)),
+                new BulkRecord(2, Map.of("sku", prefix + "C", "name", "Fine too")));
+
+        BulkChunkResult result = new TransactionTemplate(transactionManager).execute(status -> productBulkWriter.writeChunk(null, records, BulkWriteMode.CREATE));
+
+        assertEquals(2, result.succeeded());
+        assertEquals(List.of(1L), result.errors().stream().map(BulkRecordError::rowIndex).toList());
+        assertEquals(List.of(prefix + "A", prefix + "C"), jdbcTemplate.queryForList("SELECT sku FROM product WHERE sku LIKE ? ORDER BY sku", String.class, prefix + "%"));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_log a JOIN product p ON p.id = a.entity_id "
+                + "WHERE a.action = 'CREATE' AND a.entity = 'Product' AND p.sku LIKE ?", Integer.class, prefix + "%"));
+    }
+
+    @Test
+    void upsertCommitsTheInsertsOfAChunkWhoseUpdatesAreAllRejected() {
+        jdbcTemplate.update("INSERT INTO product (sku, name, status, completeness_score, version) VALUES (?, 'Existing', 'draft', 0, 0)", prefix + "X");
+        List<BulkRecord> records = List.of(
+                new BulkRecord(0, Map.of("sku", prefix + "N1", "name", "New one")),
+                new BulkRecord(1, Map.of("sku", prefix + "X", "status", "published")),
+                new BulkRecord(2, Map.of("sku", prefix + "N2", "name", "New two")));
+
+        BulkChunkResult result = new TransactionTemplate(transactionManager).execute(status -> productBulkWriter.writeChunk(null, records, BulkWriteMode.UPSERT));
+
+        assertEquals(2, result.succeeded());
+        assertEquals(List.of("Products cannot be published through bulk update."), result.errors().stream().map(BulkRecordError::message).toList());
+        assertEquals(List.of(prefix + "N1", prefix + "N2", prefix + "X"), jdbcTemplate.queryForList("SELECT sku FROM product WHERE sku LIKE ? ORDER BY sku", String.class, prefix + "%"));
+        assertEquals("draft", jdbcTemplate.queryForObject("SELECT status FROM product WHERE sku = ?", String.class, prefix + "X"));
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Category;
+import com.example.pim.repository.CategoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest
+class ProductFacetIndexTest {
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestCatalog catalog;
+
+    private final String prefix = TestCatalog.uniquePrefix("FCT");
+    private final List<Long> ids = new ArrayList<>();
+    private Long shoes;
+    private Long bags;
+
+    /**
+     * Five products in a family of their own, spread over two categories and several statuses and scores.
+     */
+    @BeforeEach
+    void createProducts() throws InterruptedException {
+        Long family = catalog.family(prefix.toLowerCase(), Set.of()).getId();
+        shoes = category("shoes");
+        bags = category("bags");
+        Object[][] rows = {
+                {"draft", "not_started", 10, shoes},
+                {"draft", "in_review", 60, shoes},
+                {"draft", "in_review", 85, bags},
+                {"published", "approved", 100, bags},
+                {"published", "approved", 100, null},
+        };
+        for (int i = 0; i < rows.length; i++) {
+            String sku = prefix + i;
+            jdbcTemplate.update("INSERT INTO product (sku, name, status, workflow_status, completeness_score, product_family_id, version) VALUES (?, ?, ?, ?, ?, ?, 0)",
+                    sku, "Product " + i, rows[i][0], rows[i][1], rows[i][2], family);
+            Long id = jdbcTemplate.queryForObject("SELECT id FROM product WHERE sku = ?", Long.class, sku);
+            if (rows[i][3] != null) {
+                jdbcTemplate.update("INSERT INTO product_category (product_id, category_id) VALUES (?, ?)", id, rows[i][3]);
+            }
+            ids.add(id);
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(ids));
+        awaitCountsMatchTheDatabase(Map.of());
+    }
+
+    @Test
+    void countsEachFacetValueLikeAGroupByOverTheProducts() {
+        ProductFacetIndex.Result result = search(Map.of());
+
+        assertEquals(5, result.matches().getCardinality());
+        assertEquals(databaseCounts(Map.of()), result.counts());
+        assertEquals(Map.of("draft", 3, "published", 2), result.counts().get(ProductFacetIndex.STATUS));
+        assertEquals(Map.of("0-49", 1, "50-79", 1, "80-99", 1, "100", 2), result.counts().get(ProductFacetIndex.COMPLETENESS));
+    }
+
+    @Test
+    void countsAFilteredFacetWithoutItsOwnFilter() {
+        Map<String, List<String>> filters = Map.of(ProductFacetIndex.STATUS, List.of("draft"), ProductFacetIndex.CATEGORY, List.of(shoes.toString()));
+
+        ProductFacetIndex.Result result = search(filters);
+
+        assertEquals(RoaringBitmap.bitmapOf(ProductFacetIndex.bitmapId(ids.get(0)), ProductFacetIndex.bitmapId(ids.get(1))), result.matches());
+        assertEquals(databaseCounts(filters), result.counts());
+        // Statuses are counted over all shoes and categories over all drafts
+        assertEquals(Map.of("draft", 2), result.counts().get(ProductFacetIndex.STATUS));
+        assertEquals(Map.of(shoes.toString(), 2, bags.toString(), 1), result.counts().get(ProductFacetIndex.CATEGORY));
+    }
+
+    @Test
+    void movesAnUpdatedProductToItsNewFacetValues() throws InterruptedException {
+        Long moved = ids.get(0);
+        jdbcTemplate.update("UPDATE product SET status = 'published', workflow_status = 'approved', completeness_score = 100 WHERE id = ?", moved);
+        jdbcTemplate.update("UPDATE product_category SET category_id = ? WHERE product_id = ?", bags, moved);
+        eventPublisher.publishEvent(new ProductChangedEvent(List.of(moved)));
+
+        Map<String, List<String>> filters = Map.of(ProductFacetIndex.CATEGORY, List.of(bags.toString()));
+        awaitCountsMatchTheDatabase(filters);
+
+        ProductFacetIndex.Result all = search(Map.of());
+        assertEquals(Map.of("draft", 2, "published", 3), all.counts().get(ProductFacetIndex.STATUS));
+        assertEquals(Map.of(shoes.toString(), 1, bags.toString(), 3), all.counts().get(ProductFacetIndex.CATEGORY));
+        assertEquals(Map.of("50-79", 1, "80-99", 1, "100", 3), all.counts().get(ProductFacetIndex.COMPLETENESS));
+    }
+
+    private Long category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        category.setSlug(prefix.toLowerCase() + "-" + name);
+        return categoryRepository.save(category).getId();
+    }
+
+    private ProductFacetIndex.Result search(Map<String, List<String>> filters) {
+        // Restricted to this test's products, which the rest of the shared database does not disturb
+        return productFacetIndex.search(RoaringBitmap.bitmapOf(ids.stream().mapToInt(ProductFacetIndex::bitmapId).toArray()), filters);
+    }
+
+    /**
+     * Per facet, the number of this test's products with each value according to the database. Like the index, a
+     * facet's counts apply the filters of the other facets only.
+     */
+    private Map<String, Map<String, Integer>> databaseCounts(Map<String, List<String>> filters) {
+        Map<String, Map<String, Integer>> counts = new HashMap<>();
+        counts.put(ProductFacetIndex.CATEGORY, groupBy("pc.category_id", "JOIN product_category pc ON pc.product_id = p.id", ProductFacetIndex.CATEGORY, filters));
+        counts.put(ProductFacetIndex.FAMILY, groupBy("p.product_family_id", "", ProductFacetIndex.FAMILY, filters));
+        counts.put(ProductFacetIndex.STATUS, groupBy("p.status", "", ProductFacetIndex.STATUS, filters));
+        counts.put(ProductFacetIndex.WORKFLOW_STATUS, groupBy("p.workflow_status", "", ProductFacetIndex.WORKFLOW_STATUS, filters));
+        Map<String, Integer> bands = new HashMap<>();
+        groupBy("p.completeness_score", "", ProductFacetIndex.COMPLETENESS, filters)
+                .forEach((score, count) -> bands.merge(productFacetIndex.completenessBand(Integer.parseInt(score)), count, Integer::sum));
+        counts.put(ProductFacetIndex.COMPLETENESS, bands);
+        return counts;
+    }
+
+    private Map<String, Integer> groupBy(String column, String join, String facet, Map<String, List<String>> filters) {
+        StringBuilder sql = new StringBuilder("SELECT " + column + " AS facet_value, COUNT(*) AS products FROM product p " + join + " WHERE p.id IN (:ids)");
+        Map<String, Object> parameters = new HashMap<>(Map.of("ids", ids));
+        filters.forEach((filtered, values) -> {
+            if (filtered.equals(facet)) {
+                return;
+            }
+            switch (filtered) {
+                case ProductFacetIndex.STATUS -> sql.append(" AND p.status IN (:status)");
+                case ProductFacetIndex.CATEGORY -> sql.append(" AND p.id IN (SELECT product_id FROM product_category WHERE category_id IN (:category))");
+                default -> throw new IllegalArgumentException("Unsupported filter " + filtered);
+            }
+            parameters.put(filtered, filtered.equals(ProductFacetIndex.CATEGORY) ? values.stream().map(Long::valueOf).toList() : values);
+        });
+        sql.append(" GROUP BY ").append(column);
+        return new NamedParameterJdbcTemplate(jdbcTemplate).queryForList(sql.toString(), parameters).stream()
+                .filter(row -> row.get("facet_value") != null)
+                .collect(Collectors.toMap(row -> row.get("facet_value").toString(), row -> ((Number) row.get("products")).intValue()));
+    }
+
+    private void awaitCountsMatchTheDatabase(Map<String, List<String>> filters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!productFacetIndex.isReady() || !databaseCounts(filters).equals(search(filters).counts())) {
+            if (System.nanoTime() > deadline) {
+                fail("Facet counts " + (productFacetIndex.isReady() ? search(filters).counts() : "(index not ready)")
+                        + " never matched the database " + databaseCounts(filters));
+            }
+            productFacetIndex.applyPendingChanges();
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.pim.service;
+
+import com.example.pim.controller.ProductController;
+import com.example.pim.domain.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest
+class ProductPagingTest {
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String prefix = TestCatalog.uniquePrefix("PGE");
+    // Named differently from the SKUs, which a search also matches by prefix
+    private final String word = "W" + prefix;
+
+    @Test
+    void walksTheWholeListingWithoutDuplicatesOrGaps() {
+        for (int i = 0; i < 5; i++) {
+            create(prefix + i);
+        }
+
+        List<Long> walked = walk(cursor -> productController.listProducts(cursor, 7).getBody());
+
+        assertEquals(jdbcTemplate.queryForList("SELECT id FROM product ORDER BY id", Long.class), walked);
+    }
+
+    @Test
+    void walksSearchHitsWithEqualScoresWithoutDuplicatesOrGaps() throws InterruptedException {
+        // Identical names score the same, so the pages continue on the id alone
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add(create(prefix + i).getId());
+        }
+        awaitSearchable(ids);
+
+        List<Long> walked = walk(cursor -> productController.searchProducts(word, cursor, 2).getBody());
+
+        assertEquals(ids, walked);
+    }
+
+    @Test
+    void rejectsMalformedAndTamperedCursorsAsBadRequests() {
+        String searchListing = "search:" + Integer.toHexString(word.toLowerCase().hashCode());
+        String searchCursor = PageCursor.encode(searchListing, 0, 1);
+        List<String> cursors = List.of(
+                "not a cursor!",
+                base64("2|products|1"),
+                base64("garbage"),
+                PageCursor.encode("products"),
+                PageCursor.encode("products", "abc"),
+                // A valid cursor of another listing
+                searchCursor);
+
+        for (String cursor : cursors) {
+            ResponseStatusException rejected = assertThrows(ResponseStatusException.class, () -> productController.listProducts(cursor, 10), cursor);
+            assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode(), cursor);
+        }
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> productController.searchProducts(word, PageCursor.encode(searchListing, "x", 1), 10)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> productController.searchProducts(word + "X", searchCursor, 10)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> productController.searchFacets(null, null, null, null, null, null, "%%%", 10)).getStatusCode());
+    }
+
+    private Product create(String sku) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName("Lamp " + word);
+        product.setStatus("draft");
+        return productService.createProduct(product);
+    }
+
+    /**
+     * Follows the cursors from the first page to the last, checking that no product comes up twice.
+     */
+    private static List<Long> walk(Function<String, ProductPage> pages) {
+        List<Long> walked = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            ProductPage page = pages.apply(cursor);
+            for (ProductView product : page.items()) {
+                assertTrue(seen.add(product.id()), "Product " + product.id() + " was returned twice");
+                walked.add(product.id());
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return walked;
+    }
+
+    private void awaitSearchable(List<Long> ids) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!productSearchIndex.isReady() || productSearchIndex.search(word, null, 50).size() < ids.size()) {
+            if (System.nanoTime() > deadline) {
+                fail("The products did not become searchable");
+            }
+            productSearchIndex.applyPendingChanges();
+            Thread.sleep(20);
+        }
+    }
+
+    private static String base64(String token) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+}
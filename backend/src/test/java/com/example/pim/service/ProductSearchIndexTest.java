@@ -0,0 +1,129 @@
+package com.example.pim.service;
+
+import com.example.pim.controller.SearchIndexController;
+import com.example.pim.domain.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest
+class ProductSearchIndexTest {
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private SearchIndexController searchIndexController;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String prefix = TestCatalog.uniquePrefix("IDX");
+    // Named differently from the SKUs, which the query also matches by prefix
+    private final String word = "W" + prefix;
+
+    @Test
+    void indexesAProductOnlyOnceTheTransactionThatChangedItHasCommitted() throws InterruptedException {
+        String rolledBackWord = word + "R";
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            create(prefix + "R", rolledBackWord);
+            status.setRollbackOnly();
+        });
+        Product product = transaction.execute(status -> {
+            Product created = create(prefix + "C", word);
+            productSearchIndex.applyPendingChanges();
+            assertEquals(List.of(), hitIds(word));
+            return created;
+        });
+
+        awaitHits(word, List.of(product.getId()));
+        assertEquals(List.of(), hitIds(rolledBackWord));
+    }
+
+    @Test
+    void removesADeletedProductFromTheResults() throws InterruptedException {
+        Product kept = create(prefix + "K", word);
+        Product deleted = create(prefix + "D", word);
+        awaitHits(word, List.of(kept.getId(), deleted.getId()));
+
+        // As a bulk rollback deletes a product it created
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM product WHERE id = ?", deleted.getId());
+            eventPublisher.publishEvent(new ProductChangedEvent(List.of(deleted.getId())));
+        });
+
+        awaitHits(word, List.of(kept.getId()));
+    }
+
+    @Test
+    void aRebuildFindsTheSameProductsAsTheIncrementalUpdates() throws InterruptedException {
+        List<Long> ids = List.of(create(prefix + "A", word).getId(), create(prefix + "B", word).getId(), create(prefix + "C", word).getId());
+        jdbcTemplate.update("UPDATE product SET name = 'Renamed' WHERE id = ?", ids.get(1));
+        eventPublisher.publishEvent(new ProductChangedEvent(List.of(ids.get(1))));
+        List<Long> expected = List.of(ids.get(0), ids.get(2));
+        awaitHits(word, expected);
+
+        // The index may still be rebuilding after startup
+        awaitRebuilt();
+        List<Long> incremental = hitIds(word);
+        assertEquals(HttpStatus.ACCEPTED, searchIndexController.rebuildSearchIndex().getStatusCode());
+        awaitRebuilt();
+
+        assertEquals(incremental, hitIds(word));
+        assertEquals(List.of(ids.get(1)), hitIds(prefix + "B"));
+    }
+
+    private Product create(String sku, String word) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName("Lamp " + word);
+        product.setStatus("draft");
+        return productService.createProduct(product);
+    }
+
+    private List<Long> hitIds(String query) {
+        return productSearchIndex.search(query, null, 50).stream().map(ProductSearchIndex.Hit::productId).toList();
+    }
+
+    private void awaitHits(String query, List<Long> expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!hitIds(query).equals(expected)) {
+            if (System.nanoTime() > deadline) {
+                fail("Search for " + query + " found " + hitIds(query) + ", expected " + expected);
+            }
+            productSearchIndex.applyPendingChanges();
+            Thread.sleep(20);
+        }
+    }
+
+    private void awaitRebuilt() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (productSearchIndex.status().rebuilding()) {
+            if (System.nanoTime() > deadline) {
+                fail("The search index rebuild did not finish");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductVariant;
+import com.example.pim.repository.ProductVariantRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ProductVariantSignaturesTest {
+
+    @Autowired
+    private ProductVariantService productVariantService;
+
+    @Autowired
+    private AttributeService attributeService;
+
+    @Autowired
+    private ProductVariantSignatures productVariantSignatures;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private TestCatalog catalog;
+
+    private final String prefix = TestCatalog.uniquePrefix("SIG");
+
+    @Test
+    void signatureIgnoresKeyOrderAndNonVariantAttributes() {
+        Map<String, String> colorFirst = new LinkedHashMap<>();
+        colorFirst.put("color", "red");
+        colorFirst.put("size", "M");
+        Map<String, String> sizeFirst = new LinkedHashMap<>();
+        sizeFirst.put("size", "M");
+        sizeFirst.put("material", "wool");
+        sizeFirst.put("color", "red");
+
+        String signature = ProductVariantSignatures.signature(colorFirst, List.of("color", "size"));
+        assertEquals(signature, ProductVariantSignatures.signature(sizeFirst, List.of("size", "color")));
+        assertNotEquals(signature, ProductVariantSignatures.signature(Map.of("color", "red", "size", "L"), List.of("color", "size")));
+        // Length prefixes keep values from running into the next name
+        assertNotEquals(ProductVariantSignatures.signature(Map.of("a", "1b"), List.of("a", "b")),
+                ProductVariantSignatures.signature(Map.of("a", "1", "b", ""), List.of("a", "b")));
+    }
+
+    @Test
+    void rejectsASecondVariantWithTheSameVariantValues() {
+        catalog.attribute(prefix + "Color", "TEXT", true);
+        Product product = catalog.product(prefix);
+        productVariantService.createProductVariant(product, variant("V1", Map.of(prefix + "Color", "red", "note", "first")));
+
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> productVariantService.createProductVariant(product, variant("V2", Map.of(prefix + "Color", "red", "note", "second"))));
+
+        assertEquals("A product variant with the same combination of differentiating attributes already exists.", rejected.getMessage());
+        productVariantService.createProductVariant(product, variant("V3", Map.of(prefix + "Color", "blue")));
+        assertEquals(2, productVariantRepository.findAll().stream().filter(v -> v.getSku().startsWith(prefix)).count());
+    }
+
+    @Test
+    void recomputesSignaturesWhenAnAttributeBecomesAVariantAxisAndRejectsDroppingItAgain() {
+        catalog.attribute(prefix + "Color", "TEXT", true);
+        Attribute material = catalog.attribute(prefix + "Material", "TEXT", false);
+        Product product = catalog.product(prefix);
+        ProductVariant cotton = productVariantService.createProductVariant(product, variant("V1", Map.of(prefix + "Color", "red", prefix + "Material", "cotton")));
+        assertThrows(IllegalArgumentException.class,
+                () -> productVariantService.createProductVariant(product, variant("V2", Map.of(prefix + "Color", "red", prefix + "Material", "wool"))));
+
+        attributeService.updateAttribute(material.getId(), copy(material, true));
+
+        String recomputed = productVariantRepository.findById(cotton.getId()).orElseThrow().getVariantSignature();
+        assertNotEquals(cotton.getVariantSignature(), recomputed);
+        assertEquals(productVariantSignatures.signature(cotton.getAttributes()), recomputed);
+        ProductVariant wool = productVariantService.createProductVariant(product, variant("V2", Map.of(prefix + "Color", "red", prefix + "Material", "wool")));
+
+        // Without the axis the two would be duplicates, so the change is refused and nothing is recomputed
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> attributeService.updateAttribute(material.getId(), copy(material, false)));
+        assertTrue(rejected.getMessage().contains("[" + wool.getId() + "]"), rejected.getMessage());
+        assertTrue(attributeService.getAttributeById(material.getId()).orElseThrow().isVariantAttribute());
+        assertEquals(wool.getVariantSignature(), productVariantRepository.findById(wool.getId()).orElseThrow().getVariantSignature());
+        assertEquals(recomputed, productVariantRepository.findById(cotton.getId()).orElseThrow().getVariantSignature());
+    }
+
+    private static Attribute copy(Attribute attribute, boolean variantAttribute) {
+        Attribute details = new Attribute();
+        details.setCode(attribute.getCode());
+        details.setName(attribute.getName());
+        details.setType(attribute.getType());
+        details.setVariantAttribute(variantAttribute);
+        return details;
+    }
+
+    private ProductVariant variant(String suffix, Map<String, String> attributes) {
+        ProductVariant variant = new ProductVariant();
+        variant.setSku(prefix + suffix);
+        variant.setName("Variant " + suffix);
+        variant.setAttributes(new LinkedHashMap<>(attributes));
+        return variant;
+    }
+}
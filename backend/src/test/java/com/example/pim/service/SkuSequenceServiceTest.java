@@ -0,0 +1,70 @@
+package com.example.pim.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class SkuSequenceServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String scope = "test-" + UUID.randomUUID();
+
+    @Test
+    void reservesTheNextBlockOnceOneIsUsedUp() {
+        SkuSequenceService first = new SkuSequenceService(jdbcTemplate, transactionManager, 3);
+        SkuSequenceService second = new SkuSequenceService(jdbcTemplate, transactionManager, 3);
+
+        assertEquals(List.of(1L, 2L, 3L), List.of(first.next(scope), first.next(scope), first.next(scope)));
+        assertEquals(4L, second.next(scope));
+        // The first block is used up, so the next number comes from a block after the one the second instance holds
+        assertEquals(7L, first.next(scope));
+        assertEquals(5L, second.next(scope));
+        assertEquals(10L, jdbcTemplate.queryForObject("SELECT next_value FROM sku_sequence WHERE scope = ?", Long.class, scope));
+    }
+
+    @Test
+    void instancesSharingTheDatabaseNeverHandOutTheSameNumber() throws Exception {
+        List<SkuSequenceService> instances = List.of(new SkuSequenceService(jdbcTemplate, transactionManager, 5),
+                new SkuSequenceService(jdbcTemplate, transactionManager, 5));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                SkuSequenceService instance = instances.get(i % 2);
+                futures.add(executor.submit(() -> {
+                    List<Long> numbers = new ArrayList<>();
+                    for (int n = 0; n < 50; n++) {
+                        numbers.add(instance.next(scope));
+                    }
+                    return numbers;
+                }));
+            }
+            Set<Long> numbers = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                numbers.addAll(future.get());
+            }
+            assertEquals(400, numbers.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
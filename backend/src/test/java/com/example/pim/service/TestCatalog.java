@@ -0,0 +1,71 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Attribute;
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductFamily;
+import com.example.pim.repository.ProductFamilyRepository;
+import com.example.pim.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Creates catalog data for the {@code @SpringBootTest} classes. They share one application context and database, so
+ * every test names its data after a {@link #uniquePrefix} (alphanumeric, as SKUs must be) instead of cleaning up.
+ */
+@Component
+class TestCatalog {
+
+    private final ProductRepository productRepository;
+    private final ProductFamilyRepository productFamilyRepository;
+    private final AttributeService attributeService;
+
+    @Autowired
+    TestCatalog(ProductRepository productRepository, ProductFamilyRepository productFamilyRepository, AttributeService attributeService) {
+        this.productRepository = productRepository;
+        this.productFamilyRepository = productFamilyRepository;
+        this.attributeService = attributeService;
+    }
+
+    static String uniquePrefix(String tag) {
+        return tag + UUID.randomUUID().toString().replace("-", "").substring(0, 8).toUpperCase();
+    }
+
+    /**
+     * A draft product without a family, saved as is (i.e. not scored).
+     */
+    Product product(String sku) {
+        return product(sku, "Product " + sku, null);
+    }
+
+    Product product(String sku, String name, ProductFamily family) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName(name);
+        product.setStatus("draft");
+        product.setProductFamily(family);
+        return productRepository.save(product);
+    }
+
+    /**
+     * An attribute whose code is its lower-cased name.
+     */
+    Attribute attribute(String name, String type, boolean variantAttribute) {
+        Attribute attribute = new Attribute();
+        attribute.setCode(name.toLowerCase());
+        attribute.setName(name);
+        attribute.setType(type);
+        attribute.setVariantAttribute(variantAttribute);
+        return attributeService.createAttribute(attribute);
+    }
+
+    ProductFamily family(String code, Set<Attribute> attributes) {
+        ProductFamily family = new ProductFamily();
+        family.setCode(code);
+        family.setName("Family " + code);
+        family.setAttributes(attributes);
+        return productFamilyRepository.save(family);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.pim.service;
+
+import com.example.pim.domain.Product;
+import com.example.pim.domain.ProductVariant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class VariantMatrixGeneratorTest {
+
+    @Autowired
+    private VariantMatrixGenerator variantMatrixGenerator;
+
+    @Autowired
+    private ProductVariantService productVariantService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestCatalog catalog;
+
+    private final String prefix = TestCatalog.uniquePrefix("MTX");
+    private String color;
+    private String size;
+
+    @BeforeEach
+    void createVariantAttributes() {
+        color = catalog.attribute(prefix + "Color", "TEXT", true).getName();
+        size = catalog.attribute(prefix + "Size", "TEXT", true).getName();
+    }
+
+    @Test
+    void createsOnlyTheCombinationsTheProductDoesNotHaveYet() {
+        Product product = catalog.product(prefix);
+        ProductVariant existing = new ProductVariant();
+        existing.setSku(prefix + "EXISTING");
+        existing.setName("Existing");
+        existing.setAttributes(new HashMap<>(Map.of(size, "M", color, "Red")));
+        productVariantService.createProductVariant(product, existing);
+        VariantMatrixRequest request = new VariantMatrixRequest(Map.of(color, List.of("Red", "Blue", "Red"), size, List.of("M", "L")));
+
+        VariantMatrixResult result = variantMatrixGenerator.generate(product, request);
+
+        assertEquals(4, result.combinations());
+        assertEquals(3, result.created());
+        assertEquals(1, result.skipped());
+        assertEquals(4, variantCount(product));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_log WHERE action = 'CREATE_VARIANT' AND entity = 'ProductVariant' AND entity_id IN ("
+                + String.join(",", result.variants().stream().map(variant -> String.valueOf(variant.id())).toList()) + ")", Integer.class));
+
+        VariantMatrixResult repeated = variantMatrixGenerator.generate(product, request);
+        assertEquals(0, repeated.created());
+        assertEquals(4, repeated.skipped());
+        assertEquals(4, variantCount(product));
+    }
+
+    @Test
+    void rejectsMatricesLargerThanTheMaximumSize() {
+        Product product = catalog.product(prefix);
+        // 100 x 51 combinations, above the default maximum of 5000
+        VariantMatrixRequest request = new VariantMatrixRequest(Map.of(color, values(100), size, values(51)));
+
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class, () -> variantMatrixGenerator.generate(product, request));
+
+        assertEquals("At most 5000 variants can be generated at once.", rejected.getMessage());
+        assertEquals(0, variantCount(product));
+        assertEquals(5000, variantMatrixGenerator.generate(product, new VariantMatrixRequest(Map.of(color, values(100), size, values(50)))).created());
+    }
+
+    @Test
+    void variantSkusAreUniqueAcrossProducts() {
+        Product first = catalog.product(prefix + "A");
+        Product second = catalog.product(prefix + "B");
+        String sku = variantMatrixGenerator.generate(first, new VariantMatrixRequest(Map.of(color, List.of("Red")))).variants().get(0).sku();
+
+        // A SKU taken between the generator's check and its insert is caught by the database
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update("INSERT INTO product_variant (product_id, sku, name) VALUES (?, ?, ?)", second.getId(), sku, "Copy"));
+    }
+
+    private static List<String> values(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "V" + i).toList();
+    }
+
+    private int variantCount(Product product) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_variant WHERE product_id = ?", Integer.class, product.getId());
+    }
+}